@@ -0,0 +1,220 @@
+package edu.virginia.sde.reviews.benchmarks;
+
+import edu.virginia.sde.reviews.models.Course;
+import edu.virginia.sde.reviews.services.BulkImporter;
+import edu.virginia.sde.reviews.services.ConnectionPool;
+import edu.virginia.sde.reviews.services.DatabaseConfig;
+import edu.virginia.sde.reviews.services.DatabaseService;
+import edu.virginia.sde.reviews.services.ImportRecord;
+import edu.virginia.sde.reviews.services.PasswordHasher;
+import edu.virginia.sde.reviews.services.ReviewWriteQueue;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+/**
+ * A temporary database with a fixed, reproducible shape, shared by every
+ * benchmark in a trial. Each user reviews {@value #REVIEWS_PER_USER} different
+ * courses, so the number of users grows with the review count and the number of
+ * courses grows at a hundredth of it.
+ *
+ * Building the 1M-review database takes minutes, so each size is built once
+ * into a template under java.io.tmpdir/course-reviews-jmh and copied into a
+ * fresh directory for every trial; a benchmark that writes never affects the
+ * next one. Delete the template directory after changing the schema.
+ */
+@State(Scope.Benchmark)
+public class BenchmarkDatabase {
+    static final int REVIEWS_PER_USER = 20;
+    static final String PASSWORD = "benchmark";
+
+    private static final String[] SUBJECTS = {
+        "CS", "MATH", "PHYS", "CHEM", "BIOL", "ECON", "HIST", "ENGL", "PHIL", "PSYC",
+        "STAT", "ARTH", "MUSI", "DRAM", "ASTR", "EVSC", "SOC", "POL", "ANTH", "LING"
+    };
+    private static final String[] WORDS = {
+        "Introduction", "Advanced", "Theory", "Systems", "Methods", "Analysis", "Design", "Modern",
+        "Applied", "Foundations", "Topics", "Seminar", "Data", "Networks", "History", "Structures"
+    };
+    private static final Path TEMPLATES = Paths.get(System.getProperty("java.io.tmpdir"), "course-reviews-jmh");
+
+    @Param({"1000", "100000", "1000000"})
+    public int reviews;
+
+    // Run with -p catalog=false to measure the SQL paths without the in-memory catalog
+    @Param({"true"})
+    public boolean catalog;
+
+    private Path directory;
+    private DatabaseService database;
+    private int users;
+    private int courses;
+    private int minReviewId;
+    private int maxReviewId;
+    private Course sampleCourse;
+    private int writeCourseId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, SQLException {
+        users = Math.max(50, reviews / REVIEWS_PER_USER);
+        courses = Math.max(200, reviews / 100);
+        Path template = template();
+
+        directory = Files.createTempDirectory("course-reviews-jmh");
+        Path file = directory.resolve("reviews.db");
+        Files.copy(template, file);
+        database = new DatabaseService(new DatabaseConfig(properties(file)));
+
+        try (Connection conn = database.getConnectionPool().getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MIN(id), MAX(id) FROM reviews")) {
+            rs.next();
+            minReviewId = rs.getInt(1);
+            maxReviewId = rs.getInt(2);
+        }
+        sampleCourse = database.getCourse(database.getCourseIdBySubjectAndNumber(subject(courses / 2),
+            number(courses / 2)));
+        // The extra course nobody has reviewed, where addReview never collides
+        writeCourseId = database.getCourseIdBySubjectAndNumber(subject(courses), number(courses));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        ReviewWriteQueue.shutdownAll();
+        ConnectionPool.shutdownAll();
+        delete(directory);
+    }
+
+    // Getters
+    public DatabaseService getDatabase() { return database; }
+    public int getUserCount() { return users; }
+    public int getCourseCount() { return courses; }
+    public int getMinReviewId() { return minReviewId; }
+    public int getMaxReviewId() { return maxReviewId; }
+    public Course getSampleCourse() { return sampleCourse; }
+    public int getWriteCourseId() { return writeCourseId; }
+
+    /**
+     * A word that appears in many titles, for title searches.
+     */
+    public String getTitleWord() {
+        return WORDS[0];
+    }
+
+    private Path template() throws IOException, SQLException {
+        Path template = TEMPLATES.resolve("reviews-" + reviews + ".db");
+        if (Files.exists(template)) {
+            return template;
+        }
+        Files.createDirectories(TEMPLATES);
+        Path building = Files.createTempFile(TEMPLATES, "building", ".db");
+        Files.delete(building);
+
+        System.out.printf("Building a %d-review template database at %s%n", reviews, template);
+        Properties properties = properties(building);
+        // Seeding is not measured, so hash the shared password once at the cheapest cost
+        properties.setProperty("auth.iterations", String.valueOf(PasswordHasher.MIN_ITERATIONS));
+        DatabaseService seed = new DatabaseService(new DatabaseConfig(properties));
+        String password = seed.getPasswordHasher().hash(PASSWORD);
+        BulkImporter importer = new BulkImporter(seed);
+        BulkImporter.Report report = importer.importRecords(() -> new Records(password));
+        System.out.println(report);
+
+        ReviewWriteQueue.shutdownAll();
+        ConnectionPool.shutdownAll();
+        Files.move(building, template, StandardCopyOption.ATOMIC_MOVE);
+        return template;
+    }
+
+    private Properties properties(Path file) {
+        Properties properties = new Properties();
+        properties.setProperty("db.path", file.toString());
+        properties.setProperty("catalog.enabled", String.valueOf(catalog));
+        // Measured without the slow-query timing proxies, whatever the default
+        properties.setProperty("metrics.slowQueryMillis", "-1");
+        return properties;
+    }
+
+    private static String subject(int course) {
+        return SUBJECTS[course % SUBJECTS.length];
+    }
+
+    private static int number(int course) {
+        return 1000 + course / SUBJECTS.length;
+    }
+
+    private static String title(int course) {
+        return WORDS[course % WORDS.length] + " " + WORDS[(course / WORDS.length) % WORDS.length]
+            + " " + course;
+    }
+
+    private static void delete(Path directory) throws IOException {
+        if (directory == null) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    // Users, then courses (plus the write course), then each user's reviews,
+    // generated lazily so the 1M-review import never holds them all in memory
+    private class Records implements Iterator<ImportRecord> {
+        private final String password;
+        private final long start = System.currentTimeMillis();
+        private int user = 0;
+        private int course = 0;
+        private int review = 0;
+
+        Records(String password) {
+            this.password = password;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return review < users * REVIEWS_PER_USER;
+        }
+
+        @Override
+        public ImportRecord next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            if (user < users) {
+                return ImportRecord.user("user" + user++, password);
+            }
+            if (course <= courses) {
+                int index = course++;
+                return ImportRecord.course(subject(index), number(index), title(index));
+            }
+            int reviewer = review / REVIEWS_PER_USER;
+            int slot = review % REVIEWS_PER_USER;
+            int reviewed = (reviewer + slot * (courses / REVIEWS_PER_USER)) % courses;
+            review++;
+            // A minute apart, so paging by timestamp sees distinct values
+            return ImportRecord.review("user" + reviewer, subject(reviewed), number(reviewed),
+                1 + (reviewer + slot) % 5, "Review " + review, new Timestamp(start - review * 60_000L));
+        }
+    }
+}
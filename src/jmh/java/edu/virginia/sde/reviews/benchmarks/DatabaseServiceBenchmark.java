@@ -0,0 +1,161 @@
+package edu.virginia.sde.reviews.benchmarks;
+
+import edu.virginia.sde.reviews.models.Course;
+import edu.virginia.sde.reviews.models.Page;
+import edu.virginia.sde.reviews.models.Review;
+import edu.virginia.sde.reviews.services.DatabaseService;
+import edu.virginia.sde.reviews.utils.ListPaging;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of the DatabaseService calls the scenes make, at each data size in
+ * {@link BenchmarkDatabase}. Searches use the first page (ListPaging.PAGE_SIZE),
+ * as the course search scene does, with one benchmark per filter combination.
+ *
+ * Run with {@code ./gradlew jmh}; narrow it with
+ * {@code -PjmhIncludes=searchCourses} or change sizes with JMH's {@code -p}.
+ * Results are written to build/results/jmh/results.json.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DatabaseServiceBenchmark {
+    private static final int PAGE_SIZE = ListPaging.PAGE_SIZE;
+
+    /**
+     * Ids picked per thread from a fixed seed, so every run visits the same rows.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private Random random;
+        private BenchmarkDatabase data;
+        // The review added by addReview, removed again before the next call
+        private Review added;
+        private int nextUser = 0;
+
+        @Setup(Level.Trial)
+        public void setUp(BenchmarkDatabase data) {
+            this.data = data;
+            this.random = new Random(42);
+        }
+
+        int courseId() {
+            return 1 + random.nextInt(data.getCourseCount());
+        }
+
+        int userId() {
+            return 1 + random.nextInt(data.getUserCount());
+        }
+
+        int reviewId() {
+            return data.getMinReviewId() + random.nextInt(data.getMaxReviewId() - data.getMinReviewId() + 1);
+        }
+
+        int rating() {
+            return 1 + random.nextInt(5);
+        }
+
+        // Cycles through the users, none of whom has reviewed the write course
+        int nextWriter() {
+            int userId = 1 + nextUser;
+            nextUser = (nextUser + 1) % data.getUserCount();
+            return userId;
+        }
+
+        // Keeps the table the size the trial started with. Per-invocation
+        // fixtures add noise to calls this short, but a write commits to disk
+        // and takes far longer than the fixture itself.
+        @TearDown(Level.Invocation)
+        public void removeAdded() {
+            if (added != null) {
+                data.getDatabase().deleteReview(added.getId());
+                added = null;
+            }
+        }
+    }
+
+    @Benchmark
+    public Page<Course> searchCoursesAll(BenchmarkDatabase data) {
+        return data.getDatabase().searchCourses(null, null, null, null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public Page<Course> searchCoursesBySubject(BenchmarkDatabase data) {
+        Course course = data.getSampleCourse();
+        return data.getDatabase().searchCourses(course.getSubject(), null, null, null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public Page<Course> searchCoursesByNumber(BenchmarkDatabase data) {
+        Course course = data.getSampleCourse();
+        return data.getDatabase().searchCourses(null, course.getNumber(), null, null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public Page<Course> searchCoursesByTitle(BenchmarkDatabase data) {
+        return data.getDatabase().searchCourses(null, null, data.getTitleWord(), null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public Page<Course> searchCoursesBySubjectAndNumber(BenchmarkDatabase data) {
+        Course course = data.getSampleCourse();
+        return data.getDatabase().searchCourses(course.getSubject(), course.getNumber(), null, null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public Page<Course> searchCoursesBySubjectAndTitle(BenchmarkDatabase data) {
+        Course course = data.getSampleCourse();
+        return data.getDatabase().searchCourses(course.getSubject(), null, data.getTitleWord(), null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public Page<Course> searchCoursesByNumberAndTitle(BenchmarkDatabase data) {
+        Course course = data.getSampleCourse();
+        return data.getDatabase().searchCourses(null, course.getNumber(), data.getTitleWord(), null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public Page<Course> searchCoursesByAllFilters(BenchmarkDatabase data) {
+        Course course = data.getSampleCourse();
+        return data.getDatabase().searchCourses(course.getSubject(), course.getNumber(), course.getTitle(),
+            null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public Course getCourse(BenchmarkDatabase data, Cursor cursor) {
+        return data.getDatabase().getCourse(cursor.courseId());
+    }
+
+    @Benchmark
+    public Page<Review> getReviewsForCourse(BenchmarkDatabase data, Cursor cursor) {
+        return data.getDatabase().getReviewsForCourse(cursor.courseId(), null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public Page<Review> getUserReviews(BenchmarkDatabase data, Cursor cursor) {
+        return data.getDatabase().getUserReviews(cursor.userId(), null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public Review addReview(BenchmarkDatabase data, Cursor cursor) {
+        DatabaseService database = data.getDatabase();
+        cursor.added = database.addReview(cursor.nextWriter(), data.getWriteCourseId(), cursor.rating(),
+            "Benchmark review");
+        return cursor.added;
+    }
+
+    @Benchmark
+    public boolean updateReview(BenchmarkDatabase data, Cursor cursor) {
+        return data.getDatabase().updateReview(cursor.reviewId(), cursor.rating(), "Updated by benchmark");
+    }
+}
@@ -1,16 +1,24 @@
 package edu.virginia.sde.reviews;
 
+import edu.virginia.sde.reviews.services.AsyncDatabaseService;
+import edu.virginia.sde.reviews.services.ConnectionPool;
+import edu.virginia.sde.reviews.services.DataLayerMetrics;
+import edu.virginia.sde.reviews.services.DatabaseConfig;
+import edu.virginia.sde.reviews.services.ReviewWriteQueue;
 import edu.virginia.sde.reviews.utils.DatabaseInitializer;
+import edu.virginia.sde.reviews.utils.SceneManager;
 import javafx.application.Application;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Scene;
 import javafx.stage.Stage;
 
 public class CourseReviewsApplication extends Application {
     @Override
     public void start(Stage stage) throws Exception {
-        // Check if we need to initialize the database
+        // Storage settings from the config file, system properties and --key=value arguments
         Parameters params = getParameters();
+        DatabaseConfig config = DatabaseConfig.load(params.getRaw());
+        DatabaseConfig.setDefault(config);
+
+        // Check if we need to initialize the database
         if (params.getRaw().contains("--init-db")) {
             System.out.println("Initializing database with sample data...");
             DatabaseInitializer initializer = new DatabaseInitializer();
@@ -18,14 +26,23 @@ public class CourseReviewsApplication extends Application {
             System.out.println("Database initialization complete!");
         }
 
-        FXMLLoader fxmlLoader = new FXMLLoader(getClass().getResource("login.fxml"));
-        Scene scene = new Scene(fxmlLoader.load());
-        String css = this.getClass().getResource("/edu/virginia/sde/reviews/css/style.css").toExternalForm();
-        scene.getStylesheets().add(css);
-
         stage.setTitle("Course Reviews");
-        stage.setScene(scene);
-        stage.show();
+        SceneManager.showFirst(stage, SceneManager.LOGIN);
+
+        // Load the other views while the user logs in; --no-preload loads each on first visit
+        if (!params.getRaw().contains("--no-preload")) {
+            SceneManager.preload(SceneManager.COURSE_SEARCH, SceneManager.COURSE_REVIEW, SceneManager.MY_REVIEWS);
+        }
+    }
+
+    @Override
+    public void stop() {
+        // Stop background queries, commit queued review writes, then close pooled
+        // database connections cleanly and unregister the metrics beans
+        AsyncDatabaseService.shutdownAll();
+        ReviewWriteQueue.shutdownAll();
+        ConnectionPool.shutdownAll();
+        DataLayerMetrics.shutdownAll();
     }
 
     public static void main(String[] args) {
@@ -1,22 +1,45 @@
 package edu.virginia.sde.reviews.controllers;
 
 import edu.virginia.sde.reviews.models.Course;
+import edu.virginia.sde.reviews.models.CoursePageSnapshot;
+import edu.virginia.sde.reviews.models.Page;
 import edu.virginia.sde.reviews.models.Review;
 import edu.virginia.sde.reviews.models.ReviewDisplay;
-import edu.virginia.sde.reviews.services.DatabaseService;
+import edu.virginia.sde.reviews.models.Session;
+import edu.virginia.sde.reviews.models.WriteResult;
+import edu.virginia.sde.reviews.services.AsyncDatabaseService;
+import edu.virginia.sde.reviews.services.DatabaseConfig;
+import edu.virginia.sde.reviews.utils.LatestRequest;
+import edu.virginia.sde.reviews.utils.ListPaging;
+import edu.virginia.sde.reviews.utils.Resettable;
 import edu.virginia.sde.reviews.utils.SceneManager;
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.collections.FXCollections;
 import java.io.IOException;
-import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.BiConsumer;
 import javafx.collections.ObservableList;
 
-public class CourseReviewController {
-    private final DatabaseService database;
-    private String currentUser;
+public class CourseReviewController implements Resettable {
+    private final AsyncDatabaseService database;
+    private Session session;
     private Course currentCourse;
     private Review userReview;
+    private final ObservableList<ReviewDisplay> displayReviews = FXCollections.observableArrayList();
+    // Keyset cursor: the last review loaded so far
+    private Review lastLoaded;
+    private boolean hasMoreReviews;
+    // The whole page (course, first reviews, own review) is loaded as one snapshot;
+    // later pages of reviews are loaded separately as the list is scrolled
+    private LatestRequest<CoursePageSnapshot> snapshotRequest;
+    private LatestRequest<Page<Review>> reviewsRequest;
+    // Writes are never cancelled or superseded, so their result always reaches the
+    // session; submit and delete stay disabled while one is in flight
+    private LatestRequest.Loading loading;
+    private boolean writing;
 
     @FXML
     private Label courseLabel;
@@ -34,9 +57,11 @@ public class CourseReviewController {
     private Button deleteButton;
     @FXML
     private Label messageLabel;
+    @FXML
+    private ProgressIndicator loadingIndicator;
 
     public CourseReviewController() {
-        this.database = new DatabaseService();
+        this.database = AsyncDatabaseService.forConfig(DatabaseConfig.getDefault());
     }
 
     public void initialize() {
@@ -45,59 +70,117 @@ public class CourseReviewController {
 
         // Initially hide delete button
         deleteButton.setVisible(false);
+
+        loading = new LatestRequest.Loading(loadingIndicator);
+        snapshotRequest = new LatestRequest<>(loading);
+        reviewsRequest = new LatestRequest<>(loading);
+
+        // Reviews are loaded a page at a time as the list is scrolled
+        reviewsListView.setItems(displayReviews);
+        ListPaging.loadMoreOnScroll(reviewsListView, this::loadNextPage);
     }
 
-    public void setData(String username, Course course) {
-        this.currentUser = username;
+    // The previous course's reviews and form must not show while the next one loads;
+    // a write still in flight finishes and updates the session
+    @Override
+    public void resetState() {
+        snapshotRequest.cancel();
+        reviewsRequest.cancel();
+        displayReviews.clear();
+        lastLoaded = null;
+        hasMoreReviews = false;
+        messageLabel.setText("");
+        showUserReview(null);
+    }
+
+    public void setData(Session session, Course course) {
+        this.session = session;
         this.currentCourse = course;
         
         // Update UI with course info
         courseLabel.setText(String.format("%s %d: %s", 
             course.getSubject(), course.getNumber(), course.getTitle()));
-        updateAverageRating();
-        
-        // Load all reviews
-        loadReviews();
+        showAverageRating(course);
         
-        // Check if user has already reviewed this course
-        checkExistingReview();
+        // Load ratings, the first page of reviews and the user's own review together
+        loadSnapshot();
+    }
+
+    private void loadSnapshot() {
+        int courseId = currentCourse.getId();
+        // The own-review lookup is skipped for courses the session says are unreviewed
+        int userId = session.hasReviewed(courseId) ? session.getUserId() : -1;
+        // No scrolling-triggered page loads until the first page is in
+        hasMoreReviews = false;
+        reviewsRequest.cancel();
+        snapshotRequest.submit(database.call(db ->
+                db.getCoursePageSnapshot(courseId, userId, ListPaging.PAGE_SIZE)),
+            this::applySnapshot, this::showDatabaseError);
+    }
+
+    private void applySnapshot(CoursePageSnapshot snapshot) {
+        if (snapshot == null) {
+            messageLabel.setText("This course could not be loaded.");
+            return;
+        }
+        currentCourse = snapshot.getCourse();
+        showAverageRating(currentCourse);
+
+        displayReviews.clear();
+        lastLoaded = null;
+        addPage(snapshot.getReviews());
+        if (snapshot.getUserReview() == null) {
+            // Keeps the session honest if the review was removed elsewhere
+            session.reviewDeleted(currentCourse.getId());
+        }
+        showUserReview(snapshot.getUserReview());
     }
 
-    private void loadReviews() {
-        List<Review> reviews = database.getReviewsForCourse(currentCourse.getId());
-        ObservableList<ReviewDisplay> displayReviews = FXCollections.observableArrayList();
+    private void loadNextPage() {
+        if (!hasMoreReviews || reviewsRequest.isPending() || snapshotRequest.isPending()) {
+            return;
+        }
+        reviewsRequest.submit(database.getReviewsForCourse(currentCourse.getId(), lastLoaded, ListPaging.PAGE_SIZE),
+            this::addPage, this::showDatabaseError);
+    }
 
-        for (Review review : reviews) {
+    private void addPage(Page<Review> page) {
+        for (Review review : page.getItems()) {
             displayReviews.add(new ReviewDisplay(review, currentCourse));
         }
-        reviewsListView.setItems(displayReviews);
+        if (!page.isEmpty()) {
+            lastLoaded = page.getLast();
+        }
+        hasMoreReviews = page.hasMore();
     }
 
-    private void checkExistingReview() {
-        int userId = database.getUserId(currentUser);
-        List<Review> reviews = database.getReviewsForCourse(currentCourse.getId());
-        
-        for (Review review : reviews) {
-            if (review.getUserId() == userId) {
-                userReview = review;
-                ratingComboBox.setValue(review.getRating());
-                commentArea.setText(review.getComment());
-                submitButton.setText("Update Review");
-                deleteButton.setVisible(true);
-                return;
-            }
+    private void showUserReview(Review review) {
+        userReview = review;
+        if (review != null) {
+            ratingComboBox.setValue(review.getRating());
+            commentArea.setText(review.getComment());
+            submitButton.setText("Update Review");
+            deleteButton.setVisible(true);
+            return;
         }
-        
+
         // No existing review found
-        userReview = null;
         ratingComboBox.setValue(null);
         commentArea.clear();
         submitButton.setText("Submit Review");
         deleteButton.setVisible(false);
     }
 
+    private void showDatabaseError(Throwable e) {
+        messageLabel.setText("Could not reach the database. Please try again.");
+        e.printStackTrace();
+    }
+
     @FXML
     public void handleSubmit() {
+        if (writing) {
+            return;
+        }
         Integer rating = ratingComboBox.getValue();
         String comment = commentArea.getText().trim();
         
@@ -106,67 +189,107 @@ public class CourseReviewController {
             return;
         }
 
-        int userId = database.getUserId(currentUser);
-        
-        if (userReview == null) {
-            // Create new review
-            Review newReview = database.addReview(userId, currentCourse.getId(), rating, comment);
-            if (newReview != null) {
-                messageLabel.setText("Review submitted successfully!");
-                userReview = newReview;
-                submitButton.setText("Update Review");
-                deleteButton.setVisible(true);
-            } else {
-                messageLabel.setText("Failed to submit review.");
+        int userId = session.getUserId();
+        int courseId = currentCourse.getId();
+        boolean updating = userReview != null;
+        Session writer = session;
+        // One upsert creates the review or updates the existing one, even if it
+        // was written elsewhere since this page loaded
+        submitWrite(database.saveReview(userId, courseId, rating, comment), (result, error) -> {
+            if (error != null || result.getStatus() == WriteResult.Status.OK) {
+                // After an error the review may still have been saved; the next snapshot checks
+                writer.reviewAdded(courseId);
             }
-        } else {
-            // Update existing review
-            if (database.updateReview(userReview.getId(), rating, comment)) {
-                messageLabel.setText("Review updated successfully!");
-            } else {
-                messageLabel.setText("Failed to update review.");
+            if (!isShowing(writer, courseId)) {
+                return;
             }
-        }
-        
-        loadReviews();
-        updateAverageRating();
+            if (error != null) {
+                showDatabaseError(error);
+                return;
+            }
+            switch (result.getStatus()) {
+                case OK -> messageLabel.setText(updating
+                    ? "Review updated successfully!" : "Review submitted successfully!");
+                case MISSING_REFERENCE -> messageLabel.setText("This course no longer exists.");
+                case INVALID -> messageLabel.setText("Please select a rating from 1 to 5.");
+                default -> messageLabel.setText("Failed to save review.");
+            }
+            loadSnapshot();
+        });
     }
 
     @FXML
     public void handleDelete() {
-        if (userReview != null) {
-            if (database.deleteReview(userReview.getId())) {
-                messageLabel.setText("Review deleted successfully!");
-                userReview = null;
-                ratingComboBox.setValue(null);
-                commentArea.clear();
-                submitButton.setText("Submit Review");
-                deleteButton.setVisible(false);
-                loadReviews();
-                updateAverageRating();
-            } else {
-                messageLabel.setText("Failed to delete review.");
-            }
+        if (writing || userReview == null) {
+            return;
         }
+        int courseId = currentCourse.getId();
+        Session writer = session;
+        submitWrite(database.removeReview(userReview.getId()), (result, error) -> {
+            boolean deleted = error == null && (result.getStatus() == WriteResult.Status.OK
+                || result.getStatus() == WriteResult.Status.NOT_FOUND);
+            if (deleted) {
+                writer.reviewDeleted(courseId);
+            }
+            if (!isShowing(writer, courseId)) {
+                return;
+            }
+            if (error != null) {
+                showDatabaseError(error);
+                return;
+            }
+            switch (result.getStatus()) {
+                case OK -> messageLabel.setText("Review deleted successfully!");
+                case NOT_FOUND -> messageLabel.setText("This review was already deleted.");
+                default -> messageLabel.setText("Failed to delete review.");
+            }
+            if (deleted) {
+                loadSnapshot();
+            }
+        });
+    }
+
+    /**
+     * Runs a review write with submit and delete disabled until it finishes, then
+     * hands its result (or failure) to onDone on the JavaFX Application Thread.
+     */
+    private void submitWrite(CompletableFuture<WriteResult<Review>> write,
+                             BiConsumer<WriteResult<Review>, Throwable> onDone) {
+        writing = true;
+        submitButton.setDisable(true);
+        deleteButton.setDisable(true);
+        loading.begin();
+        write.whenComplete((result, error) -> Platform.runLater(() -> {
+            writing = false;
+            submitButton.setDisable(false);
+            deleteButton.setDisable(false);
+            loading.end();
+            onDone.accept(result, error instanceof CompletionException && error.getCause() != null
+                ? error.getCause() : error);
+        }));
+    }
+
+    // Whether the page still shows the course a write was made for
+    private boolean isShowing(Session writer, int courseId) {
+        return session == writer && currentCourse != null && currentCourse.getId() == courseId;
     }
 
     @FXML
     public void handleBack() {
         try {
             SceneManager.switchToScene(courseLabel, 
-                "/edu/virginia/sde/reviews/courseSearch.fxml", 
-                currentUser);
+                SceneManager.COURSE_SEARCH, 
+                session);
         } catch (IOException e) {
             messageLabel.setText("Error returning to course search.");
             e.printStackTrace();
         }
     }
 
-    private void updateAverageRating() {
-        Course updated = database.getCourse(currentCourse.getId());
-        if (updated != null && updated.getAverageRating() != null) {
+    private void showAverageRating(Course course) {
+        if (course.getAverageRating() != null) {
             averageRatingLabel.setText(String.format("Average Rating: %.2f", 
-                updated.getAverageRating()));
+                course.getAverageRating()));
         } else {
             averageRatingLabel.setText("No ratings yet");
         }
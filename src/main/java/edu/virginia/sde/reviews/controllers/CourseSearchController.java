@@ -1,17 +1,46 @@
 package edu.virginia.sde.reviews.controllers;
 
 import edu.virginia.sde.reviews.models.Course;
-import edu.virginia.sde.reviews.services.DatabaseService;
+import edu.virginia.sde.reviews.models.Page;
+import edu.virginia.sde.reviews.models.Session;
+import edu.virginia.sde.reviews.models.WriteResult;
+import edu.virginia.sde.reviews.services.AsyncDatabaseService;
+import edu.virginia.sde.reviews.services.DatabaseConfig;
+import edu.virginia.sde.reviews.utils.LatestRequest;
+import edu.virginia.sde.reviews.utils.ListPaging;
+import edu.virginia.sde.reviews.utils.Resettable;
 import edu.virginia.sde.reviews.utils.SceneManager;
+import javafx.animation.PauseTransition;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.util.Duration;
 import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
-public class CourseSearchController {
-    private final DatabaseService database;
-    private String currentUser;
+public class CourseSearchController implements Resettable {
+    private static final int FULL_TEXT_RESULT_LIMIT = 200;
+    // Search-as-you-type waits for this pause in typing before querying
+    private static final int TYPE_AHEAD_DELAY_MILLIS = 150;
+
+    private final AsyncDatabaseService database;
+    private Session session;
+    private final ObservableList<Course> courses = FXCollections.observableArrayList();
+    // The filtered search being paged through, and its keyset cursor
+    private String searchSubject;
+    private Integer searchNumber;
+    private String searchTitle;
+    // Type-ahead searches match subject and number prefixes (searchNumberPrefix)
+    private boolean typeAhead;
+    private String searchNumberPrefix;
+    private Course lastLoaded;
+    private boolean hasMoreCourses;
+    // Course list loads; a new search cancels the page load of the previous one
+    private LatestRequest<Page<Course>> listRequest;
+    private LatestRequest<WriteResult<Course>> addRequest;
+    private PauseTransition typeAheadDelay;
 
     @FXML
     private TextField subjectSearchField;
@@ -20,6 +49,8 @@ public class CourseSearchController {
     @FXML
     private TextField titleSearchField;
     @FXML
+    private CheckBox fuzzySearchCheckBox;
+    @FXML
     private ListView<Course> courseListView;
     @FXML
     private TextField newSubjectField;
@@ -29,18 +60,21 @@ public class CourseSearchController {
     private TextField newTitleField;
     @FXML
     private Label messageLabel;
+    @FXML
+    private ProgressIndicator loadingIndicator;
 
     public CourseSearchController() {
-        this.database = new DatabaseService();
+        this.database = AsyncDatabaseService.forConfig(DatabaseConfig.getDefault());
     }
 
-    public void setCurrentUser(String username) {
-        this.currentUser = username;
+    public void setSession(Session session) {
+        this.session = session;
         refreshCourseList(); // Load all courses initially
     }
 
     @FXML
     public void handleSearch() {
+        typeAheadDelay.stop();
         String subject = subjectSearchField.getText().trim();
         String numberStr = numberSearchField.getText().trim();
         String title = titleSearchField.getText().trim();
@@ -55,9 +89,44 @@ public class CourseSearchController {
             }
         }
 
-        List<Course> courses = database.searchCourses(subject, number, title);
-        courseListView.setItems(FXCollections.observableArrayList(courses));
-        
+        // Typo-tolerant mode matches subject and title words approximately, closest first
+        if (fuzzySearchCheckBox.isSelected() && !(subject.isEmpty() && title.isEmpty())) {
+            showRanked(database.searchCoursesFuzzy(subject + " " + title, number, FULL_TEXT_RESULT_LIMIT));
+        } else if (subject.isEmpty() && number == null && !title.isEmpty()) {
+            // A title-only search is ranked by relevance; otherwise filter exactly, a page at a time
+            showRanked(database.searchCoursesFullText(title, FULL_TEXT_RESULT_LIMIT));
+        } else {
+            startSearch(subject, number, title);
+        }
+    }
+
+    // Ranked results come in one list rather than pages
+    private void showRanked(CompletableFuture<List<Course>> ranked) {
+        hasMoreCourses = false;
+        listRequest.submit(ranked.thenApply(list -> new Page<>(list, false)), page -> {
+            courses.setAll(page.getItems());
+            showResultMessage();
+        }, this::showDatabaseError);
+    }
+
+    // Runs once typing pauses; any earlier lookup still in flight is cancelled by startTypeAhead
+    private void handleTypeAhead() {
+        if (fuzzySearchCheckBox.isSelected()) {
+            handleSearch();
+            return;
+        }
+        String subject = subjectSearchField.getText().trim();
+        String number = numberSearchField.getText().trim();
+        String title = titleSearchField.getText().trim();
+
+        if (!number.chars().allMatch(Character::isDigit)) {
+            messageLabel.setText("Course number must be a valid integer.");
+            return;
+        }
+        startTypeAhead(subject, number, title);
+    }
+
+    private void showResultMessage() {
         if (courses.isEmpty()) {
             messageLabel.setText("No courses found matching your criteria.");
         } else {
@@ -65,6 +134,11 @@ public class CourseSearchController {
         }
     }
 
+    private void showDatabaseError(Throwable e) {
+        messageLabel.setText("Could not reach the database. Please try again.");
+        e.printStackTrace();
+    }
+
     @FXML
     public void handleAddCourse() {
         String subject = newSubjectField.getText().trim();
@@ -94,17 +168,32 @@ public class CourseSearchController {
             return;
         }
 
-        Course newCourse = database.addCourse(subject, number, title);
-        if (newCourse != null) {
-            messageLabel.setText("Course added successfully!");
-            clearAddCourseFields();
-            refreshCourseList();
-        } else {
-            messageLabel.setText("Failed to add course. It might already exist.");
-        }
+        addRequest.submit(database.createCourse(subject, number, title), result -> {
+            switch (result.getStatus()) {
+                case OK -> {
+                    messageLabel.setText("Course added successfully!");
+                    clearAddCourseFields();
+                    refreshCourseList();
+                }
+                case DUPLICATE -> messageLabel.setText("This course already exists.");
+                default -> messageLabel.setText("Failed to add course.");
+            }
+        }, this::showDatabaseError);
     }
     @FXML
     private void initialize() {
+        LatestRequest.Loading loading = new LatestRequest.Loading(loadingIndicator);
+        listRequest = new LatestRequest<>(loading);
+        addRequest = new LatestRequest<>(loading);
+        courseListView.setItems(courses);
+        ListPaging.loadMoreOnScroll(courseListView, this::loadNextPage);
+
+        // Search as you type: each keystroke restarts the delay, so only the pause queries
+        typeAheadDelay = new PauseTransition(Duration.millis(TYPE_AHEAD_DELAY_MILLIS));
+        typeAheadDelay.setOnFinished(e -> handleTypeAhead());
+        for (TextField field : new TextField[] {subjectSearchField, numberSearchField, titleSearchField}) {
+            field.textProperty().addListener((observable, oldValue, newValue) -> typeAheadDelay.playFromStart());
+        }
         courseListView.getSelectionModel().selectedItemProperty().addListener((observable, oldValue, newValue) -> {
             if (newValue != null) {
                 handleCourseSelected(newValue);
@@ -112,13 +201,30 @@ public class CourseSearchController {
         });
     }
 
+    // Coming back (or logging in again): drop the last visit's search, selection and messages
+    @Override
+    public void resetState() {
+        listRequest.cancel();
+        addRequest.cancel();
+        subjectSearchField.clear();
+        numberSearchField.clear();
+        titleSearchField.clear();
+        // Clearing the fields restarted the type-ahead delay; setSession reloads instead
+        typeAheadDelay.stop();
+        fuzzySearchCheckBox.setSelected(false);
+        clearAddCourseFields();
+        messageLabel.setText("");
+        courseListView.getSelectionModel().clearSelection();
+        courses.clear();
+    }
+
     @FXML
     public void handleCourseSelected(Course selectedCourse) {
         if (selectedCourse != null) {
             try {
                 SceneManager.switchToScene(courseListView, 
-                    "/edu/virginia/sde/reviews/courseReview.fxml", 
-                    currentUser,
+                    SceneManager.COURSE_REVIEW, 
+                    session,
                     selectedCourse);
             } catch (IOException e) {
                 messageLabel.setText("Error loading course review page.");
@@ -131,8 +237,8 @@ public class CourseSearchController {
     public void handleMyReviews() {
         try {
             SceneManager.switchToScene(courseListView, 
-                "/edu/virginia/sde/reviews/myReviews.fxml", 
-                currentUser);
+                SceneManager.MY_REVIEWS, 
+                session);
         } catch (IOException e) {
             messageLabel.setText("Error loading my reviews page.");
             e.printStackTrace();
@@ -143,7 +249,7 @@ public class CourseSearchController {
     public void handleLogout() {
         try {
             SceneManager.switchToScene(courseListView, 
-                "/edu/virginia/sde/reviews/login.fxml", 
+                SceneManager.LOGIN, 
                 null);
         } catch (IOException e) {
             messageLabel.setText("Error returning to login page.");
@@ -158,7 +264,50 @@ public class CourseSearchController {
     }
 
     private void refreshCourseList() {
-        List<Course> courses = database.searchCourses(null, null, null);
-        courseListView.setItems(FXCollections.observableArrayList(courses));
+        startSearch(null, null, null);
+    }
+
+    private void startSearch(String subject, Integer number, String title) {
+        typeAhead = false;
+        searchSubject = subject;
+        searchNumber = number;
+        searchTitle = title;
+        restartPaging();
+    }
+
+    private void startTypeAhead(String subject, String numberPrefix, String title) {
+        typeAhead = true;
+        searchSubject = subject;
+        searchNumberPrefix = numberPrefix;
+        searchTitle = title;
+        restartPaging();
+    }
+
+    private void restartPaging() {
+        lastLoaded = null;
+        hasMoreCourses = true;
+        courses.clear();
+        listRequest.cancel();
+        loadNextPage();
+    }
+
+    private void loadNextPage() {
+        if (!hasMoreCourses || listRequest.isPending()) {
+            return;
+        }
+        boolean firstPage = lastLoaded == null;
+        CompletableFuture<Page<Course>> next = typeAhead
+            ? database.suggestCourses(searchSubject, searchNumberPrefix, searchTitle, lastLoaded, ListPaging.PAGE_SIZE)
+            : database.searchCourses(searchSubject, searchNumber, searchTitle, lastLoaded, ListPaging.PAGE_SIZE);
+        listRequest.submit(next, page -> {
+            courses.addAll(page.getItems());
+            if (!page.isEmpty()) {
+                lastLoaded = page.getLast();
+            }
+            hasMoreCourses = page.hasMore();
+            if (firstPage) {
+                showResultMessage();
+            }
+        }, this::showDatabaseError);
     }
 } 
\ No newline at end of file
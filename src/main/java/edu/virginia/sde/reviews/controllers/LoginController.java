@@ -1,16 +1,23 @@
 package edu.virginia.sde.reviews.controllers;
 
-import edu.virginia.sde.reviews.services.DatabaseService;
+import edu.virginia.sde.reviews.models.Session;
+import edu.virginia.sde.reviews.services.AsyncDatabaseService;
+import edu.virginia.sde.reviews.services.DatabaseConfig;
+import edu.virginia.sde.reviews.utils.LatestRequest;
+import edu.virginia.sde.reviews.utils.Resettable;
 import edu.virginia.sde.reviews.utils.SceneManager;
 import javafx.fxml.FXML;
 import javafx.scene.control.Label;
+import javafx.scene.control.ProgressIndicator;
 import javafx.scene.control.TextField;
 import javafx.scene.control.PasswordField;
 import javafx.application.Platform;
 import java.io.IOException;
 
-public class LoginController {
-    private final DatabaseService database;
+public class LoginController implements Resettable {
+    private final AsyncDatabaseService database;
+    private LatestRequest<Session> loginRequest;
+    private LatestRequest<Boolean> accountRequest;
 
     @FXML
     private Label messageLabel;
@@ -20,9 +27,29 @@ public class LoginController {
     private PasswordField passwordField;
     @FXML
     private Label error;
+    @FXML
+    private ProgressIndicator loadingIndicator;
 
     public LoginController() {
-        this.database = new DatabaseService();
+        this.database = AsyncDatabaseService.forConfig(DatabaseConfig.getDefault());
+    }
+
+    @FXML
+    public void initialize() {
+        LatestRequest.Loading loading = new LatestRequest.Loading(loadingIndicator);
+        loginRequest = new LatestRequest<>(loading);
+        accountRequest = new LatestRequest<>(loading);
+    }
+
+    // Back from logging out: start from an empty form
+    @Override
+    public void resetState() {
+        loginRequest.cancel();
+        accountRequest.cancel();
+        usernameField.clear();
+        passwordField.clear();
+        messageLabel.setText("");
+        editErrorMsg("", false);
     }
 
     @FXML
@@ -35,18 +62,21 @@ public class LoginController {
             return;
         }
 
-        if (database.validateUser(username, password)) {
-            editErrorMsg("", false);
-            messageLabel.setText("Successfully logged in!");
-            try {
-                SceneManager.switchToScene(usernameField, "/edu/virginia/sde/reviews/courseSearch.fxml", username);
-            } catch (IOException e) {
-                editErrorMsg("Error loading course search page.", true);
-                e.printStackTrace();
+        // The session is resolved once here and handed to every later scene
+        loginRequest.submit(database.openSession(username, password), session -> {
+            if (session != null) {
+                editErrorMsg("", false);
+                messageLabel.setText("Successfully logged in!");
+                try {
+                    SceneManager.switchToScene(usernameField, SceneManager.COURSE_SEARCH, session);
+                } catch (IOException e) {
+                    editErrorMsg("Error loading course search page.", true);
+                    e.printStackTrace();
+                }
+            } else {
+                editErrorMsg("Invalid username or password.", true);
             }
-        } else {
-            editErrorMsg("Invalid username or password.", true);
-        }
+        }, this::showDatabaseError);
     }
 
     @FXML
@@ -64,12 +94,14 @@ public class LoginController {
             return;
         }
 
-        if (database.createUser(username, password)) {
-            editErrorMsg("", false);
-            messageLabel.setText("Account created successfully! Please log in.");
-        } else {
-            editErrorMsg("Username already exists.", true);
-        }
+        accountRequest.submit(database.createUser(username, password), created -> {
+            if (created) {
+                editErrorMsg("", false);
+                messageLabel.setText("Account created successfully! Please log in.");
+            } else {
+                editErrorMsg("Username already exists.", true);
+            }
+        }, this::showDatabaseError);
     }
 
     @FXML
@@ -77,6 +109,11 @@ public class LoginController {
         Platform.exit();
     }
 
+    private void showDatabaseError(Throwable e) {
+        editErrorMsg("Could not reach the database. Please try again.", true);
+        e.printStackTrace();
+    }
+
     private void editErrorMsg(String message, boolean visibility) {
         error.setText(message);
         error.setVisible(visibility);
@@ -1,9 +1,15 @@
 package edu.virginia.sde.reviews.controllers;
 
+import edu.virginia.sde.reviews.models.Page;
 import edu.virginia.sde.reviews.models.Review;
-import edu.virginia.sde.reviews.models.Course;
 import edu.virginia.sde.reviews.models.ReviewDisplay;
+import edu.virginia.sde.reviews.models.Session;
+import edu.virginia.sde.reviews.services.AsyncDatabaseService;
+import edu.virginia.sde.reviews.services.DatabaseConfig;
 import edu.virginia.sde.reviews.services.DatabaseService;
+import edu.virginia.sde.reviews.utils.LatestRequest;
+import edu.virginia.sde.reviews.utils.ListPaging;
+import edu.virginia.sde.reviews.utils.Resettable;
 import edu.virginia.sde.reviews.utils.SceneManager;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
@@ -12,13 +18,23 @@ import javafx.collections.ObservableList;
 import javafx.collections.transformation.FilteredList;
 import javafx.collections.transformation.SortedList;
 import java.io.IOException;
-import java.util.List;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
 
-public class MyReviewsController {
-    private final DatabaseService database;
-    private String currentUser;
+public class MyReviewsController implements Resettable {
+    private final AsyncDatabaseService database;
+    private Session session;
     private ObservableList<ReviewDisplay> allReviews;
+    // Ids of reviews matching the search box, or null when the box is empty
+    private Set<Integer> searchMatches;
+    // Keyset cursor: the last review loaded so far
+    private Review lastLoaded;
+    private boolean hasMoreReviews;
+    private LatestRequest<Chunk> loadRequest;
+    private LatestRequest<Set<Integer>> searchRequest;
 
     @FXML
     private ListView<ReviewDisplay> reviewsListView;
@@ -30,14 +46,20 @@ public class MyReviewsController {
     private ComboBox<String> filterComboBox;
     @FXML
     private TextField searchField;
+    @FXML
+    private ProgressIndicator loadingIndicator;
 
     public MyReviewsController() {
-        this.database = new DatabaseService();
+        this.database = AsyncDatabaseService.forConfig(DatabaseConfig.getDefault());
         this.allReviews = FXCollections.observableArrayList();
     }
 
     @FXML
     public void initialize() {
+        LatestRequest.Loading loading = new LatestRequest.Loading(loadingIndicator);
+        loadRequest = new LatestRequest<>(loading);
+        searchRequest = new LatestRequest<>(loading);
+
         // Setup sorting options
         sortComboBox.setItems(FXCollections.observableArrayList(
             "Most Recent", "Course Name", "Rating (High to Low)", "Rating (Low to High)"
@@ -53,33 +75,113 @@ public class MyReviewsController {
         filterComboBox.setOnAction(e -> filterReviews());
 
         // Setup search functionality
-        searchField.textProperty().addListener((observable, oldValue, newValue) -> filterReviews());
+        searchField.textProperty().addListener((observable, oldValue, newValue) -> searchReviews(newValue));
+
+        // Newest-first listings are loaded a page at a time as the list is scrolled
+        ListPaging.loadMoreOnScroll(reviewsListView, this::loadNextPage);
+    }
+
+    // Reviews may have changed since the last visit; setSession loads them again
+    @Override
+    public void resetState() {
+        loadRequest.cancel();
+        searchRequest.cancel();
+        allReviews.clear();
+        lastLoaded = null;
+        // Nothing left to load, so resetting the controls below only re-sorts the empty list
+        hasMoreReviews = false;
+        searchField.clear();
+        sortComboBox.setValue("Most Recent");
+        filterComboBox.setValue("All Reviews");
+        messageLabel.setText("");
     }
 
-    public void setCurrentUser(String username) {
-        this.currentUser = username;
+    public void setSession(Session session) {
+        this.session = session;
         loadUserReviews();
     }
 
     private void loadUserReviews() {
-        int userId = database.getUserId(currentUser);
-        List<Review> reviews = database.getUserReviews(userId);
-        
         allReviews.clear();
-        for (Review review : reviews) {
-            Course course = database.getCourse(review.getCourseId());
-            if (course != null) {
-                allReviews.add(new ReviewDisplay(review, course));
+        lastLoaded = null;
+        // The session already knows whether there is anything to load
+        if (session.getReviewCount() == 0) {
+            hasMoreReviews = false;
+            messageLabel.setText("You haven't written any reviews yet.");
+            sortAndFilterReviews();
+            return;
+        }
+        hasMoreReviews = true;
+        int userId = session.getUserId();
+        loadRequest.submit(database.call(db -> loadChunk(db, userId, null, false)), chunk -> {
+            addChunk(chunk);
+
+            if (allReviews.isEmpty()) {
+                messageLabel.setText("You haven't written any reviews yet.");
+            } else {
+                messageLabel.setText("");
             }
+
+            sortAndFilterReviews();
+        }, this::showDatabaseError);
+    }
+
+    private void loadNextPage() {
+        if (!hasMoreReviews || loadRequest.isPending()) {
+            return;
         }
-        
-        if (reviews.isEmpty()) {
-            messageLabel.setText("You haven't written any reviews yet.");
-        } else {
-            messageLabel.setText("");
+        int userId = session.getUserId();
+        Review after = lastLoaded;
+        loadRequest.submit(database.call(db -> loadChunk(db, userId, after, false)), this::addChunk,
+            this::showDatabaseError);
+    }
+
+    // Sorting by anything but recency, filtering and searching need every review;
+    // loads the rest in one background task, then sorts and filters again
+    private boolean loadAllPages() {
+        if (!hasMoreReviews) {
+            return false;
         }
+        int userId = session.getUserId();
+        Review after = lastLoaded;
+        loadRequest.submit(database.call(db -> loadChunk(db, userId, after, true)), chunk -> {
+            addChunk(chunk);
+            sortAndFilterReviews();
+        }, this::showDatabaseError);
+        return true;
+    }
+
+    // Runs on a database thread: one page of reviews (or all remaining ones), each
+    // page read together with its courses in one joined query
+    private static Chunk loadChunk(DatabaseService db, int userId, Review after, boolean all) {
+        Chunk chunk = new Chunk();
+        do {
+            Page<ReviewDisplay> page = db.getUserReviewDisplays(userId, after, ListPaging.PAGE_SIZE);
+            chunk.reviews.addAll(page.getItems());
+            if (!page.isEmpty()) {
+                after = page.getLast().getReview();
+            }
+            chunk.last = after;
+            chunk.hasMore = page.hasMore();
+        } while (all && chunk.hasMore);
+        return chunk;
+    }
+
+    private void addChunk(Chunk chunk) {
+        allReviews.addAll(chunk.reviews);
+        lastLoaded = chunk.last;
+        hasMoreReviews = chunk.hasMore;
+    }
 
-        sortAndFilterReviews();
+    private void showDatabaseError(Throwable e) {
+        messageLabel.setText("Could not reach the database. Please try again.");
+        e.printStackTrace();
+    }
+
+    private static final class Chunk {
+        final List<ReviewDisplay> reviews = new ArrayList<>();
+        Review last;
+        boolean hasMore;
     }
 
     private void sortAndFilterReviews() {
@@ -89,6 +191,9 @@ public class MyReviewsController {
 
     private void sortReviews() {
         String sortOption = sortComboBox.getValue();
+        if (!"Most Recent".equals(sortOption) && loadAllPages()) {
+            return;
+        }
         Comparator<ReviewDisplay> comparator = switch (sortOption) {
             case "Course Name" -> Comparator.comparing(rd -> 
                 rd.getCourse().getSubject() + rd.getCourse().getNumber());
@@ -104,9 +209,34 @@ public class MyReviewsController {
         reviewsListView.setItems(sortedList);
     }
 
+    private void searchReviews(String searchText) {
+        String trimmed = searchText == null ? "" : searchText.trim();
+        if (trimmed.isEmpty()) {
+            searchRequest.cancel();
+            searchMatches = null;
+            filterReviews();
+            return;
+        }
+
+        // Full-text search runs in the database against comments and course titles;
+        // each keystroke supersedes the previous search
+        searchRequest.submit(database.searchUserReviews(session.getUserId(), trimmed).thenApply(reviews -> {
+            Set<Integer> ids = new HashSet<>();
+            for (Review review : reviews) {
+                ids.add(review.getId());
+            }
+            return ids;
+        }), ids -> {
+            searchMatches = ids;
+            filterReviews();
+        }, this::showDatabaseError);
+    }
+
     private void filterReviews() {
         String filterOption = filterComboBox.getValue();
-        String searchText = searchField.getText().toLowerCase();
+        if ((!"All Reviews".equals(filterOption) || searchMatches != null) && loadAllPages()) {
+            return;
+        }
 
         FilteredList<ReviewDisplay> filteredList = new FilteredList<>(allReviews, review -> {
             // Apply rating filter
@@ -120,8 +250,8 @@ public class MyReviewsController {
             };
 
             // Apply search filter
-            boolean passesSearchFilter = searchText.isEmpty() || 
-                review.toString().toLowerCase().contains(searchText);
+            boolean passesSearchFilter = searchMatches == null ||
+                searchMatches.contains(review.getReview().getId());
 
             return passesRatingFilter && passesSearchFilter;
         });
@@ -141,8 +271,8 @@ public class MyReviewsController {
         if (selectedReview != null) {
             try {
                 SceneManager.switchToScene(reviewsListView, 
-                    "/edu/virginia/sde/reviews/courseReview.fxml", 
-                    currentUser,
+                    SceneManager.COURSE_REVIEW, 
+                    session,
                     selectedReview.getCourse());
             } catch (IOException e) {
                 messageLabel.setText("Error loading course review page.");
@@ -155,8 +285,8 @@ public class MyReviewsController {
     public void handleBackToSearch() {
         try {
             SceneManager.switchToScene(reviewsListView, 
-                "/edu/virginia/sde/reviews/courseSearch.fxml", 
-                currentUser);
+                SceneManager.COURSE_SEARCH, 
+                session);
         } catch (IOException e) {
             messageLabel.setText("Error returning to course search.");
             e.printStackTrace();
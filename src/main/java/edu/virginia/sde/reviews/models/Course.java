@@ -6,6 +6,8 @@ public class Course {
     private int number;
     private String title;
     private Double averageRating;
+    private int reviewCount;
+    private int[] ratingHistogram = new int[5];
 
     public Course(int id, String subject, int number, String title) {
         if (!isValidSubject(subject)) {
@@ -31,12 +33,32 @@ public class Course {
     public int getNumber() { return number; }
     public String getTitle() { return title; }
     public Double getAverageRating() { return averageRating; }
+    public int getReviewCount() { return reviewCount; }
+
+    // Number of reviews with the given star rating (1-5)
+    public int getRatingCount(int stars) {
+        if (stars < 1 || stars > 5) {
+            throw new IllegalArgumentException("Rating must be between 1 and 5");
+        }
+        return ratingHistogram[stars - 1];
+    }
 
     // Setter for average rating
     public void setAverageRating(Double averageRating) {
         this.averageRating = averageRating;
     }
 
+    public void setReviewCount(int reviewCount) {
+        this.reviewCount = reviewCount;
+    }
+
+    public void setRatingHistogram(int[] ratingHistogram) {
+        if (ratingHistogram == null || ratingHistogram.length != 5) {
+            throw new IllegalArgumentException("Histogram must have one entry per star rating");
+        }
+        this.ratingHistogram = ratingHistogram.clone();
+    }
+
     // Validation methods
     public static boolean isValidSubject(String subject) {
         return subject != null && subject.matches("[A-Za-z]{2,4}");
@@ -0,0 +1,23 @@
+package edu.virginia.sde.reviews.models;
+
+/**
+ * Everything the course review page shows, read in one database transaction so
+ * the course's aggregates, its first page of reviews and the user's own review
+ * all describe the same moment.
+ */
+public class CoursePageSnapshot {
+    private final Course course;
+    private final Page<Review> reviews;
+    private final Review userReview;
+
+    public CoursePageSnapshot(Course course, Page<Review> reviews, Review userReview) {
+        this.course = course;
+        this.reviews = reviews;
+        this.userReview = userReview;
+    }
+
+    // Getters
+    public Course getCourse() { return course; }
+    public Page<Review> getReviews() { return reviews; }
+    public Review getUserReview() { return userReview; }
+}
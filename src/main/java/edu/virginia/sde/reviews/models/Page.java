@@ -0,0 +1,34 @@
+package edu.virginia.sde.reviews.models;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated query. The next page is requested by passing
+ * {@link #getLast()} back as the "after" cursor, so pages stay stable while rows
+ * are added or removed elsewhere in the list.
+ */
+public class Page<T> {
+    private final List<T> items;
+    private final boolean hasMore;
+
+    public Page(List<T> items, boolean hasMore) {
+        this.items = Collections.unmodifiableList(items);
+        this.hasMore = hasMore;
+    }
+
+    public static <T> Page<T> empty() {
+        return new Page<>(List.of(), false);
+    }
+
+    public List<T> getItems() { return items; }
+    public boolean hasMore() { return hasMore; }
+    public boolean isEmpty() { return items.isEmpty(); }
+
+    /**
+     * The last item on the page, to be used as the cursor for the next one.
+     */
+    public T getLast() {
+        return items.isEmpty() ? null : items.get(items.size() - 1);
+    }
+}
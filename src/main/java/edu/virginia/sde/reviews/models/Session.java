@@ -0,0 +1,52 @@
+package edu.virginia.sde.reviews.models;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The logged-in user, resolved once at login and handed from scene to scene, so
+ * controllers never look the user id up by username again.
+ *
+ * Also caches which courses the user has reviewed. Controllers keep it current
+ * through {@link #reviewAdded(int)} and {@link #reviewDeleted(int)} after their
+ * own writes; it is only read and updated on the JavaFX Application Thread.
+ */
+public class Session {
+    private final int userId;
+    private final String username;
+    private final Set<Integer> reviewedCourseIds;
+
+    public Session(int userId, String username, Collection<Integer> reviewedCourseIds) {
+        this.userId = userId;
+        this.username = username;
+        this.reviewedCourseIds = new HashSet<>(reviewedCourseIds);
+    }
+
+    // Getters
+    public int getUserId() { return userId; }
+    public String getUsername() { return username; }
+    public int getReviewCount() { return reviewedCourseIds.size(); }
+
+    public Set<Integer> getReviewedCourseIds() {
+        return Collections.unmodifiableSet(reviewedCourseIds);
+    }
+
+    public boolean hasReviewed(int courseId) {
+        return reviewedCourseIds.contains(courseId);
+    }
+
+    public void reviewAdded(int courseId) {
+        reviewedCourseIds.add(courseId);
+    }
+
+    public void reviewDeleted(int courseId) {
+        reviewedCourseIds.remove(courseId);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Session[user=%s, id=%d, reviews=%d]", username, userId, getReviewCount());
+    }
+}
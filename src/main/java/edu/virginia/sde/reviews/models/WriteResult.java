@@ -0,0 +1,57 @@
+package edu.virginia.sde.reviews.models;
+
+/**
+ * The outcome of a write: the written row on success, otherwise why the write
+ * was refused. Input that can be judged on its own (a non-positive id, a rating
+ * outside 1-5, a course Course would reject) is refused as INVALID before the
+ * write; anything that depends on other rows, such as duplicates and missing
+ * users or courses, comes from the database's own constraints.
+ */
+public class WriteResult<T> {
+    public enum Status {
+        OK,
+        // The input is malformed, e.g. a rating outside 1-5 or a non-positive id
+        INVALID,
+        // The row would repeat a unique key, e.g. a second review of the same course
+        DUPLICATE,
+        // The user or course referred to does not exist
+        MISSING_REFERENCE,
+        // There was no row to update or delete
+        NOT_FOUND,
+        // Any other database error
+        ERROR
+    }
+
+    private final Status status;
+    private final T value;
+
+    private WriteResult(Status status, T value) {
+        this.status = status;
+        this.value = value;
+    }
+
+    public static <T> WriteResult<T> ok(T value) {
+        return new WriteResult<>(Status.OK, value);
+    }
+
+    public static <T> WriteResult<T> failed(Status status) {
+        if (status == Status.OK) {
+            throw new IllegalArgumentException("A failed write needs a failure status");
+        }
+        return new WriteResult<>(status, null);
+    }
+
+    // Getters
+    public Status getStatus() { return status; }
+    public boolean isOk() { return status == Status.OK; }
+
+    /**
+     * The written row, or null if the write failed.
+     */
+    public T getValue() { return value; }
+
+    @Override
+    public String toString() {
+        return isOk() ? "WriteResult[OK, " + value + "]" : "WriteResult[" + status + "]";
+    }
+}
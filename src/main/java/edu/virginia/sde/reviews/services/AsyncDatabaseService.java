@@ -0,0 +1,239 @@
+package edu.virginia.sde.reviews.services;
+
+import edu.virginia.sde.reviews.models.Course;
+import edu.virginia.sde.reviews.models.CoursePageSnapshot;
+import edu.virginia.sde.reviews.models.Page;
+import edu.virginia.sde.reviews.models.Review;
+import edu.virginia.sde.reviews.models.ReviewDisplay;
+import edu.virginia.sde.reviews.models.Session;
+import edu.virginia.sde.reviews.models.WriteResult;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Runs DatabaseService calls off the JavaFX Application Thread. Every method
+ * returns a CompletableFuture completed on a database executor thread; callers
+ * on the FX thread hand results back with Platform.runLater (see
+ * {@code utils.LatestRequest}).
+ *
+ * The executor is shared per database and chosen by the async.* settings of
+ * {@link DatabaseConfig}: virtual threads where the JVM supports them, otherwise
+ * a fixed pool of async.threads daemon threads with a queue of async.queueSize
+ * tasks. Either way the connection pool still caps how many queries run at once.
+ *
+ * Cancelling a returned future before its task has started skips the task,
+ * though the task keeps its queue slot until a worker reaches it. A task the
+ * executor rejects comes back as an already-failed future, never as an
+ * exception thrown to the caller.
+ */
+public class AsyncDatabaseService {
+    private static final Map<String, ExecutorService> EXECUTORS = new ConcurrentHashMap<>();
+    private static final Map<String, AsyncDatabaseService> SERVICES = new ConcurrentHashMap<>();
+
+    private final DatabaseService database;
+    private final ExecutorService executor;
+
+    public AsyncDatabaseService() {
+        this(new DatabaseService());
+    }
+
+    public AsyncDatabaseService(DatabaseService database) {
+        this(database, executorFor(database.getConfig()));
+    }
+
+    public AsyncDatabaseService(DatabaseService database, ExecutorService executor) {
+        this.database = database;
+        this.executor = executor;
+    }
+
+    /**
+     * The shared service for the configured database, created on first use, so
+     * controllers do not each build a DatabaseService and rerun its migrations.
+     */
+    public static AsyncDatabaseService forConfig(DatabaseConfig config) {
+        return SERVICES.computeIfAbsent(config.getJdbcUrl(),
+            url -> new AsyncDatabaseService(new DatabaseService(config)));
+    }
+
+    /**
+     * The shared executor for the configured database, created on first use.
+     */
+    public static ExecutorService executorFor(DatabaseConfig config) {
+        return EXECUTORS.computeIfAbsent(config.getJdbcUrl(), url -> newExecutor(config));
+    }
+
+    /**
+     * Stops the shared executors; tasks already running finish, queued ones are dropped.
+     */
+    public static void shutdownAll() {
+        for (ExecutorService executor : EXECUTORS.values()) {
+            executor.shutdownNow();
+        }
+        EXECUTORS.clear();
+        SERVICES.clear();
+    }
+
+    private static ExecutorService newExecutor(DatabaseConfig config) {
+        if (!config.getAsyncExecutor().equals("BOUNDED")) {
+            ExecutorService virtual = newVirtualThreadExecutor();
+            if (virtual != null) {
+                return virtual;
+            }
+            if (config.getAsyncExecutor().equals("VIRTUAL")) {
+                System.err.println("Virtual threads are not available on this JVM; using a bounded executor");
+            }
+        }
+
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(
+            config.getAsyncThreads(), config.getAsyncThreads(), 30, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(config.getAsyncQueueSize()),
+            task -> {
+                Thread thread = new Thread(task, "database-async-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        // Idle threads are released between bursts of activity
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor exists from Java 21; looked up
+    // reflectively so the project still builds and runs on Java 17
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    public DatabaseService getDatabase() {
+        return database;
+    }
+
+    /**
+     * Runs any sequence of DatabaseService calls as one background task. When
+     * the executor refuses the task (its queue is full, or it has been shut
+     * down) the returned future has already failed with the rejection.
+     */
+    public <T> CompletableFuture<T> call(Function<DatabaseService, T> work) {
+        try {
+            return CompletableFuture.supplyAsync(() -> work.apply(database), executor);
+        } catch (RejectedExecutionException e) {
+            // Reported through the future, like any other database failure
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    public CompletableFuture<Boolean> validateUser(String username, String password) {
+        return call(db -> db.validateUser(username, password));
+    }
+
+    public CompletableFuture<Session> openSession(String username, String password) {
+        return call(db -> db.openSession(username, password));
+    }
+
+    public CompletableFuture<Boolean> createUser(String username, String password) {
+        return call(db -> db.createUser(username, password));
+    }
+
+    public CompletableFuture<Integer> getUserId(String username) {
+        return call(db -> db.getUserId(username));
+    }
+
+    public CompletableFuture<Course> addCourse(String subject, int number, String title) {
+        return call(db -> db.addCourse(subject, number, title));
+    }
+
+    public CompletableFuture<WriteResult<Course>> createCourse(String subject, int number, String title) {
+        return call(db -> db.createCourse(subject, number, title));
+    }
+
+    public CompletableFuture<Course> getCourse(int courseId) {
+        return call(db -> db.getCourse(courseId));
+    }
+
+    public CompletableFuture<Page<Course>> searchCourses(String subject, Integer number, String title,
+                                                        Course after, int pageSize) {
+        return call(db -> db.searchCourses(subject, number, title, after, pageSize));
+    }
+
+    public CompletableFuture<Page<Course>> suggestCourses(String subjectPrefix, String numberPrefix, String title,
+                                                         Course after, int pageSize) {
+        return call(db -> db.suggestCourses(subjectPrefix, numberPrefix, title, after, pageSize));
+    }
+
+    public CompletableFuture<List<Course>> searchCoursesFuzzy(String query, Integer number, int limit) {
+        return call(db -> db.searchCoursesFuzzy(query, number, limit));
+    }
+
+    public CompletableFuture<List<Course>> searchCoursesFullText(String query, int limit) {
+        return call(db -> db.searchCoursesFullText(query, limit));
+    }
+
+    public CompletableFuture<Page<Review>> getReviewsForCourse(int courseId, Review after, int pageSize) {
+        return call(db -> db.getReviewsForCourse(courseId, after, pageSize));
+    }
+
+    public CompletableFuture<Page<Review>> getUserReviews(int userId, Review after, int pageSize) {
+        return call(db -> db.getUserReviews(userId, after, pageSize));
+    }
+
+    public CompletableFuture<Page<ReviewDisplay>> getUserReviewDisplays(int userId, Review after, int pageSize) {
+        return call(db -> db.getUserReviewDisplays(userId, after, pageSize));
+    }
+
+    public CompletableFuture<List<Review>> searchUserReviews(int userId, String query) {
+        return call(db -> db.searchUserReviews(userId, query));
+    }
+
+    public CompletableFuture<CoursePageSnapshot> getCoursePageSnapshot(int courseId, int userId, int pageSize) {
+        return call(db -> db.getCoursePageSnapshot(courseId, userId, pageSize));
+    }
+
+    public CompletableFuture<Review> getUserReviewForCourse(int userId, int courseId) {
+        return call(db -> db.getUserReviewForCourse(userId, courseId));
+    }
+
+    public CompletableFuture<Review> addReview(int userId, int courseId, int rating, String comment) {
+        return call(db -> db.addReview(userId, courseId, rating, comment));
+    }
+
+    public CompletableFuture<WriteResult<Review>> createReview(int userId, int courseId, int rating, String comment) {
+        return call(db -> db.createReview(userId, courseId, rating, comment));
+    }
+
+    public CompletableFuture<WriteResult<Review>> saveReview(int userId, int courseId, int rating, String comment) {
+        return call(db -> db.saveReview(userId, courseId, rating, comment));
+    }
+
+    public CompletableFuture<WriteResult<Review>> changeReview(int reviewId, int rating, String comment) {
+        return call(db -> db.changeReview(reviewId, rating, comment));
+    }
+
+    public CompletableFuture<WriteResult<Review>> removeReview(int reviewId) {
+        return call(db -> db.removeReview(reviewId));
+    }
+
+    public CompletableFuture<Boolean> updateReview(int reviewId, int rating, String comment) {
+        return call(db -> db.updateReview(reviewId, rating, comment));
+    }
+
+    public CompletableFuture<Boolean> deleteReview(int reviewId) {
+        return call(db -> db.deleteReview(reviewId));
+    }
+}
@@ -0,0 +1,651 @@
+package edu.virginia.sde.reviews.services;
+
+import edu.virginia.sde.reviews.models.Course;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Loads users, courses and reviews in bulk. Input is read and parsed on a
+ * separate thread and handed to the writer through a bounded queue; the writer
+ * batches inserts with addBatch/executeBatch and commits every
+ * {@link #getBatchSize()} records in one transaction.
+ *
+ * Usernames and subject/number pairs are resolved to ids through in-memory maps
+ * loaded once at the start, and new users and courses are given their ids by the
+ * importer, so reviews can refer to rows inserted earlier in the same batch
+ * without reading them back.
+ *
+ * Plain-text passwords are hashed by a pool of worker threads as records are
+ * read, ahead of the writer. When the next record is not ready yet (the reader
+ * or the hashers are behind), the writer commits what it has staged instead of
+ * waiting with the database write lock held.
+ *
+ * Importing a file writes {@code <file>.checkpoint} after every commit with the
+ * last committed line. If the import fails, running it again continues after
+ * that line. Records are idempotent anyway (existing users and courses are
+ * skipped, duplicate reviews are ignored), so re-reading a few lines is harmless.
+ */
+public class BulkImporter {
+    public static final int DEFAULT_BATCH_SIZE = 10_000;
+    private static final int QUEUE_CAPACITY = 4_096;
+    private static final int MAX_REPORTED_PROBLEMS = 20;
+    private static final long PROGRESS_INTERVAL_NANOS = 2_000_000_000L;
+    // How long the writer waits for the next record before committing the open batch
+    private static final long IDLE_COMMIT_MILLIS = 100;
+
+    private static final String INSERT_USER_SQL =
+        "INSERT INTO users (id, username, password) VALUES (?, ?, ?)";
+    private static final String INSERT_COURSE_SQL =
+        "INSERT INTO courses (id, subject, number, title) VALUES (?, ?, ?, ?)";
+    private static final String INSERT_REVIEW_SQL =
+        "INSERT OR IGNORE INTO reviews (user_id, course_id, rating, comment, timestamp) VALUES (?, ?, ?, ?, ?)";
+    // AUTOINCREMENT never reuses ids, so start past both the sequence and the current maximum
+    private static final String NEXT_USER_ID_SQL =
+        "SELECT MAX(COALESCE((SELECT seq FROM sqlite_sequence WHERE name = 'users'), 0), " +
+        "COALESCE((SELECT MAX(id) FROM users), 0)) + 1";
+    private static final String NEXT_COURSE_ID_SQL =
+        "SELECT MAX(COALESCE((SELECT seq FROM sqlite_sequence WHERE name = 'courses'), 0), " +
+        "COALESCE((SELECT MAX(id) FROM courses), 0)) + 1";
+
+    // Marks the end of the input on the queue
+    private static final Item END = new Item(-1, null, null);
+
+    private final ConnectionPool pool;
+    private final CourseCatalog catalog;
+    private final PasswordHasher passwordHasher;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private boolean resume = true;
+    private boolean verbose = true;
+
+    public BulkImporter(DatabaseService database) {
+        this.pool = database.getConnectionPool();
+        this.catalog = database.getCourseCatalog();
+        this.passwordHasher = database.getPasswordHasher();
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Whether {@link #importFile(Path)} continues from an existing checkpoint
+     * (the default) or starts over from the first line.
+     */
+    public void setResume(boolean resume) {
+        this.resume = resume;
+    }
+
+    /**
+     * Whether progress and rejected records are printed while importing.
+     */
+    public void setVerbose(boolean verbose) {
+        this.verbose = verbose;
+    }
+
+    public static Path checkpointFile(Path file) {
+        return file.resolveSibling(file.getFileName() + ".checkpoint");
+    }
+
+    /**
+     * Imports a CSV file, or JSONL if the name ends in .jsonl, .ndjson or .json.
+     * See {@link ImportRecordParser} for the line formats.
+     */
+    public Report importFile(Path file) throws IOException, SQLException {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        boolean json = name.endsWith(".jsonl") || name.endsWith(".ndjson") || name.endsWith(".json");
+
+        Path checkpoint = checkpointFile(file);
+        long startLine = 0;
+        if (Files.exists(checkpoint)) {
+            if (resume) {
+                startLine = Long.parseLong(Files.readString(checkpoint).strip());
+                log("Resuming " + file + " after line " + startLine);
+            } else {
+                Files.delete(checkpoint);
+            }
+        }
+
+        BlockingQueue<Item> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        AtomicReference<IOException> readFailure = new AtomicReference<>();
+        ExecutorService hashers = newHashers();
+        long firstLine = startLine;
+        Thread parser = new Thread(() -> parse(file, json, firstLine, queue, hashers, readFailure),
+            "bulk-import-parser");
+        parser.setDaemon(true);
+        parser.start();
+
+        try {
+            Report report = write(queue, checkpoint, startLine);
+            if (readFailure.get() != null) {
+                throw readFailure.get();
+            }
+            Files.deleteIfExists(checkpoint);
+            return report;
+        } finally {
+            // Unblocks the parser if the writer stopped early
+            parser.interrupt();
+            hashers.shutdownNow();
+        }
+    }
+
+    /**
+     * Imports records that are already in memory, in order, without a checkpoint.
+     */
+    public Report importRecords(Iterable<ImportRecord> records) throws SQLException {
+        BlockingQueue<Item> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        AtomicReference<RuntimeException> readFailure = new AtomicReference<>();
+        ExecutorService hashers = newHashers();
+        Thread reader = new Thread(() -> enqueue(records.iterator(), queue, hashers, readFailure),
+            "bulk-import-reader");
+        reader.setDaemon(true);
+        reader.start();
+
+        try {
+            Report report = write(queue, null, 0);
+            if (readFailure.get() != null) {
+                throw readFailure.get();
+            }
+            return report;
+        } catch (IOException e) {
+            // Only checkpoint writes throw IOException
+            throw new IllegalStateException(e);
+        } finally {
+            reader.interrupt();
+            hashers.shutdownNow();
+        }
+    }
+
+    // One hashing thread per spare core; PBKDF2 is CPU-bound
+    private static ExecutorService newHashers() {
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "bulk-import-hasher-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // A queued record, with its plain-text password (if any) already being hashed
+    private Item item(long line, ImportRecord record, ExecutorService hashers) {
+        if (record.getType() != ImportRecord.Type.USER || PasswordHasher.isHashed(record.getPassword())) {
+            return new Item(line, record, null);
+        }
+        String password = record.getPassword();
+        CompletableFuture<String> hash;
+        try {
+            hash = CompletableFuture.supplyAsync(() -> passwordHasher.hash(password), hashers);
+        } catch (RejectedExecutionException e) {
+            // The import has already ended
+            hash = CompletableFuture.failedFuture(e);
+        }
+        return new Item(line, record, hash);
+    }
+
+    private void enqueue(Iterator<ImportRecord> records, BlockingQueue<Item> queue, ExecutorService hashers,
+                         AtomicReference<RuntimeException> failure) {
+        try {
+            try {
+                long index = 0;
+                while (records.hasNext()) {
+                    queue.put(item(++index, records.next(), hashers));
+                }
+            } catch (RuntimeException e) {
+                failure.set(e);
+            }
+            queue.put(END);
+        } catch (InterruptedException e) {
+            // The writer has given up; nobody is waiting for more input
+        }
+    }
+
+    private void parse(Path file, boolean json, long startLine, BlockingQueue<Item> queue,
+                       ExecutorService hashers, AtomicReference<IOException> failure) {
+        try {
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String line;
+                long lineNumber = 0;
+                while ((line = reader.readLine()) != null) {
+                    lineNumber++;
+                    if (lineNumber <= startLine) {
+                        continue;
+                    }
+                    Item item;
+                    try {
+                        ImportRecord record = ImportRecordParser.parse(line, json);
+                        item = record == null ? null : item(lineNumber, record, hashers);
+                    } catch (IllegalArgumentException e) {
+                        item = new Item(lineNumber, e.getMessage());
+                    }
+                    if (item != null) {
+                        queue.put(item);
+                    }
+                }
+            } catch (IOException e) {
+                failure.set(e);
+            }
+            queue.put(END);
+        } catch (InterruptedException e) {
+            // The writer has given up; nobody is waiting for more input
+        }
+    }
+
+    private Report write(BlockingQueue<Item> queue, Path checkpoint, long startLine)
+            throws SQLException, IOException {
+        try {
+            return writeBatches(queue, checkpoint, startLine);
+        } finally {
+            // Committed batches may have added courses and changed ratings anywhere
+            catalog.invalidate();
+        }
+    }
+
+    private Report writeBatches(BlockingQueue<Item> queue, Path checkpoint, long startLine)
+            throws SQLException, IOException {
+        Report report = new Report(startLine);
+        long start = System.nanoTime();
+        long lastProgress = start;
+
+        try (Connection conn = pool.getConnection();
+             Statement control = conn.createStatement();
+             PreparedStatement insertUser = conn.prepareStatement(INSERT_USER_SQL);
+             PreparedStatement insertCourse = conn.prepareStatement(INSERT_COURSE_SQL);
+             PreparedStatement insertReview = conn.prepareStatement(INSERT_REVIEW_SQL)) {
+            Batch batch = new Batch(insertUser, insertCourse, insertReview, report);
+
+            boolean inTransaction = false;
+            try {
+                long lastLine = startLine;
+                while (true) {
+                    Item item = queue.poll(IDLE_COMMIT_MILLIS, TimeUnit.MILLISECONDS);
+                    if (item == null || !item.awaitPasswordHash(IDLE_COMMIT_MILLIS)) {
+                        // The reader or the hashers are behind; commit rather than
+                        // hold the write lock while waiting for them
+                        if (inTransaction) {
+                            commit(batch, control, checkpoint, lastLine);
+                            inTransaction = false;
+                        }
+                        if (item == null) {
+                            item = queue.take();
+                        }
+                        item.awaitPasswordHash(Long.MAX_VALUE);
+                    }
+                    if (item == END) {
+                        break;
+                    }
+                    if (!inTransaction) {
+                        // IMMEDIATE takes the write lock up front, so the keys read next stay current
+                        control.execute("BEGIN IMMEDIATE");
+                        inTransaction = true;
+                        batch.begin(conn);
+                    }
+
+                    report.recordsRead++;
+                    if (item.problem != null) {
+                        reject(report, item.line, item.problem);
+                    } else {
+                        String problem;
+                        try {
+                            problem = batch.stage(item.record, item.password());
+                        } catch (CompletionException e) {
+                            problem = "Could not hash the password: " + e.getCause();
+                        }
+                        if (problem != null) {
+                            reject(report, item.line, problem);
+                        }
+                    }
+                    lastLine = item.line;
+
+                    if (batch.size >= batchSize) {
+                        commit(batch, control, checkpoint, lastLine);
+                        inTransaction = false;
+
+                        long now = System.nanoTime();
+                        if (now - lastProgress >= PROGRESS_INTERVAL_NANOS) {
+                            lastProgress = now;
+                            log(String.format("Imported %,d records (%,.0f rows/sec)",
+                                report.recordsRead, report.recordsRead / ((now - start) / 1e9)));
+                        }
+                    }
+                }
+                if (inTransaction) {
+                    commit(batch, control, checkpoint, lastLine);
+                    inTransaction = false;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Import interrupted", e);
+            } finally {
+                if (inTransaction) {
+                    try {
+                        control.execute("ROLLBACK");
+                    } catch (SQLException e) {
+                        e.printStackTrace();
+                    }
+                }
+            }
+        }
+
+        report.elapsedNanos = System.nanoTime() - start;
+        log(report.toString());
+        return report;
+    }
+
+    private static void commit(Batch batch, Statement control, Path checkpoint, long lastLine)
+            throws SQLException, IOException {
+        batch.flush();
+        control.execute("COMMIT");
+        saveCheckpoint(checkpoint, lastLine);
+    }
+
+    private void reject(Report report, long line, String problem) {
+        report.rejected++;
+        if (report.rejected <= MAX_REPORTED_PROBLEMS) {
+            log("Line " + line + ": " + problem);
+        } else if (report.rejected == MAX_REPORTED_PROBLEMS + 1) {
+            log("Further rejected records are only counted");
+        }
+    }
+
+    private static void saveCheckpoint(Path checkpoint, long line) throws IOException {
+        if (checkpoint == null) {
+            return;
+        }
+        Path temp = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+        Files.writeString(temp, Long.toString(line));
+        Files.move(temp, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void log(String message) {
+        if (verbose) {
+            System.out.println(message);
+        }
+    }
+
+    private static final class Item {
+        final long line;
+        final ImportRecord record;
+        final String problem;
+        // Set for users with a plain-text password
+        final CompletableFuture<String> passwordHash;
+
+        Item(long line, ImportRecord record, CompletableFuture<String> passwordHash) {
+            this.line = line;
+            this.record = record;
+            this.problem = null;
+            this.passwordHash = passwordHash;
+        }
+
+        Item(long line, String problem) {
+            this.line = line;
+            this.record = null;
+            this.problem = problem;
+            this.passwordHash = null;
+        }
+
+        /**
+         * Waits up to the given time for the password hash. Returns false if it
+         * is still being computed; a failed hash counts as ready.
+         */
+        boolean awaitPasswordHash(long millis) throws InterruptedException {
+            if (passwordHash == null) {
+                return true;
+            }
+            try {
+                passwordHash.get(millis, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                return false;
+            } catch (ExecutionException e) {
+                // Reported when the record is staged
+            }
+            return true;
+        }
+
+        /**
+         * The password to store: the computed hash, or the record's own value.
+         */
+        String password() {
+            return passwordHash == null ? record.getPassword() : passwordHash.join();
+        }
+    }
+
+    /**
+     * The inserts of the current transaction plus the id maps they are resolved against.
+     */
+    private static final class Batch {
+        private final PreparedStatement insertUser;
+        private final PreparedStatement insertCourse;
+        private final PreparedStatement insertReview;
+        private final Report report;
+
+        private final Map<String, Integer> userIds = new HashMap<>();
+        // "SUBJECT number" to the first course with that subject and number
+        private final Map<String, Integer> courseIds = new HashMap<>();
+        private final Set<String> courseTitles = new HashSet<>();
+        private int nextUserId;
+        private int nextCourseId;
+        private boolean loaded;
+
+        private int users;
+        private int courses;
+        private int reviews;
+        int size;
+
+        Batch(PreparedStatement insertUser, PreparedStatement insertCourse, PreparedStatement insertReview,
+              Report report) {
+            this.insertUser = insertUser;
+            this.insertCourse = insertCourse;
+            this.insertReview = insertReview;
+            this.report = report;
+        }
+
+        void begin(Connection conn) throws SQLException {
+            if (!loaded) {
+                loadKeys(conn);
+                loaded = true;
+            }
+            readNextIds(conn);
+        }
+
+        private void loadKeys(Connection conn) throws SQLException {
+            try (Statement stmt = conn.createStatement()) {
+                try (ResultSet rs = stmt.executeQuery("SELECT id, username FROM users")) {
+                    while (rs.next()) {
+                        userIds.put(rs.getString("username"), rs.getInt("id"));
+                    }
+                }
+                try (ResultSet rs = stmt.executeQuery("SELECT id, subject, number, title FROM courses ORDER BY id")) {
+                    while (rs.next()) {
+                        String subject = rs.getString("subject");
+                        int number = rs.getInt("number");
+                        courseIds.putIfAbsent(courseKey(subject, number), rs.getInt("id"));
+                        courseTitles.add(courseKey(subject, number) + " " + rs.getString("title"));
+                    }
+                }
+            }
+        }
+
+        private void readNextIds(Connection conn) throws SQLException {
+            try (Statement stmt = conn.createStatement()) {
+                try (ResultSet rs = stmt.executeQuery(NEXT_USER_ID_SQL)) {
+                    rs.next();
+                    nextUserId = rs.getInt(1);
+                }
+                try (ResultSet rs = stmt.executeQuery(NEXT_COURSE_ID_SQL)) {
+                    rs.next();
+                    nextCourseId = rs.getInt(1);
+                }
+            }
+        }
+
+        /**
+         * Adds the record to the batch, a user with the password to store.
+         * Returns why it was rejected, or null.
+         */
+        String stage(ImportRecord record, String password) throws SQLException {
+            switch (record.getType()) {
+                case USER -> {
+                    if (userIds.containsKey(record.getUsername())) {
+                        report.duplicates++;
+                        return null;
+                    }
+                    int id = nextUserId++;
+                    userIds.put(record.getUsername(), id);
+                    insertUser.setInt(1, id);
+                    insertUser.setString(2, record.getUsername());
+                    // Plain passwords were hashed before the record was queued
+                    insertUser.setString(3, password);
+                    insertUser.addBatch();
+                    users++;
+                }
+                case COURSE -> {
+                    // Records are checked when built, but a bad row here would break every later search
+                    if (!Course.isValidSubject(record.getSubject()) || !Course.isValidNumber(record.getNumber())
+                            || !Course.isValidTitle(record.getTitle())) {
+                        return "Invalid course " + record.getSubject() + " " + record.getNumber();
+                    }
+                    String key = courseKey(record.getSubject(), record.getNumber());
+                    if (!courseTitles.add(key + " " + record.getTitle())) {
+                        report.duplicates++;
+                        return null;
+                    }
+                    int id = nextCourseId++;
+                    courseIds.putIfAbsent(key, id);
+                    insertCourse.setInt(1, id);
+                    insertCourse.setString(2, record.getSubject());
+                    insertCourse.setInt(3, record.getNumber());
+                    insertCourse.setString(4, record.getTitle());
+                    insertCourse.addBatch();
+                    courses++;
+                }
+                case REVIEW -> {
+                    Integer userId = userIds.get(record.getUsername());
+                    if (userId == null) {
+                        return "Unknown user " + record.getUsername();
+                    }
+                    Integer courseId = courseIds.get(courseKey(record.getSubject(), record.getNumber()));
+                    if (courseId == null) {
+                        return "Unknown course " + record.getSubject() + " " + record.getNumber();
+                    }
+                    insertReview.setInt(1, userId);
+                    insertReview.setInt(2, courseId);
+                    insertReview.setInt(3, record.getRating());
+                    insertReview.setString(4, record.getComment());
+                    insertReview.setTimestamp(5, record.getTimestamp());
+                    insertReview.addBatch();
+                    reviews++;
+                }
+            }
+            size++;
+            return null;
+        }
+
+        /**
+         * Executes the pending inserts, parents first so reviews find their user and course.
+         */
+        void flush() throws SQLException {
+            if (users > 0) {
+                insertUser.executeBatch();
+                report.usersInserted += users;
+            }
+            if (courses > 0) {
+                insertCourse.executeBatch();
+                report.coursesInserted += courses;
+            }
+            if (reviews > 0) {
+                int inserted = 0;
+                for (int count : insertReview.executeBatch()) {
+                    if (count != 0) {
+                        inserted++;
+                    }
+                }
+                report.reviewsInserted += inserted;
+                // One review per user and course; repeats are ignored by the insert
+                report.duplicates += reviews - inserted;
+            }
+            users = 0;
+            courses = 0;
+            reviews = 0;
+            size = 0;
+        }
+
+        private static String courseKey(String subject, int number) {
+            return subject + " " + number;
+        }
+    }
+
+    /**
+     * Counts from one import run.
+     */
+    public static class Report {
+        private final long resumedAfterLine;
+        private long recordsRead;
+        private long usersInserted;
+        private long coursesInserted;
+        private long reviewsInserted;
+        private long duplicates;
+        private long rejected;
+        private long elapsedNanos;
+
+        Report(long resumedAfterLine) {
+            this.resumedAfterLine = resumedAfterLine;
+        }
+
+        // Getters
+        public long getResumedAfterLine() { return resumedAfterLine; }
+        public long getRecordsRead() { return recordsRead; }
+        public long getUsersInserted() { return usersInserted; }
+        public long getCoursesInserted() { return coursesInserted; }
+        public long getReviewsInserted() { return reviewsInserted; }
+        public long getDuplicates() { return duplicates; }
+        public long getRejected() { return rejected; }
+        public long getElapsedMillis() { return elapsedNanos / 1_000_000; }
+
+        public double getRowsPerSecond() {
+            return elapsedNanos == 0 ? 0 : recordsRead / (elapsedNanos / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Imported %,d users, %,d courses and %,d reviews from %,d records in %.1f s " +
+                    "(%,.0f rows/sec); %,d duplicates skipped, %,d rejected",
+                usersInserted, coursesInserted, reviewsInserted, recordsRead, elapsedNanos / 1e9,
+                getRowsPerSecond(), duplicates, rejected);
+        }
+    }
+}
@@ -0,0 +1,653 @@
+package edu.virginia.sde.reviews.services;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded pool of long-lived SQLite connections shared by every DatabaseService
+ * pointing at the same database URL.
+ *
+ * Connections handed out by {@link #getConnection()} are proxies: calling close()
+ * returns the underlying connection to the pool instead of closing it, so callers
+ * keep using the usual try-with-resources pattern.
+ */
+public class ConnectionPool {
+    public static final int DEFAULT_MIN_IDLE = 2;
+    public static final int DEFAULT_MAX_SIZE = 8;
+    public static final long DEFAULT_CHECKOUT_TIMEOUT_MILLIS = 5_000;
+    public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 60_000;
+    public static final long DEFAULT_VALIDATION_INTERVAL_MILLIS = 30_000;
+    public static final int DEFAULT_STATEMENT_CACHE_SIZE = 64;
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+    private static final Map<String, ConnectionPool> POOLS = new ConcurrentHashMap<>();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(ConnectionPool::shutdownAll, "connection-pool-shutdown"));
+    }
+
+    private final String url;
+    private final int minIdle;
+    private final int maxSize;
+    private final long checkoutTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final long validationIntervalMillis;
+    private final int statementCacheSize;
+    private final List<String> connectionInitSql;
+
+    private final LinkedBlockingDeque<PooledEntry> idle = new LinkedBlockingDeque<>();
+    private final Semaphore permits;
+    private final ScheduledExecutorService evictor;
+    private volatile boolean shutdown = false;
+    // Bumped to invalidate every connection's statement cache
+    private volatile int statementGeneration = 0;
+    // Checkout and connection-open latencies; set by DatabaseService
+    private volatile DataLayerMetrics metrics = DataLayerMetrics.DISABLED;
+    // Null when slow statements are not logged
+    private volatile SlowQueryLog slowQueryLog;
+
+    // Metrics
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final AtomicInteger inUse = new AtomicInteger();
+    private final AtomicInteger peakInUse = new AtomicInteger();
+    private final AtomicLong checkouts = new AtomicLong();
+    private final AtomicLong waits = new AtomicLong();
+    private final AtomicLong exhausted = new AtomicLong();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+    private final AtomicLong failedValidations = new AtomicLong();
+    private final AtomicLong statementsExecuted = new AtomicLong();
+    private final AtomicLong statementCacheHits = new AtomicLong();
+    private final AtomicLong statementCacheMisses = new AtomicLong();
+    private final AtomicLong statementCacheEvictions = new AtomicLong();
+
+    /**
+     * Returns the shared pool for the configured database, creating it the first
+     * time it is requested. Every new connection gets the configured pragmas.
+     */
+    public static ConnectionPool forConfig(DatabaseConfig config) {
+        return POOLS.computeIfAbsent(config.getJdbcUrl(), url -> {
+            ConnectionPool pool = new ConnectionPool(url,
+                    config.getPoolMinIdle(), config.getPoolMaxSize(), DEFAULT_CHECKOUT_TIMEOUT_MILLIS,
+                    DEFAULT_IDLE_TIMEOUT_MILLIS, DEFAULT_VALIDATION_INTERVAL_MILLIS,
+                    config.getStatementCacheSize(), config.getConnectionPragmas());
+            if (config.getSlowQueryMillis() >= 0) {
+                pool.setSlowQueryLog(new SlowQueryLog(config.getSlowQueryMillis()));
+            }
+            return pool;
+        });
+    }
+
+    /**
+     * Closes every shared pool. Registered as a JVM shutdown hook and also called
+     * when the JavaFX application stops.
+     */
+    public static void shutdownAll() {
+        for (ConnectionPool pool : POOLS.values()) {
+            pool.shutdown();
+        }
+        POOLS.clear();
+    }
+
+    public ConnectionPool(String url, int minIdle, int maxSize, long checkoutTimeoutMillis,
+                          long idleTimeoutMillis, long validationIntervalMillis) {
+        this(url, minIdle, maxSize, checkoutTimeoutMillis, idleTimeoutMillis, validationIntervalMillis,
+                DEFAULT_STATEMENT_CACHE_SIZE);
+    }
+
+    public ConnectionPool(String url, int minIdle, int maxSize, long checkoutTimeoutMillis,
+                          long idleTimeoutMillis, long validationIntervalMillis, int statementCacheSize) {
+        this(url, minIdle, maxSize, checkoutTimeoutMillis, idleTimeoutMillis, validationIntervalMillis,
+                statementCacheSize, List.of());
+    }
+
+    public ConnectionPool(String url, int minIdle, int maxSize, long checkoutTimeoutMillis,
+                          long idleTimeoutMillis, long validationIntervalMillis, int statementCacheSize,
+                          List<String> connectionInitSql) {
+        if (maxSize < 1 || minIdle < 0 || minIdle > maxSize) {
+            throw new IllegalArgumentException("Pool sizes must satisfy 0 <= minIdle <= maxSize and maxSize >= 1");
+        }
+        if (statementCacheSize < 0) {
+            throw new IllegalArgumentException("Statement cache size cannot be negative");
+        }
+        this.url = url;
+        this.minIdle = minIdle;
+        this.maxSize = maxSize;
+        this.checkoutTimeoutMillis = checkoutTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.validationIntervalMillis = validationIntervalMillis;
+        this.statementCacheSize = statementCacheSize;
+        this.connectionInitSql = List.copyOf(connectionInitSql);
+        this.permits = new Semaphore(maxSize, true);
+
+        // Pre-open the minimum number of connections so the first queries are warm
+        for (int i = 0; i < minIdle; i++) {
+            try {
+                idle.offerLast(openEntry());
+            } catch (SQLException e) {
+                e.printStackTrace();
+                break;
+            }
+        }
+
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "connection-pool-evictor");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1_000, idleTimeoutMillis / 2);
+        evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Checks out a connection, waiting up to the checkout timeout when every
+     * connection is in use. Closing the returned connection gives it back.
+     */
+    public Connection getConnection() throws SQLException {
+        if (shutdown) {
+            throw new SQLException("Connection pool has been shut down");
+        }
+
+        long start = metrics.start();
+        if (!permits.tryAcquire()) {
+            waits.incrementAndGet();
+            try {
+                if (!permits.tryAcquire(checkoutTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                    exhausted.incrementAndGet();
+                    throw new SQLException("Timed out after " + checkoutTimeoutMillis
+                            + " ms waiting for a database connection (pool size " + maxSize + ")");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for a database connection", e);
+            }
+        }
+
+        PooledEntry entry;
+        try {
+            entry = takeHealthyEntry();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+
+        if (entry.statementGeneration != statementGeneration) {
+            entry.statements.clear();
+            entry.statementGeneration = statementGeneration;
+        }
+
+        checkouts.incrementAndGet();
+        int current = inUse.incrementAndGet();
+        peakInUse.accumulateAndGet(current, Math::max);
+        metrics.recordCheckout(start);
+        return entry.checkout();
+    }
+
+    private PooledEntry takeHealthyEntry() throws SQLException {
+        PooledEntry entry;
+        while ((entry = idle.pollFirst()) != null) {
+            if (isHealthy(entry)) {
+                return entry;
+            }
+            failedValidations.incrementAndGet();
+            discard(entry);
+        }
+        return openEntry();
+    }
+
+    private boolean isHealthy(PooledEntry entry) {
+        try {
+            if (entry.connection.isClosed()) {
+                return false;
+            }
+            if (System.currentTimeMillis() - entry.lastValidated < validationIntervalMillis) {
+                return true;
+            }
+            boolean valid = entry.connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+            entry.lastValidated = System.currentTimeMillis();
+            return valid;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private PooledEntry openEntry() throws SQLException {
+        long start = metrics.start();
+        Connection connection = DriverManager.getConnection(url);
+        try (Statement stmt = connection.createStatement()) {
+            for (String sql : connectionInitSql) {
+                stmt.execute(sql);
+            }
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+        totalConnections.incrementAndGet();
+        created.incrementAndGet();
+        metrics.recordConnectionOpen(start);
+        return new PooledEntry(connection);
+    }
+
+    private void release(PooledEntry entry) {
+        inUse.decrementAndGet();
+        try {
+            entry.statements.releaseAll();
+            if (shutdown || !reset(entry.connection)) {
+                discard(entry);
+                return;
+            }
+            entry.lastUsed = System.currentTimeMillis();
+            idle.offerFirst(entry);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private boolean reset(Connection connection) {
+        try {
+            if (connection.isClosed()) {
+                return false;
+            }
+            if (!connection.getAutoCommit()) {
+                // Never hand out a connection with a half-finished transaction
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+            return true;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    private void evictIdle() {
+        long now = System.currentTimeMillis();
+        for (PooledEntry entry : idle.toArray(new PooledEntry[0])) {
+            if (idle.size() <= minIdle) {
+                return;
+            }
+            if (now - entry.lastUsed >= idleTimeoutMillis && idle.remove(entry)) {
+                evicted.incrementAndGet();
+                discard(entry);
+            }
+        }
+    }
+
+    private void discard(PooledEntry entry) {
+        totalConnections.decrementAndGet();
+        try {
+            entry.connection.close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Logs statements slower than the log's threshold from now on; null stops
+     * logging. Statements already handed out keep their current setting.
+     */
+    public void setSlowQueryLog(SlowQueryLog slowQueryLog) {
+        this.slowQueryLog = slowQueryLog;
+    }
+
+    public SlowQueryLog getSlowQueryLog() {
+        return slowQueryLog;
+    }
+
+    /**
+     * Where checkout and connection-open times are recorded. Connections
+     * opened before this is set (the initial minIdle ones) are not counted.
+     */
+    void setMetrics(DataLayerMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Drops every cached prepared statement. Call after changing the schema so no
+     * connection keeps statements planned against the old one. Idle connections
+     * clear their caches the next time they are checked out.
+     */
+    public void invalidateStatementCaches() {
+        statementGeneration++;
+    }
+
+    /**
+     * Closes all idle connections and refuses further checkouts. Connections that
+     * are still checked out are closed when they are returned.
+     */
+    public void shutdown() {
+        if (shutdown) {
+            return;
+        }
+        shutdown = true;
+        evictor.shutdownNow();
+        PooledEntry entry;
+        while ((entry = idle.pollFirst()) != null) {
+            discard(entry);
+        }
+    }
+
+    public boolean isShutdown() { return shutdown; }
+
+    // Metrics
+    public int getMaxSize() { return maxSize; }
+    public int getTotalConnections() { return totalConnections.get(); }
+    public int getIdleCount() { return idle.size(); }
+    public int getInUseCount() { return inUse.get(); }
+    public int getPeakInUse() { return peakInUse.get(); }
+    public long getCheckoutCount() { return checkouts.get(); }
+    public long getWaitCount() { return waits.get(); }
+    public long getExhaustedCount() { return exhausted.get(); }
+    public long getCreatedCount() { return created.get(); }
+    public long getEvictedCount() { return evicted.get(); }
+    public long getFailedValidationCount() { return failedValidations.get(); }
+    public long getStatementsExecuted() { return statementsExecuted.get(); }
+    public long getStatementCacheHits() { return statementCacheHits.get(); }
+    public long getStatementCacheMisses() { return statementCacheMisses.get(); }
+    public long getStatementCacheEvictions() { return statementCacheEvictions.get(); }
+
+    public double getStatementCacheHitRate() {
+        long hits = getStatementCacheHits();
+        long total = hits + getStatementCacheMisses();
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ConnectionPool[%s: total=%d, idle=%d, inUse=%d, peak=%d, checkouts=%d, " +
+                        "waits=%d, exhausted=%d, created=%d, evicted=%d, failedValidations=%d, " +
+                        "statementCacheHits=%d, statementCacheMisses=%d]",
+                url, getTotalConnections(), getIdleCount(), getInUseCount(), getPeakInUse(),
+                getCheckoutCount(), getWaitCount(), getExhaustedCount(), getCreatedCount(),
+                getEvictedCount(), getFailedValidationCount(),
+                getStatementCacheHits(), getStatementCacheMisses());
+    }
+
+    /**
+     * A physical connection plus its bookkeeping.
+     */
+    private final class PooledEntry {
+        private final Connection connection;
+        private volatile long lastUsed;
+        private volatile long lastValidated;
+        private final StatementCache statements;
+        private int statementGeneration;
+
+        private PooledEntry(Connection connection) {
+            this.connection = connection;
+            this.statements = new StatementCache(statementCacheSize, statementCacheEvictions);
+            this.statementGeneration = ConnectionPool.this.statementGeneration;
+            this.lastUsed = System.currentTimeMillis();
+            this.lastValidated = lastUsed;
+        }
+
+        private Connection checkout() {
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new Handle(this));
+        }
+    }
+
+    /**
+     * Proxy handler for one checkout. close() returns the connection to the pool
+     * exactly once; any later use of the handle fails instead of touching a
+     * connection that now belongs to someone else.
+     */
+    private final class Handle implements InvocationHandler {
+        private final PooledEntry entry;
+        private boolean returned = false;
+
+        private Handle(PooledEntry entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        release(entry);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || entry.connection.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + entry.connection + (returned ? ", returned]" : "]");
+                default:
+                    break;
+            }
+            if (returned) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            if (method.getName().equals("prepareStatement") && args.length == 1
+                    && entry.statements.isEnabled()) {
+                return prepareCached((String) args[0]);
+            }
+            Object result;
+            try {
+                result = method.invoke(entry.connection, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (result instanceof Statement) {
+                String sql = method.getName().startsWith("prepare") ? (String) args[0] : null;
+                return wrapStatement((Statement) result, method.getReturnType(), null, entry.connection, sql);
+            }
+            return result;
+        }
+
+        private PreparedStatement prepareCached(String sql) throws SQLException {
+            StatementCache.Entry cached = entry.statements.borrow(sql);
+            if (cached != null) {
+                statementCacheHits.incrementAndGet();
+            } else {
+                statementCacheMisses.incrementAndGet();
+                PreparedStatement statement = entry.connection.prepareStatement(sql);
+                cached = entry.statements.add(sql, statement);
+                if (cached == null) {
+                    // The cached copy is in use by an outer caller; hand out a private one
+                    return (PreparedStatement) wrapStatement(statement, PreparedStatement.class, null,
+                            entry.connection, sql);
+                }
+            }
+            return (PreparedStatement) wrapStatement(cached.statement(), PreparedStatement.class, cached,
+                    entry.connection, sql);
+        }
+    }
+
+    /**
+     * Wraps a statement so every execute call is counted, which lets tests assert
+     * how many round trips an operation makes. For cached statements close()
+     * hands the statement back to the cache instead of closing it.
+     *
+     * While a slow-query log is set, executions are also timed (see SlowQueryLog)
+     * and the plan of a slow one is explained on the given physical connection.
+     */
+    private Object wrapStatement(Statement statement, Class<?> type, StatementCache.Entry cached,
+                                 Connection connection, String sql) {
+        return Proxy.newProxyInstance(
+                Statement.class.getClassLoader(),
+                new Class<?>[]{type},
+                new StatementHandle(statement, cached, connection, sql, slowQueryLog));
+    }
+
+    private final class StatementHandle implements InvocationHandler {
+        private final Statement statement;
+        private final StatementCache.Entry cached;
+        private final Connection connection;
+        // The prepared SQL; null for plain statements, which pass it to execute
+        private final String sql;
+        private final SlowQueryLog slowQueries;
+        private final SlowQueryLog.Parameters parameters;
+        // A query whose result set is still being read
+        private SlowQueryLog.Execution pending;
+        private boolean closed = false;
+
+        private StatementHandle(Statement statement, StatementCache.Entry cached, Connection connection,
+                                String sql, SlowQueryLog slowQueries) {
+            this.statement = statement;
+            this.cached = cached;
+            this.connection = connection;
+            this.sql = sql;
+            this.slowQueries = slowQueries;
+            this.parameters = slowQueries != null && sql != null ? new SlowQueryLog.Parameters() : null;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (slowQueries != null && name.equals("close")) {
+                finishPending();
+            }
+            if (cached != null) {
+                switch (name) {
+                    case "close":
+                        if (!closed) {
+                            closed = true;
+                            cached.release();
+                        }
+                        return null;
+                    case "isClosed":
+                        return closed;
+                    default:
+                        if (closed) {
+                            throw new SQLException("Statement is closed");
+                        }
+                        break;
+                }
+            }
+            if (name.startsWith("execute")) {
+                statementsExecuted.incrementAndGet();
+                if (slowQueries != null) {
+                    return executeTimed(method, args);
+                }
+            } else if (parameters != null) {
+                // Parameter setters are the only (int, value) methods of a PreparedStatement
+                if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                    parameters.set(name, args);
+                } else if (name.equals("clearParameters")) {
+                    parameters.clear();
+                }
+            }
+            Object result;
+            try {
+                result = method.invoke(statement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (cached != null && result instanceof ResultSet) {
+                cached.track((ResultSet) result);
+            }
+            return result;
+        }
+
+        private Object executeTimed(Method method, Object[] args) throws Throwable {
+            finishPending();
+            boolean sqlArgument = args != null && args.length > 0 && args[0] instanceof String;
+            SlowQueryLog.Execution execution = slowQueries.start(sqlArgument ? (String) args[0] : sql,
+                    sqlArgument ? null : parameters);
+            Object result;
+            long start = System.nanoTime();
+            try {
+                result = method.invoke(statement, args);
+            } catch (InvocationTargetException e) {
+                execution.addNanos(System.nanoTime() - start);
+                execution.finish(connection);
+                throw e.getCause();
+            }
+            execution.addNanos(System.nanoTime() - start);
+            if (result instanceof ResultSet) {
+                ResultSet rs = (ResultSet) result;
+                if (cached != null) {
+                    cached.track(rs);
+                }
+                pending = execution;
+                return Proxy.newProxyInstance(
+                        ResultSet.class.getClassLoader(),
+                        new Class<?>[]{ResultSet.class},
+                        new TimedResultSet(rs, execution, connection));
+            }
+            if (result instanceof Integer) {
+                execution.addRows((Integer) result);
+            } else if (result instanceof int[]) {
+                for (int count : (int[]) result) {
+                    execution.addRows(Math.max(count, 0));
+                }
+            }
+            execution.finish(connection);
+            return result;
+        }
+
+        private void finishPending() {
+            if (pending != null) {
+                pending.finish(connection);
+                pending = null;
+            }
+        }
+    }
+
+    /**
+     * Times each next() of a query's result set and counts the rows read; the
+     * query ends when the rows run out, the result set is closed or its
+     * statement is closed or executed again.
+     */
+    private static final class TimedResultSet implements InvocationHandler {
+        private final ResultSet rs;
+        private final SlowQueryLog.Execution execution;
+        private final Connection connection;
+
+        private TimedResultSet(ResultSet rs, SlowQueryLog.Execution execution, Connection connection) {
+            this.rs = rs;
+            this.execution = execution;
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("close")) {
+                execution.finish(connection);
+            }
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = method.invoke(rs, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (name.equals("next")) {
+                execution.addNanos(System.nanoTime() - start);
+                if ((Boolean) result) {
+                    execution.addRows(1);
+                } else {
+                    execution.finish(connection);
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,555 @@
+package edu.virginia.sde.reviews.services;
+
+import edu.virginia.sde.reviews.models.Course;
+import edu.virginia.sde.reviews.models.Page;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Every course with its rating aggregates, held in memory and indexed by
+ * subject, number and title word, so course searches and lookups never reach
+ * SQLite once the catalog is loaded.
+ *
+ * The catalog is shared per database and loaded lazily on first use. Writes made
+ * through DatabaseService are applied write-through: a changed course is read
+ * back from the database and replaces the cached one. Writes that touch many
+ * courses at once (bulk imports, clearing, rebuilding aggregates) invalidate the
+ * whole catalog instead, and it is reloaded on the next read. Writes made by
+ * other processes are not seen until the catalog is invalidated.
+ *
+ * Cached Course objects are never handed out or modified; callers get copies.
+ */
+public class CourseCatalog {
+    private static final Map<String, CourseCatalog> CATALOGS = new ConcurrentHashMap<>();
+
+    // Most similar words compared per fuzzy query word; bounds the cost of common trigrams
+    private static final int MAX_FUZZY_CANDIDATE_WORDS = 200;
+
+    // The order of SEARCH_SQL: ORDER BY subject, number, title (BINARY collation)
+    static final Comparator<Course> ORDER = Comparator.comparing(Course::getSubject)
+        .thenComparingInt(Course::getNumber)
+        .thenComparing(Course::getTitle);
+
+    /**
+     * Reads courses from the database on behalf of the catalog.
+     */
+    @FunctionalInterface
+    public interface Loader<T> {
+        T load() throws SQLException;
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private boolean loaded;
+    private final Map<Integer, Course> byId = new HashMap<>();
+    private final NavigableSet<Course> ordered = new TreeSet<>(ORDER);
+    // Sorted so that prefixes of subject codes and ranges of numbers are sub-maps
+    private final TreeMap<String, NavigableSet<Course>> bySubject = new TreeMap<>();
+    private final TreeMap<Integer, NavigableSet<Course>> byNumber = new TreeMap<>();
+    // Normalized title word -> the courses whose title contains it
+    private final TreeMap<String, NavigableSet<Course>> byTitleWord = new TreeMap<>();
+    // Normalized title words of each course, for phrase matching
+    private final Map<Integer, List<String>> titleWords = new HashMap<>();
+    private final TrigramIndex fuzzyIndex = new TrigramIndex();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private volatile long lastRebuildMillis;
+    private volatile int rebuildCount;
+
+    /**
+     * The shared catalog for the configured database.
+     */
+    public static CourseCatalog forConfig(DatabaseConfig config) {
+        return CATALOGS.computeIfAbsent(config.getJdbcUrl(), url -> new CourseCatalog());
+    }
+
+    /**
+     * Loads every course if the catalog is empty or was invalidated. Counts a
+     * hit when the catalog was already loaded and a miss otherwise.
+     */
+    public void ensureLoaded(Loader<List<Course>> loader) throws SQLException {
+        lock.readLock().lock();
+        try {
+            if (loaded) {
+                hits.incrementAndGet();
+                return;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (loaded) {
+                hits.incrementAndGet();
+                return;
+            }
+            misses.incrementAndGet();
+            long start = System.nanoTime();
+            clear();
+            for (Course course : loader.load()) {
+                add(course);
+            }
+            loaded = true;
+            lastRebuildMillis = (System.nanoTime() - start) / 1_000_000;
+            rebuildCount++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces one course with its current database row, or removes it if the
+     * loader returns null. The read happens under the catalog's write lock, so
+     * when two writes race the later refresh always wins. Nothing is read while
+     * the catalog is not loaded.
+     */
+    public void refresh(int courseId, Loader<Course> loader) throws SQLException {
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                return;
+            }
+            remove(courseId);
+            Course course = loader.load();
+            if (course != null) {
+                add(course);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Drops every cached course; the next read reloads them all.
+     */
+    public void invalidate() {
+        lock.writeLock().lock();
+        try {
+            loaded = false;
+            clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Course getCourse(int courseId) {
+        lock.readLock().lock();
+        try {
+            Course course = byId.get(courseId);
+            return course == null ? null : copy(course);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The id of the course with the given subject (any case) and number, or -1.
+     */
+    public int getCourseId(String subject, int number) {
+        lock.readLock().lock();
+        try {
+            NavigableSet<Course> courses = bySubject.get(normalizeSubject(subject));
+            if (courses != null) {
+                for (Course course : courses) {
+                    if (course.getNumber() == number) {
+                        return course.getId();
+                    }
+                }
+            }
+            return -1;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Same contract and results as the SQL behind
+     * {@link DatabaseService#searchCourses(String, Integer, String, Course, int)}:
+     * exact subject (any case) and number, title words matched like the
+     * full-text index, ordered by subject, number and title after the cursor.
+     */
+    public Page<Course> search(String subject, Integer number, String title, Course after, int pageSize) {
+        String subjectKey = subject == null || subject.isEmpty() ? null : normalizeSubject(subject);
+        int[] numbers = number == null ? null : new int[] {number, number};
+        return find(subjectKey, false, numbers, title, after, pageSize);
+    }
+
+    /**
+     * Type-ahead search: like {@link #search} but the subject and number only
+     * have to start with what was typed, so "c" matches CS and CHEM and "31"
+     * matches 3100-3199. A number prefix that is not 1-4 digits matches nothing.
+     */
+    public Page<Course> suggest(String subjectPrefix, String numberPrefix, String title, Course after, int pageSize) {
+        String subjectKey = subjectPrefix == null || subjectPrefix.isEmpty() ? null : normalizeSubject(subjectPrefix);
+        int[] numbers = null;
+        if (numberPrefix != null && !numberPrefix.isEmpty()) {
+            numbers = numberRange(numberPrefix);
+            if (numbers == null) {
+                return Page.empty();
+            }
+        }
+        return find(subjectKey, true, numbers, title, after, pageSize);
+    }
+
+    /**
+     * Typo-tolerant search over title words and subject codes, so "Algoritms"
+     * finds "Algorithms". Every query word must be within a few edits of a word
+     * of the course (one edit for words up to five letters, two for longer ones)
+     * or be the start of one. Results are ranked by total edit distance, then
+     * by average rating, then in catalog order. The number filter is optional.
+     */
+    public List<Course> fuzzySearch(String query, Integer number, int limit) {
+        List<String> queryWords = query == null ? List.of() : FullTextQuery.words(query);
+        List<Course> results = new ArrayList<>();
+        if (queryWords.isEmpty() || limit <= 0) {
+            return results;
+        }
+
+        lock.readLock().lock();
+        try {
+            // Course id -> total edit distance over the query words matched so far
+            Map<Integer, Integer> distances = null;
+            for (String word : queryWords) {
+                Map<Integer, Integer> matches = fuzzyIndex.match(word, maxEdits(word), MAX_FUZZY_CANDIDATE_WORDS);
+                if (distances == null) {
+                    distances = matches;
+                } else {
+                    distances.keySet().retainAll(matches.keySet());
+                    distances.replaceAll((id, distance) -> distance + matches.get(id));
+                }
+                if (distances.isEmpty()) {
+                    return results;
+                }
+            }
+
+            List<Course> matched = new ArrayList<>();
+            for (int id : distances.keySet()) {
+                Course course = byId.get(id);
+                if (number == null || course.getNumber() == number) {
+                    matched.add(course);
+                }
+            }
+            Map<Integer, Integer> totals = distances;
+            matched.sort(Comparator.<Course>comparingInt(course -> totals.get(course.getId()))
+                .thenComparing(Course::getAverageRating, Comparator.nullsLast(Comparator.reverseOrder()))
+                .thenComparing(ORDER));
+            for (Course course : matched.subList(0, Math.min(limit, matched.size()))) {
+                results.add(copy(course));
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static int maxEdits(String word) {
+        if (word.length() <= 2) {
+            return 0;
+        }
+        return word.length() <= 5 ? 1 : 2;
+    }
+
+    // Course numbers have exactly four digits, so a prefix covers one contiguous range
+    private static int[] numberRange(String prefix) {
+        if (prefix.length() > 4 || !prefix.chars().allMatch(ch -> ch >= '0' && ch <= '9')) {
+            return null;
+        }
+        int scale = (int) Math.pow(10, 4 - prefix.length());
+        int low = Integer.parseInt(prefix) * scale;
+        return new int[] {low, low + scale - 1};
+    }
+
+    private Page<Course> find(String subjectKey, boolean subjectPrefix, int[] numbers, String title,
+                              Course after, int pageSize) {
+        boolean filterTitle = title != null && !title.isEmpty();
+        List<FullTextQuery.Term> terms = filterTitle ? FullTextQuery.parseTerms(title) : List.of();
+        // Nothing tokenizable (e.g. only punctuation), fall back to a substring match
+        String substring = filterTitle && terms.isEmpty() ? title.toUpperCase(Locale.ROOT) : null;
+
+        lock.readLock().lock();
+        try {
+            // Start from the narrowest index that applies, then check the other filters
+            Iterable<Course> candidates;
+            if (subjectKey != null) {
+                candidates = merged(subjectSets(subjectKey, subjectPrefix, after), after);
+            } else if (numbers != null) {
+                candidates = merged(byNumber.subMap(numbers[0], true, numbers[1], true).values(), after);
+            } else if (!terms.isEmpty()) {
+                candidates = merged(rarestTermSets(terms), after);
+            } else {
+                candidates = after == null ? ordered : ordered.tailSet(after, false);
+            }
+
+            List<Course> page = new ArrayList<>();
+            for (Course course : candidates) {
+                if (pageSize >= 0 && page.size() > pageSize) {
+                    break;
+                }
+                if (after != null && ORDER.compare(course, after) <= 0) {
+                    continue;
+                }
+                if (subjectKey != null && !(subjectPrefix
+                        ? course.getSubject().startsWith(subjectKey)
+                        : course.getSubject().equals(subjectKey))) {
+                    continue;
+                }
+                if (numbers != null && (course.getNumber() < numbers[0] || course.getNumber() > numbers[1])) {
+                    continue;
+                }
+                if (!terms.isEmpty() && !matchesTerms(course.getId(), terms)) {
+                    continue;
+                }
+                if (substring != null && !course.getTitle().toUpperCase(Locale.ROOT).contains(substring)) {
+                    continue;
+                }
+                page.add(copy(course));
+            }
+
+            boolean hasMore = pageSize >= 0 && page.size() > pageSize;
+            return new Page<>(hasMore ? page.subList(0, pageSize) : page, hasMore);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Collection<NavigableSet<Course>> subjectSets(String subjectKey, boolean prefix, Course after) {
+        if (!prefix) {
+            return bySubject.containsKey(subjectKey) ? List.of(bySubject.get(subjectKey)) : List.of();
+        }
+        // Subjects before the cursor's cannot hold anything after it
+        String from = after != null && after.getSubject().startsWith(subjectKey) ? after.getSubject() : subjectKey;
+        return bySubject.subMap(from, true, subjectKey + Character.MAX_VALUE, true).values();
+    }
+
+    // Every term must match, so walking the one with the fewest courses checks the least
+    private Collection<NavigableSet<Course>> rarestTermSets(List<FullTextQuery.Term> terms) {
+        Collection<NavigableSet<Course>> rarest = null;
+        int rarestSize = Integer.MAX_VALUE;
+        for (FullTextQuery.Term term : terms) {
+            Collection<NavigableSet<Course>> sets = titleWordSets(term);
+            int size = 0;
+            for (NavigableSet<Course> set : sets) {
+                size += set.size();
+            }
+            if (size < rarestSize) {
+                rarest = sets;
+                rarestSize = size;
+            }
+        }
+        return rarest;
+    }
+
+    // Courses containing a word that starts with (or, in a phrase, equals) the term's first word
+    private Collection<NavigableSet<Course>> titleWordSets(FullTextQuery.Term term) {
+        String word = term.words.get(0);
+        if (term.prefix) {
+            return byTitleWord.subMap(word, true, word + Character.MAX_VALUE, true).values();
+        }
+        return byTitleWord.containsKey(word) ? List.of(byTitleWord.get(word)) : List.of();
+    }
+
+    // The union of sorted index entries in catalog order, after the cursor. The
+    // merge is lazy, so a page costs about pageSize steps however broad the prefix.
+    private static Iterable<Course> merged(Collection<NavigableSet<Course>> sets, Course after) {
+        if (sets.size() == 1) {
+            NavigableSet<Course> set = sets.iterator().next();
+            return after == null ? set : set.tailSet(after, false);
+        }
+        return () -> new MergingIterator(sets, after);
+    }
+
+    private static final class MergingIterator implements Iterator<Course> {
+        private final PriorityQueue<Head> heads = new PriorityQueue<>((a, b) -> ORDER.compare(a.course, b.course));
+
+        MergingIterator(Collection<NavigableSet<Course>> sets, Course after) {
+            for (NavigableSet<Course> set : sets) {
+                advance(new Head((after == null ? set : set.tailSet(after, false)).iterator()));
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heads.isEmpty();
+        }
+
+        @Override
+        public Course next() {
+            if (heads.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            Course next = heads.peek().course;
+            // A course with two words sharing the prefix sits in two sets; return it once
+            while (!heads.isEmpty() && heads.peek().course == next) {
+                advance(heads.poll());
+            }
+            return next;
+        }
+
+        private void advance(Head head) {
+            if (head.rest.hasNext()) {
+                head.course = head.rest.next();
+                heads.add(head);
+            }
+        }
+
+        private static final class Head {
+            final Iterator<Course> rest;
+            Course course;
+
+            Head(Iterator<Course> rest) {
+                this.rest = rest;
+            }
+        }
+    }
+
+    private boolean matchesTerms(int courseId, List<FullTextQuery.Term> terms) {
+        List<String> words = titleWords.get(courseId);
+        for (FullTextQuery.Term term : terms) {
+            if (!matchesTerm(words, term)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean matchesTerm(List<String> words, FullTextQuery.Term term) {
+        if (term.prefix) {
+            String prefix = term.words.get(0);
+            for (String word : words) {
+                if (word.startsWith(prefix)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        // A phrase: the words must appear consecutively
+        return Collections.indexOfSubList(words, term.words) >= 0;
+    }
+
+    private void add(Course course) {
+        byId.put(course.getId(), course);
+        ordered.add(course);
+        bySubject.computeIfAbsent(course.getSubject(), s -> new TreeSet<>(ORDER)).add(course);
+        byNumber.computeIfAbsent(course.getNumber(), n -> new TreeSet<>(ORDER)).add(course);
+        List<String> words = FullTextQuery.words(course.getTitle());
+        titleWords.put(course.getId(), words);
+        for (String word : words) {
+            byTitleWord.computeIfAbsent(word, w -> new TreeSet<>(ORDER)).add(course);
+        }
+        fuzzyIndex.add(course.getId(), fuzzyWords(course, words));
+    }
+
+    // Title words and the subject code, which fuzzy queries may also mistype
+    private static List<String> fuzzyWords(Course course, List<String> titleWords) {
+        List<String> words = new ArrayList<>(titleWords);
+        words.add(course.getSubject().toLowerCase(Locale.ROOT));
+        return words;
+    }
+
+    private void remove(int courseId) {
+        Course course = byId.remove(courseId);
+        if (course == null) {
+            return;
+        }
+        ordered.remove(course);
+        removeFrom(bySubject, course.getSubject(), course);
+        removeFrom(byNumber, course.getNumber(), course);
+        List<String> words = titleWords.remove(courseId);
+        fuzzyIndex.remove(courseId, fuzzyWords(course, words));
+        for (String word : words) {
+            removeFrom(byTitleWord, word, course);
+        }
+    }
+
+    private static <K> void removeFrom(Map<K, NavigableSet<Course>> index, K key, Course course) {
+        NavigableSet<Course> courses = index.get(key);
+        if (courses != null) {
+            courses.remove(course);
+            if (courses.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    private void clear() {
+        byId.clear();
+        ordered.clear();
+        bySubject.clear();
+        byNumber.clear();
+        byTitleWord.clear();
+        titleWords.clear();
+        fuzzyIndex.clear();
+    }
+
+    private static String normalizeSubject(String subject) {
+        return subject.toUpperCase(Locale.ROOT);
+    }
+
+    private static Course copy(Course course) {
+        Course copy = new Course(course.getId(), course.getSubject(), course.getNumber(), course.getTitle());
+        copy.setAverageRating(course.getAverageRating());
+        copy.setReviewCount(course.getReviewCount());
+        int[] histogram = new int[5];
+        for (int stars = 1; stars <= 5; stars++) {
+            histogram[stars - 1] = course.getRatingCount(stars);
+        }
+        copy.setRatingHistogram(histogram);
+        return copy;
+    }
+
+    public boolean isLoaded() {
+        lock.readLock().lock();
+        try {
+            return loaded;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return byId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Getters
+    public long getHits() { return hits.get(); }
+    public long getMisses() { return misses.get(); }
+    public long getLastRebuildMillis() { return lastRebuildMillis; }
+    public int getRebuildCount() { return rebuildCount; }
+
+    /**
+     * Fraction of reads answered without reloading the catalog, or 0 before any read.
+     */
+    public double getHitRate() {
+        long total = hits.get() + misses.get();
+        return total == 0 ? 0 : (double) hits.get() / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CourseCatalog[courses=%d, hitRate=%.3f, rebuilds=%d, lastRebuild=%dms]",
+            size(), getHitRate(), rebuildCount, lastRebuildMillis);
+    }
+}
@@ -0,0 +1,379 @@
+package edu.virginia.sde.reviews.services;
+
+import edu.virginia.sde.reviews.models.Page;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latency, row and error counts for every DatabaseService operation, plus how
+ * long connections take to open and to check out of the pool. One instance per
+ * database, shared like the {@link ConnectionPool}.
+ *
+ * Recording is lock-free and allocation-free ({@link LatencyHistogram} and
+ * atomic counters), so it stays on in production. With metrics.enabled=false
+ * every call returns immediately and nothing is registered or logged.
+ *
+ * The numbers are published as JMX MXBeans under {@code edu.virginia.sde.reviews}
+ * and, when metrics.logIntervalSeconds is positive, printed at that interval.
+ *
+ * Usage inside DatabaseService:
+ * <pre>
+ * long start = metrics.start();
+ * ...
+ * return metrics.record(Operation.GET_COURSE, start, course);   // on success
+ * metrics.error(Operation.GET_COURSE, start, e);                // in the catch block
+ * </pre>
+ */
+public class DataLayerMetrics implements DataLayerMetricsMXBean {
+    private static final Map<String, DataLayerMetrics> METRICS = new ConcurrentHashMap<>();
+    private static final String JMX_DOMAIN = "edu.virginia.sde.reviews";
+    // For pools not yet attached to a DatabaseService
+    static final DataLayerMetrics DISABLED = new DataLayerMetrics("disabled", false, 0);
+
+    // Names for the SQLite primary result codes worth telling apart
+    private static final Map<Integer, String> SQLITE_CODES = Map.of(
+        1, "SQLITE_ERROR", 5, "SQLITE_BUSY", 6, "SQLITE_LOCKED", 8, "SQLITE_READONLY",
+        10, "SQLITE_IOERR", 11, "SQLITE_CORRUPT", 13, "SQLITE_FULL", 14, "SQLITE_CANTOPEN",
+        19, "SQLITE_CONSTRAINT");
+
+    /**
+     * The DatabaseService operations that are measured, named after their methods.
+     */
+    public enum Operation {
+        VALIDATE_USER("validateUser"),
+        OPEN_SESSION("openSession"),
+        CREATE_USER("createUser"),
+        CREATE_COURSE("createCourse"),
+        GET_COURSE("getCourse"),
+        GET_COURSE_ID("getCourseIdBySubjectAndNumber"),
+        SEARCH_COURSES("searchCourses"),
+        SUGGEST_COURSES("suggestCourses"),
+        SEARCH_COURSES_FUZZY("searchCoursesFuzzy"),
+        SEARCH_COURSES_FULL_TEXT("searchCoursesFullText"),
+        GET_COURSE_PAGE_SNAPSHOT("getCoursePageSnapshot"),
+        GET_REVIEWS_FOR_COURSE("getReviewsForCourse"),
+        GET_USER_REVIEWS("getUserReviews"),
+        GET_USER_REVIEW_DISPLAYS("getUserReviewDisplays"),
+        GET_USER_REVIEW_FOR_COURSE("getUserReviewForCourse"),
+        SEARCH_USER_REVIEWS("searchUserReviews"),
+        CREATE_REVIEW("createReview"),
+        SAVE_REVIEW("saveReview"),
+        CHANGE_REVIEW("changeReview"),
+        REMOVE_REVIEW("removeReview"),
+        GET_USER_ID("getUserId"),
+        CHECK_AGGREGATES("checkAggregates"),
+        REBUILD_AGGREGATES("rebuildAggregates");
+
+        private final String methodName;
+
+        Operation(String methodName) {
+            this.methodName = methodName;
+        }
+
+        public String getMethodName() {
+            return methodName;
+        }
+    }
+
+    private final boolean enabled;
+    private final String url;
+    private final OperationMetrics[] operations = new OperationMetrics[Operation.values().length];
+    private final LatencyHistogram connectionOpens = new LatencyHistogram();
+    private final LatencyHistogram checkouts = new LatencyHistogram();
+    private final Map<String, AtomicLong> errorsBySqlState = new ConcurrentHashMap<>();
+    private final List<ObjectName> registered = new ArrayList<>();
+    private final ScheduledExecutorService reporter;
+
+    DataLayerMetrics(String url, boolean enabled, int logIntervalSeconds) {
+        this.url = url;
+        this.enabled = enabled;
+        for (Operation operation : Operation.values()) {
+            operations[operation.ordinal()] = new OperationMetrics(operation);
+        }
+        if (enabled && logIntervalSeconds > 0) {
+            reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "data-layer-metrics");
+                t.setDaemon(true);
+                return t;
+            });
+            reporter.scheduleAtFixedRate(() -> System.out.println(getReport()),
+                logIntervalSeconds, logIntervalSeconds, TimeUnit.SECONDS);
+        } else {
+            reporter = null;
+        }
+    }
+
+    /**
+     * The shared metrics for the configured database, registered with JMX the
+     * first time they are requested.
+     */
+    public static DataLayerMetrics forConfig(DatabaseConfig config) {
+        return METRICS.computeIfAbsent(config.getJdbcUrl(), url -> {
+            DataLayerMetrics metrics = new DataLayerMetrics(url, config.isMetricsEnabled(),
+                config.getMetricsLogIntervalSeconds());
+            if (metrics.enabled) {
+                metrics.register();
+            }
+            return metrics;
+        });
+    }
+
+    /**
+     * Stops the periodic reports and unregisters every MXBean.
+     */
+    public static void shutdownAll() {
+        for (DataLayerMetrics metrics : METRICS.values()) {
+            metrics.close();
+        }
+        METRICS.clear();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * The start time to pass to {@link #record} or {@link #error}; 0 when disabled.
+     */
+    public long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Records a successful call and passes its result through. Rows are the
+     * size of a returned list or page, 0 for null and 1 for anything else.
+     */
+    public <T> T record(Operation operation, long start, T result) {
+        if (enabled) {
+            operations[operation.ordinal()].record(System.nanoTime() - start, rowsIn(result));
+        }
+        return result;
+    }
+
+    /**
+     * Records a successful call that returned the given number of rows.
+     */
+    public void record(Operation operation, long start, int rows) {
+        if (enabled) {
+            operations[operation.ordinal()].record(System.nanoTime() - start, rows);
+        }
+    }
+
+    /**
+     * Records a failed call: its latency, an error for the operation and one
+     * for the exception's SQLState.
+     */
+    public void error(Operation operation, long start, SQLException e) {
+        if (enabled) {
+            OperationMetrics metrics = operations[operation.ordinal()];
+            metrics.record(System.nanoTime() - start, 0);
+            metrics.errors.incrementAndGet();
+            errorsBySqlState.computeIfAbsent(sqlStateOf(e), state -> new AtomicLong()).incrementAndGet();
+        }
+    }
+
+    /**
+     * Records a call that completed without an exception but did not succeed,
+     * e.g. a write rejected by the queue.
+     */
+    public void failed(Operation operation, long start) {
+        if (enabled) {
+            OperationMetrics metrics = operations[operation.ordinal()];
+            metrics.record(System.nanoTime() - start, 0);
+            metrics.errors.incrementAndGet();
+        }
+    }
+
+    void recordConnectionOpen(long start) {
+        if (enabled) {
+            connectionOpens.record(System.nanoTime() - start);
+        }
+    }
+
+    void recordCheckout(long start) {
+        if (enabled) {
+            checkouts.record(System.nanoTime() - start);
+        }
+    }
+
+    public OperationMetricsMXBean getOperation(Operation operation) {
+        return operations[operation.ordinal()];
+    }
+
+    private static int rowsIn(Object result) {
+        if (result == null) {
+            return 0;
+        }
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        if (result instanceof Page) {
+            return ((Page<?>) result).getItems().size();
+        }
+        return 1;
+    }
+
+    static String sqlStateOf(SQLException e) {
+        if (e.getSQLState() != null) {
+            return e.getSQLState();
+        }
+        // The SQLite driver reports result codes rather than SQLStates
+        int code = e.getErrorCode() & 0xff;
+        return SQLITE_CODES.getOrDefault(code, "SQLITE_" + code);
+    }
+
+    // MXBean attributes
+
+    @Override
+    public long getConnectionsOpened() { return connectionOpens.getCount(); }
+    @Override
+    public double getConnectionOpenP50Micros() { return connectionOpens.getPercentileNanos(0.50) / 1e3; }
+    @Override
+    public double getConnectionOpenP99Micros() { return connectionOpens.getPercentileNanos(0.99) / 1e3; }
+    @Override
+    public double getConnectionOpenMaxMicros() { return connectionOpens.getMaxNanos() / 1e3; }
+    @Override
+    public long getCheckouts() { return checkouts.getCount(); }
+    @Override
+    public double getCheckoutP50Micros() { return checkouts.getPercentileNanos(0.50) / 1e3; }
+    @Override
+    public double getCheckoutP99Micros() { return checkouts.getPercentileNanos(0.99) / 1e3; }
+    @Override
+    public double getCheckoutMaxMicros() { return checkouts.getMaxNanos() / 1e3; }
+
+    @Override
+    public Map<String, Long> getErrorsBySqlState() {
+        Map<String, Long> errors = new TreeMap<>();
+        errorsBySqlState.forEach((state, count) -> errors.put(state, count.get()));
+        return errors;
+    }
+
+    @Override
+    public String getReport() {
+        StringBuilder report = new StringBuilder("Data layer metrics for ").append(url).append('\n');
+        report.append(String.format("  %-30s %9s %7s %10s %10s %10s %10s %10s%n",
+            "operation", "calls", "errors", "rows", "p50 us", "p95 us", "p99 us", "max us"));
+        for (OperationMetrics metrics : operations) {
+            if (metrics.getCalls() > 0) {
+                report.append(String.format("  %-30s %9d %7d %10d %10.0f %10.0f %10.0f %10.0f%n",
+                    metrics.getOperation(), metrics.getCalls(), metrics.getErrors(), metrics.getRows(),
+                    metrics.getP50Micros(), metrics.getP95Micros(), metrics.getP99Micros(), metrics.getMaxMicros()));
+            }
+        }
+        report.append(String.format("  connections opened=%d (p50 %.0f us, max %.0f us), checkouts=%d " +
+                "(p50 %.0f us, p99 %.0f us, max %.0f us), errors=%s",
+            getConnectionsOpened(), getConnectionOpenP50Micros(), getConnectionOpenMaxMicros(), getCheckouts(),
+            getCheckoutP50Micros(), getCheckoutP99Micros(), getCheckoutMaxMicros(), getErrorsBySqlState()));
+        return report.toString();
+    }
+
+    @Override
+    public void reset() {
+        for (OperationMetrics metrics : operations) {
+            metrics.reset();
+        }
+        connectionOpens.reset();
+        checkouts.reset();
+        errorsBySqlState.clear();
+    }
+
+    @Override
+    public String toString() {
+        return getReport();
+    }
+
+    private void register() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        String base = JMX_DOMAIN + ":type=DataLayer,database=" + ObjectName.quote(url);
+        try {
+            register(server, new ObjectName(base), this);
+            for (OperationMetrics metrics : operations) {
+                register(server, new ObjectName(base + ",operation=" + metrics.getOperation()), metrics);
+            }
+        } catch (JMException e) {
+            // Metrics still work without JMX
+            e.printStackTrace();
+        }
+    }
+
+    private void register(MBeanServer server, ObjectName name, Object bean) throws JMException {
+        // Left behind by metrics for the same database that were never shut down
+        if (server.isRegistered(name)) {
+            server.unregisterMBean(name);
+        }
+        server.registerMBean(bean, name);
+        registered.add(name);
+    }
+
+    private void close() {
+        if (reporter != null) {
+            reporter.shutdownNow();
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName name : registered) {
+            try {
+                server.unregisterMBean(name);
+            } catch (JMException e) {
+                // Already gone
+            }
+        }
+        registered.clear();
+    }
+
+    private static final class OperationMetrics implements OperationMetricsMXBean {
+        private final Operation operation;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final AtomicLong errors = new AtomicLong();
+        private final AtomicLong rows = new AtomicLong();
+
+        private OperationMetrics(Operation operation) {
+            this.operation = operation;
+        }
+
+        private void record(long nanos, int rowCount) {
+            latency.record(nanos);
+            if (rowCount > 0) {
+                rows.addAndGet(rowCount);
+            }
+        }
+
+        private void reset() {
+            latency.reset();
+            errors.set(0);
+            rows.set(0);
+        }
+
+        @Override
+        public String getOperation() { return operation.getMethodName(); }
+        @Override
+        public long getCalls() { return latency.getCount(); }
+        @Override
+        public long getErrors() { return errors.get(); }
+        @Override
+        public long getRows() { return rows.get(); }
+        @Override
+        public double getMeanMicros() { return latency.getMeanNanos() / 1e3; }
+        @Override
+        public double getP50Micros() { return latency.getPercentileNanos(0.50) / 1e3; }
+        @Override
+        public double getP95Micros() { return latency.getPercentileNanos(0.95) / 1e3; }
+        @Override
+        public double getP99Micros() { return latency.getPercentileNanos(0.99) / 1e3; }
+        @Override
+        public double getMaxMicros() { return latency.getMaxNanos() / 1e3; }
+    }
+}
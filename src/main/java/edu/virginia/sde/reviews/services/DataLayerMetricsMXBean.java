@@ -0,0 +1,33 @@
+package edu.virginia.sde.reviews.services;
+
+import java.util.Map;
+
+/**
+ * JMX view of the data layer for one database, registered by {@link DataLayerMetrics}
+ * as {@code edu.virginia.sde.reviews:type=DataLayer,database=...}. Latencies
+ * are in microseconds; per-operation numbers are separate {@link OperationMetricsMXBean}s.
+ */
+public interface DataLayerMetricsMXBean {
+    long getConnectionsOpened();
+    double getConnectionOpenP50Micros();
+    double getConnectionOpenP99Micros();
+    double getConnectionOpenMaxMicros();
+
+    long getCheckouts();
+    double getCheckoutP50Micros();
+    double getCheckoutP99Micros();
+    double getCheckoutMaxMicros();
+
+    /**
+     * Failed database calls, keyed by SQLState (or SQLite result code when the
+     * driver reports no SQLState).
+     */
+    Map<String, Long> getErrorsBySqlState();
+
+    /**
+     * Human-readable summary of every operation that has been called.
+     */
+    String getReport();
+
+    void reset();
+}
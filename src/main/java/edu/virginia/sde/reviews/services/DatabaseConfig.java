@@ -0,0 +1,259 @@
+package edu.virginia.sde.reviews.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Storage settings for the SQLite database: where the file lives and the pragmas
+ * applied to every pooled connection.
+ *
+ * Settings are read from, in increasing order of precedence: built-in defaults,
+ * a properties file ({@value #DEFAULT_CONFIG_FILE} in the working directory, or
+ * the file named by {@code --config=<path>} / {@code -Dreviews.config=<path>}),
+ * system properties prefixed with {@code reviews.} (e.g. {@code -Dreviews.db.path=...}),
+ * and command-line arguments of the form {@code --db.path=...}.
+ *
+ * Keys: db.path, db.journalMode, db.synchronous, db.cacheSize, db.mmapSize,
+ * db.busyTimeout, db.foreignKeys, pool.minIdle, pool.maxSize, pool.statementCacheSize,
+ * async.executor, async.threads, async.queueSize, catalog.enabled, auth.iterations,
+ * writes.groupCommit, writes.batchSize, writes.maxDelayMillis, writes.queueSize, metrics.enabled,
+ * metrics.logIntervalSeconds, metrics.slowQueryMillis, metrics.logNavigation.
+ */
+public class DatabaseConfig {
+    public static final String DEFAULT_CONFIG_FILE = "course_reviews.properties";
+    private static final String SYSTEM_PROPERTY_PREFIX = "reviews.";
+
+    private static final Set<String> JOURNAL_MODES = Set.of("WAL", "DELETE", "TRUNCATE", "PERSIST", "MEMORY", "OFF");
+    private static final Set<String> SYNCHRONOUS_MODES = Set.of("OFF", "NORMAL", "FULL", "EXTRA");
+    // AUTO uses virtual threads when the JVM has them and a bounded pool otherwise
+    private static final Set<String> EXECUTOR_KINDS = Set.of("AUTO", "VIRTUAL", "BOUNDED");
+
+    private static volatile DatabaseConfig defaultConfig = new DatabaseConfig(new Properties());
+
+    private final String path;
+    private final String journalMode;
+    private final String synchronous;
+    private final int cacheSize;
+    private final long mmapSize;
+    private final int busyTimeoutMillis;
+    private final boolean foreignKeys;
+    private final int poolMinIdle;
+    private final int poolMaxSize;
+    private final int statementCacheSize;
+    private final String asyncExecutor;
+    private final int asyncThreads;
+    private final int asyncQueueSize;
+    private final boolean catalogEnabled;
+    private final int authIterations;
+    private final boolean groupCommit;
+    private final int writeBatchSize;
+    private final int writeMaxDelayMillis;
+    private final int writeQueueSize;
+    private final boolean metricsEnabled;
+    private final int metricsLogIntervalSeconds;
+    private final int slowQueryMillis;
+    private final boolean logNavigation;
+
+    public DatabaseConfig(Properties properties) {
+        this.path = properties.getProperty("db.path", "course_reviews.db");
+        this.journalMode = choice(properties, "db.journalMode", "WAL", JOURNAL_MODES);
+        this.synchronous = choice(properties, "db.synchronous", "NORMAL", SYNCHRONOUS_MODES);
+        // Negative cache sizes are in KiB, positive ones in pages (SQLite convention)
+        this.cacheSize = intValue(properties, "db.cacheSize", -8_000);
+        this.mmapSize = longValue(properties, "db.mmapSize", 64L * 1024 * 1024);
+        this.busyTimeoutMillis = intValue(properties, "db.busyTimeout", 5_000);
+        this.foreignKeys = Boolean.parseBoolean(properties.getProperty("db.foreignKeys", "true").trim());
+        this.poolMinIdle = intValue(properties, "pool.minIdle", ConnectionPool.DEFAULT_MIN_IDLE);
+        this.poolMaxSize = intValue(properties, "pool.maxSize", ConnectionPool.DEFAULT_MAX_SIZE);
+        this.statementCacheSize = intValue(properties, "pool.statementCacheSize",
+            ConnectionPool.DEFAULT_STATEMENT_CACHE_SIZE);
+        this.asyncExecutor = choice(properties, "async.executor", "AUTO", EXECUTOR_KINDS);
+        // More threads than connections would only queue up in the pool
+        this.asyncThreads = intValue(properties, "async.threads", poolMaxSize);
+        this.asyncQueueSize = intValue(properties, "async.queueSize", 256);
+        // Serve course searches from memory (see CourseCatalog) instead of SQL
+        this.catalogEnabled = Boolean.parseBoolean(properties.getProperty("catalog.enabled", "true").trim());
+        // PBKDF2 cost per password check; see utils.LoginBenchmark for picking one
+        this.authIterations = intValue(properties, "auth.iterations", PasswordHasher.DEFAULT_ITERATIONS);
+        // Review writes committed in batches by one writer thread (see ReviewWriteQueue)
+        this.groupCommit = Boolean.parseBoolean(properties.getProperty("writes.groupCommit", "false").trim());
+        this.writeBatchSize = intValue(properties, "writes.batchSize", 100);
+        this.writeMaxDelayMillis = intValue(properties, "writes.maxDelayMillis", 2);
+        this.writeQueueSize = intValue(properties, "writes.queueSize", 1_000);
+        // Per-operation latency and error counts (see DataLayerMetrics); 0 never logs them
+        this.metricsEnabled = Boolean.parseBoolean(properties.getProperty("metrics.enabled", "true").trim());
+        this.metricsLogIntervalSeconds = intValue(properties, "metrics.logIntervalSeconds", 0);
+        // Statements slower than this are logged with their plan (see SlowQueryLog). Off (-1) by
+        // default: while on, every statement and result set goes through a timing proxy
+        this.slowQueryMillis = intValue(properties, "metrics.slowQueryMillis", -1);
+        // Print each scene switch with its latency (see SceneManager); always recorded either way
+        this.logNavigation = Boolean.parseBoolean(properties.getProperty("metrics.logNavigation", "false").trim());
+
+        if (path.isBlank()) {
+            throw new IllegalArgumentException("db.path cannot be empty");
+        }
+        if (asyncThreads < 1 || asyncQueueSize < 1) {
+            throw new IllegalArgumentException("async.threads and async.queueSize must be positive");
+        }
+        if (writeBatchSize < 1 || writeMaxDelayMillis < 0 || writeQueueSize < 1) {
+            throw new IllegalArgumentException(
+                "writes.batchSize and writes.queueSize must be positive and writes.maxDelayMillis not negative");
+        }
+        if (metricsLogIntervalSeconds < 0) {
+            throw new IllegalArgumentException("metrics.logIntervalSeconds cannot be negative");
+        }
+        if (slowQueryMillis < -1) {
+            throw new IllegalArgumentException("metrics.slowQueryMillis must be -1 (off) or at least 0");
+        }
+        if (authIterations < PasswordHasher.MIN_ITERATIONS) {
+            throw new IllegalArgumentException("auth.iterations must be at least " + PasswordHasher.MIN_ITERATIONS);
+        }
+    }
+
+    /**
+     * Builds the configuration from the config file, system properties and the
+     * given command-line arguments. Arguments that are not settings are ignored.
+     */
+    public static DatabaseConfig load(List<String> args) throws IOException {
+        Properties properties = new Properties();
+
+        String configFile = System.getProperty(SYSTEM_PROPERTY_PREFIX + "config");
+        for (String arg : args) {
+            if (arg.startsWith("--config=")) {
+                configFile = arg.substring("--config=".length());
+            }
+        }
+        Path file = Path.of(configFile != null ? configFile : DEFAULT_CONFIG_FILE);
+        if (Files.exists(file)) {
+            try (InputStream in = Files.newInputStream(file)) {
+                properties.load(in);
+            }
+        } else if (configFile != null) {
+            throw new IOException("Config file not found: " + file.toAbsolutePath());
+        }
+
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith(SYSTEM_PROPERTY_PREFIX) && !name.equals(SYSTEM_PROPERTY_PREFIX + "config")) {
+                properties.setProperty(name.substring(SYSTEM_PROPERTY_PREFIX.length()), System.getProperty(name));
+            }
+        }
+
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (arg.startsWith("--") && equals > 2 && !arg.startsWith("--config=")) {
+                properties.setProperty(arg.substring(2, equals), arg.substring(equals + 1));
+            }
+        }
+        return new DatabaseConfig(properties);
+    }
+
+    /**
+     * Default settings pointing at a different database file, e.g. for tests.
+     */
+    public static DatabaseConfig forPath(Path path) {
+        Properties properties = new Properties();
+        properties.setProperty("db.path", path.toString());
+        return new DatabaseConfig(properties);
+    }
+
+    /**
+     * The configuration used by {@code new DatabaseService()}.
+     */
+    public static DatabaseConfig getDefault() {
+        return defaultConfig;
+    }
+
+    public static void setDefault(DatabaseConfig config) {
+        defaultConfig = config;
+    }
+
+    public String getJdbcUrl() {
+        return "jdbc:sqlite:" + path;
+    }
+
+    /**
+     * PRAGMA statements run on every new connection. journal_mode is stored in
+     * the database file, but setting it again per connection is harmless and
+     * keeps a file created under another profile in the configured mode.
+     */
+    public List<String> getConnectionPragmas() {
+        List<String> pragmas = new ArrayList<>();
+        pragmas.add("PRAGMA busy_timeout = " + busyTimeoutMillis);
+        pragmas.add("PRAGMA journal_mode = " + journalMode);
+        pragmas.add("PRAGMA synchronous = " + synchronous);
+        pragmas.add("PRAGMA cache_size = " + cacheSize);
+        pragmas.add("PRAGMA mmap_size = " + mmapSize);
+        pragmas.add("PRAGMA foreign_keys = " + (foreignKeys ? "ON" : "OFF"));
+        return pragmas;
+    }
+
+    // Getters
+    public String getPath() { return path; }
+    public String getJournalMode() { return journalMode; }
+    public String getSynchronous() { return synchronous; }
+    public int getCacheSize() { return cacheSize; }
+    public long getMmapSize() { return mmapSize; }
+    public int getBusyTimeoutMillis() { return busyTimeoutMillis; }
+    public boolean isForeignKeys() { return foreignKeys; }
+    public int getPoolMinIdle() { return poolMinIdle; }
+    public int getPoolMaxSize() { return poolMaxSize; }
+    public int getStatementCacheSize() { return statementCacheSize; }
+    public String getAsyncExecutor() { return asyncExecutor; }
+    public int getAsyncThreads() { return asyncThreads; }
+    public int getAsyncQueueSize() { return asyncQueueSize; }
+    public boolean isCatalogEnabled() { return catalogEnabled; }
+    public int getAuthIterations() { return authIterations; }
+    public boolean isGroupCommit() { return groupCommit; }
+    public int getWriteBatchSize() { return writeBatchSize; }
+    public int getWriteMaxDelayMillis() { return writeMaxDelayMillis; }
+    public int getWriteQueueSize() { return writeQueueSize; }
+    public boolean isMetricsEnabled() { return metricsEnabled; }
+    public int getMetricsLogIntervalSeconds() { return metricsLogIntervalSeconds; }
+    public int getSlowQueryMillis() { return slowQueryMillis; }
+    public boolean isLogNavigation() { return logNavigation; }
+
+    @Override
+    public String toString() {
+        return String.format("DatabaseConfig[path=%s, journal=%s, synchronous=%s, cacheSize=%d, " +
+                "mmapSize=%d, busyTimeout=%d, foreignKeys=%b, pool=%d-%d, statementCache=%d, " +
+                "async=%s/%d/%d, catalog=%b, authIterations=%d, groupCommit=%b/%d/%d/%d, metrics=%b/%d/%d/%b]",
+            path, journalMode, synchronous, cacheSize, mmapSize, busyTimeoutMillis, foreignKeys,
+            poolMinIdle, poolMaxSize, statementCacheSize, asyncExecutor, asyncThreads, asyncQueueSize,
+            catalogEnabled, authIterations, groupCommit, writeBatchSize, writeMaxDelayMillis, writeQueueSize,
+            metricsEnabled, metricsLogIntervalSeconds, slowQueryMillis, logNavigation);
+    }
+
+    // Pragma values cannot be bound as parameters, so only known words are accepted
+    private static String choice(Properties properties, String key, String defaultValue, Set<String> allowed) {
+        String value = properties.getProperty(key, defaultValue).trim().toUpperCase(Locale.ROOT);
+        if (!allowed.contains(value)) {
+            throw new IllegalArgumentException(key + " must be one of " + allowed + " but was " + value);
+        }
+        return value;
+    }
+
+    private static int intValue(Properties properties, String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        try {
+            return value == null ? defaultValue : Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(key + " must be an integer but was " + value);
+        }
+    }
+
+    private static long longValue(Properties properties, String key, long defaultValue) {
+        String value = properties.getProperty(key);
+        try {
+            return value == null ? defaultValue : Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(key + " must be an integer but was " + value);
+        }
+    }
+}
@@ -2,198 +2,307 @@ package edu.virginia.sde.reviews.services;
 
 import java.sql.*;
 import edu.virginia.sde.reviews.models.Course;
+import edu.virginia.sde.reviews.models.CoursePageSnapshot;
+import edu.virginia.sde.reviews.models.Page;
 import edu.virginia.sde.reviews.models.Review;
+import edu.virginia.sde.reviews.models.ReviewDisplay;
+import edu.virginia.sde.reviews.models.Session;
 import edu.virginia.sde.reviews.models.User;
+import edu.virginia.sde.reviews.models.WriteResult;
+import edu.virginia.sde.reviews.services.DataLayerMetrics.Operation;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 
 public class DatabaseService {
-    private static final String URL = "jdbc:sqlite:course_reviews.db";
+    private final DatabaseConfig config;
+    private final ConnectionPool pool;
+    private final CourseCatalog catalog;
+    private final PasswordHasher passwordHasher;
+    private final DataLayerMetrics metrics;
 
     public DatabaseService() {
+        this(DatabaseConfig.getDefault());
+    }
+
+    public DatabaseService(DatabaseConfig config) {
+        this.config = config;
+        this.pool = ConnectionPool.forConfig(config);
+        this.catalog = CourseCatalog.forConfig(config);
+        this.passwordHasher = new PasswordHasher(config.getAuthIterations());
+        this.metrics = DataLayerMetrics.forConfig(config);
+        pool.setMetrics(metrics);
         initializeDatabase();
     }
 
-    private void initializeDatabase() {
-        try (Connection conn = DriverManager.getConnection(URL);
-             Statement stmt = conn.createStatement()) {
-            
-            // Create users table
-            stmt.execute("""
-                CREATE TABLE IF NOT EXISTS users (
-                    id INTEGER PRIMARY KEY AUTOINCREMENT,
-                    username TEXT UNIQUE NOT NULL,
-                    password TEXT NOT NULL
-                )
-            """);
-
-            // Create courses table
-            stmt.execute("""
-                CREATE TABLE IF NOT EXISTS courses (
-                    id INTEGER PRIMARY KEY AUTOINCREMENT,
-                    subject TEXT NOT NULL,
-                    number INTEGER NOT NULL,
-                    title TEXT NOT NULL,
-                    UNIQUE(subject, number, title)
-                )
-            """);
-
-            // Create reviews table
-            stmt.execute("""
-                CREATE TABLE IF NOT EXISTS reviews (
-                    id INTEGER PRIMARY KEY AUTOINCREMENT,
-                    user_id INTEGER NOT NULL,
-                    course_id INTEGER NOT NULL,
-                    rating INTEGER NOT NULL CHECK (rating >= 1 AND rating <= 5),
-                    comment TEXT,
-                    timestamp TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-                    FOREIGN KEY (user_id) REFERENCES users(id),
-                    FOREIGN KEY (course_id) REFERENCES courses(id),
-                    UNIQUE(user_id, course_id)
-                )
-            """);
+    public DatabaseConfig getConfig() {
+        return config;
+    }
+
+    public ConnectionPool getConnectionPool() {
+        return pool;
+    }
+
+    /**
+     * The in-memory course catalog behind course searches and lookups, when
+     * catalog.enabled is set (the default).
+     */
+    public CourseCatalog getCourseCatalog() {
+        return catalog;
+    }
+
+    public PasswordHasher getPasswordHasher() {
+        return passwordHasher;
+    }
+
+    /**
+     * Per-operation latencies, rows and errors for this database; see
+     * metrics.enabled and metrics.logIntervalSeconds.
+     */
+    public DataLayerMetrics getMetrics() {
+        return metrics;
+    }
 
+    private void initializeDatabase() {
+        try (Connection conn = pool.getConnection()) {
+            // Creates the schema on a new database and upgrades older ones in place
+            if (SchemaMigrations.migrate(conn) < SchemaMigrations.LATEST_VERSION) {
+                pool.invalidateStatementCaches();
+                catalog.invalidate();
+            }
         } catch (SQLException e) {
             e.printStackTrace();
         }
     }
 
     public boolean validateUser(String username, String password) {
-        String sql = "SELECT password FROM users WHERE username = ?";
-        try (Connection conn = DriverManager.getConnection(URL);
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
+        long start = metrics.start();
+        try (Connection conn = pool.getConnection()) {
+            return metrics.record(Operation.VALIDATE_USER, start, checkPassword(conn, username, password) > 0);
+        } catch (SQLException e) {
+            metrics.error(Operation.VALIDATE_USER, start, e);
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * The user's id if the password is right, otherwise -1. A stored value in
+     * an outdated format (a legacy plain password, or a hash with another
+     * iteration count) is replaced by a fresh hash once the password is known
+     * to be right.
+     */
+    private int checkPassword(Connection conn, String username, String password) throws SQLException {
+        String sql = "SELECT id, password FROM users WHERE username = ?";
+        int userId = -1;
+        String stored = null;
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, username);
             ResultSet rs = pstmt.executeQuery();
-            
             if (rs.next()) {
-                String storedPassword = rs.getString("password");
-                return storedPassword.equals(password);
+                userId = rs.getInt("id");
+                stored = rs.getString("password");
             }
-            return false;
+        }
+        // Unknown users are hashed against too, so the time taken does not tell them apart
+        if (!passwordHasher.verify(password, stored)) {
+            return -1;
+        }
+
+        if (passwordHasher.needsRehash(stored)) {
+            // Only replaces the value just verified, in case another login upgraded it first
+            String upgradeSql = "UPDATE users SET password = ? WHERE id = ? AND password = ?";
+            try (PreparedStatement pstmt = conn.prepareStatement(upgradeSql)) {
+                pstmt.setString(1, passwordHasher.hash(password));
+                pstmt.setInt(2, userId);
+                pstmt.setString(3, stored);
+                pstmt.executeUpdate();
+            }
+        }
+        return userId;
+    }
+
+    /**
+     * Checks the credentials and, if they are valid, returns the user's session:
+     * their id and the ids of the courses they have reviewed. Returns null for
+     * an unknown user or a wrong password.
+     */
+    public Session openSession(String username, String password) {
+        String reviewedSql = "SELECT course_id FROM reviews WHERE user_id = ?";
+        long start = metrics.start();
+        try (Connection conn = pool.getConnection()) {
+            int userId = checkPassword(conn, username, password);
+            if (userId < 0) {
+                return metrics.record(Operation.OPEN_SESSION, start, null);
+            }
+
+            List<Integer> reviewedCourseIds = new ArrayList<>();
+            try (PreparedStatement pstmt = conn.prepareStatement(reviewedSql)) {
+                pstmt.setInt(1, userId);
+                ResultSet rs = pstmt.executeQuery();
+                while (rs.next()) {
+                    reviewedCourseIds.add(rs.getInt(1));
+                }
+            }
+            return metrics.record(Operation.OPEN_SESSION, start, new Session(userId, username, reviewedCourseIds));
         } catch (SQLException e) {
+            metrics.error(Operation.OPEN_SESSION, start, e);
             e.printStackTrace();
-            return false;
+            return null;
         }
     }
 
     public boolean createUser(String username, String password) {
         String sql = "INSERT INTO users (username, password) VALUES (?, ?)";
-        try (Connection conn = DriverManager.getConnection(URL);
+        // Hashed before a connection is taken, so the slow part holds no pooled connection
+        long start = metrics.start();
+        String hash = passwordHasher.hash(password);
+        try (Connection conn = pool.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
             pstmt.setString(1, username);
-            pstmt.setString(2, password);
+            pstmt.setString(2, hash);
             pstmt.executeUpdate();
+            metrics.record(Operation.CREATE_USER, start, 1);
             return true;
         } catch (SQLException e) {
             // Username already exists or other database error
+            metrics.error(Operation.CREATE_USER, start, e);
             return false;
         }
     }
 
+    /**
+     * Shorthand for {@link #createCourse} when the reason for a failure does not
+     * matter: the new course, or null.
+     */
     public Course addCourse(String subject, int number, String title) {
-        if (subject == null || subject.isEmpty() || number <= 0 || title == null || title.isEmpty()) {
-            return null;
+        return createCourse(subject, number, title).getValue();
+    }
+
+    /**
+     * Inserts a course and returns it as written. A course with the same
+     * subject, number and title already present is reported as DUPLICATE by
+     * the table's UNIQUE constraint.
+     */
+    public WriteResult<Course> createCourse(String subject, int number, String title) {
+        // Rows Course itself would reject are never written
+        long start = metrics.start();
+        if (!Course.isValidSubject(subject) || !Course.isValidNumber(number) || !Course.isValidTitle(title)) {
+            metrics.failed(Operation.CREATE_COURSE, start);
+            return WriteResult.failed(WriteResult.Status.INVALID);
         }
-        
-        String sql = "INSERT INTO courses (subject, number, title) VALUES (?, ?, ?)";
-        try (Connection conn = DriverManager.getConnection(URL);
+
+        String sql = "INSERT INTO courses (subject, number, title) VALUES (?, ?, ?) RETURNING id, subject, number, title";
+        Course course;
+        try (Connection conn = pool.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
             pstmt.setString(1, subject.toUpperCase());
             pstmt.setInt(2, number);
             pstmt.setString(3, title);
             
-            int affectedRows = pstmt.executeUpdate();
-            if (affectedRows == 0) {
-                return null;
-            }
-
-            // Get the last inserted ID
-            try (Statement stmt = conn.createStatement();
-                 ResultSet rs = stmt.executeQuery("SELECT last_insert_rowid()")) {
-                if (rs.next()) {
-                    int id = rs.getInt(1);
-                    Course course = new Course(id, subject, number, title);
-                    course.setAverageRating(calculateAverageRating(id));
-                    return course;
+            // A new course has no reviews yet, so its aggregates need no reading back
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) {
+                    metrics.failed(Operation.CREATE_COURSE, start);
+                    return WriteResult.failed(WriteResult.Status.ERROR);
                 }
+                course = new Course(rs.getInt("id"), rs.getString("subject"), rs.getInt("number"),
+                    rs.getString("title"));
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            metrics.error(Operation.CREATE_COURSE, start, e);
+            return writeFailure(e);
         }
-        return null;
+        refreshCatalog(course.getId());
+        return metrics.record(Operation.CREATE_COURSE, start, WriteResult.ok(course));
     }
 
     public Course getCourse(int courseId) {
+        long start = metrics.start();
         if (!isValidId(courseId)) {
-            return null;
+            return metrics.record(Operation.GET_COURSE, start, null);
         }
 
-        String sql = "SELECT * FROM courses WHERE id = ?";
-        try (Connection conn = DriverManager.getConnection(URL);
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setInt(1, courseId);
-            ResultSet rs = pstmt.executeQuery();
-            
-            if (rs.next()) {
-                Course course = new Course(
-                    rs.getInt("id"),
-                    rs.getString("subject"),
-                    rs.getInt("number"),
-                    rs.getString("title")
-                );
-                course.setAverageRating(calculateAverageRating(courseId));
-                return course;
+        try {
+            if (config.isCatalogEnabled()) {
+                return metrics.record(Operation.GET_COURSE, start, loadedCatalog().getCourse(courseId));
             }
         } catch (SQLException e) {
+            metrics.error(Operation.GET_COURSE, start, e);
             e.printStackTrace();
+            return null;
         }
-        return null;
-    }
 
-    private Double calculateAverageRating(int courseId) {
-        String sql = "SELECT AVG(CAST(rating AS DOUBLE)) as avg_rating FROM reviews WHERE course_id = ?";
-        try (Connection conn = DriverManager.getConnection(URL);
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setInt(1, courseId);
-            ResultSet rs = pstmt.executeQuery();
-            
-            if (rs.next()) {
-                double avg = rs.getDouble("avg_rating");
-                return rs.wasNull() ? null : avg;
-            }
+        try (Connection conn = pool.getConnection()) {
+            return metrics.record(Operation.GET_COURSE, start, findCourse(conn, COURSE_BY_ID_SQL, courseId));
         } catch (SQLException e) {
+            metrics.error(Operation.GET_COURSE, start, e);
             e.printStackTrace();
         }
         return null;
     }
 
     public List<Course> searchCourses(String subject, Integer number, String title) {
-        StringBuilder sql = new StringBuilder("SELECT * FROM courses WHERE 1=1");
+        return searchCourses(subject, number, title, null, ALL_ROWS).getItems();
+    }
+
+    /**
+     * One page of courses matching the filters, ordered by subject, number and
+     * title. Pass null for the first page and the previous page's last course
+     * for the following ones; a negative page size returns every match.
+     * Answered by the {@link CourseCatalog} unless catalog.enabled is off.
+     */
+    public Page<Course> searchCourses(String subject, Integer number, String title, Course after, int pageSize) {
+        long start = metrics.start();
+        if (config.isCatalogEnabled()) {
+            try {
+                return metrics.record(Operation.SEARCH_COURSES, start,
+                    loadedCatalog().search(subject, number, title, after, pageSize));
+            } catch (SQLException e) {
+                metrics.error(Operation.SEARCH_COURSES, start, e);
+                e.printStackTrace();
+                return Page.empty();
+            }
+        }
+
+        int filters = 0;
         List<Object> params = new ArrayList<>();
         
         if (subject != null && !subject.isEmpty()) {
-            sql.append(" AND UPPER(subject) = UPPER(?)");
+            filters |= FILTER_SUBJECT;
             params.add(subject);
         }
         if (number != null) {
-            sql.append(" AND number = ?");
+            filters |= FILTER_NUMBER;
             params.add(number);
         }
         if (title != null && !title.isEmpty()) {
-            sql.append(" AND UPPER(title) LIKE UPPER(?)");
-            params.add("%" + title + "%");
+            String match = FullTextQuery.toMatchExpression("title", title);
+            if (match != null) {
+                filters |= FILTER_TITLE_MATCH;
+                params.add(match);
+            } else {
+                // Nothing tokenizable (e.g. only punctuation), fall back to a substring match
+                filters |= FILTER_TITLE_LIKE;
+                params.add("%" + title + "%");
+            }
+        }
+        if (after != null) {
+            filters |= FILTER_AFTER;
+            params.add(after.getSubject());
+            params.add(after.getNumber());
+            params.add(after.getTitle());
         }
+        params.add(fetchLimit(pageSize));
 
         List<Course> courses = new ArrayList<>();
-        try (Connection conn = DriverManager.getConnection(URL);
-             PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+        try (Connection conn = pool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(SEARCH_SQL[filters])) {
             
             for (int i = 0; i < params.size(); i++) {
                 pstmt.setObject(i + 1, params.get(i));
@@ -201,192 +310,738 @@ public class DatabaseService {
             
             ResultSet rs = pstmt.executeQuery();
             while (rs.next()) {
-                Course course = new Course(
-                    rs.getInt("id"),
-                    rs.getString("subject"),
-                    rs.getInt("number"),
-                    rs.getString("title")
-                );
-                course.setAverageRating(calculateAverageRating(course.getId()));
-                courses.add(course);
+                courses.add(mapCourse(rs));
             }
         } catch (SQLException e) {
+            metrics.error(Operation.SEARCH_COURSES, start, e);
             e.printStackTrace();
+            return toPage(courses, pageSize);
         }
-        return courses;
+        return metrics.record(Operation.SEARCH_COURSES, start, toPage(courses, pageSize));
     }
 
-    public Review addReview(int userId, int courseId, int rating, String comment) {
-        // Validate inputs
-        if (!isValidId(userId) || !isValidId(courseId) || rating < 1 || rating > 5) {
-            return null;
+    /**
+     * Type-ahead search for search-as-you-type: the subject and number only
+     * need to start with what has been typed so far ("c", "31"), and every
+     * title word is a prefix. Ordered and paged like searchCourses. Always
+     * answered by the {@link CourseCatalog}, which is loaded on first use.
+     */
+    public Page<Course> suggestCourses(String subjectPrefix, String numberPrefix, String title,
+                                       Course after, int pageSize) {
+        long start = metrics.start();
+        try {
+            return metrics.record(Operation.SUGGEST_COURSES, start,
+                loadedCatalog().suggest(subjectPrefix, numberPrefix, title, after, pageSize));
+        } catch (SQLException e) {
+            metrics.error(Operation.SUGGEST_COURSES, start, e);
+            e.printStackTrace();
+            return Page.empty();
         }
-        
-        // Check if user and course exist
-        if (!userExists(userId) || !courseExists(courseId)) {
-            return null;
+    }
+
+    /**
+     * Typo-tolerant course search ("Opperating Systems"), ranked by edit
+     * distance and then average rating; see {@link CourseCatalog#fuzzySearch}.
+     * Pass null for number to search every course number.
+     */
+    public List<Course> searchCoursesFuzzy(String query, Integer number, int limit) {
+        long start = metrics.start();
+        try {
+            return metrics.record(Operation.SEARCH_COURSES_FUZZY, start,
+                loadedCatalog().fuzzySearch(query, number, limit));
+        } catch (SQLException e) {
+            metrics.error(Operation.SEARCH_COURSES_FUZZY, start, e);
+            e.printStackTrace();
+            return new ArrayList<>();
         }
+    }
 
-        String sql = "INSERT INTO reviews (user_id, course_id, rating, comment, timestamp) VALUES (?, ?, ?, ?, ?)";
-        try (Connection conn = DriverManager.getConnection(URL);
+    /**
+     * Full-text search over course subjects and titles, best matches first
+     * (bm25, with title hits weighted above subject hits). Quoted text is matched
+     * as a phrase and every other word as a prefix.
+     */
+    public List<Course> searchCoursesFullText(String query, int limit) {
+        long start = metrics.start();
+        List<Course> courses = new ArrayList<>();
+        String match = FullTextQuery.toMatchExpression(query);
+        if (match == null || limit <= 0) {
+            return metrics.record(Operation.SEARCH_COURSES_FULL_TEXT, start, courses);
+        }
+
+        String sql = COURSE_SELECT
+            + " JOIN courses_fts ON courses_fts.rowid = c.id"
+            + " WHERE courses_fts MATCH ?"
+            + " ORDER BY bm25(courses_fts, 1.0, 2.0)"
+            + " LIMIT ?";
+        try (Connection conn = pool.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setInt(1, userId);
-            pstmt.setInt(2, courseId);
-            pstmt.setInt(3, rating);
-            pstmt.setString(4, comment);
-            // Use local time when inserting
-            pstmt.setTimestamp(5, new Timestamp(System.currentTimeMillis()));
-            
-            int affectedRows = pstmt.executeUpdate();
-            if (affectedRows == 0) {
-                return null;
-            }
-
-            // Get the last inserted ID and return with local time
-            try (Statement stmt = conn.createStatement();  
-                 ResultSet rs = stmt.executeQuery("SELECT last_insert_rowid(), timestamp FROM reviews WHERE id = last_insert_rowid()")) {
-                if (rs.next()) {
-                    return new Review(
-                        rs.getInt(1),
-                        userId,
-                        courseId,
-                        rating,
-                        comment,
-                        rs.getTimestamp("timestamp")
-                    );
+            pstmt.setString(1, match);
+            pstmt.setInt(2, limit);
+            ResultSet rs = pstmt.executeQuery();
+            while (rs.next()) {
+                courses.add(mapCourse(rs));
+            }
+        } catch (SQLException e) {
+            metrics.error(Operation.SEARCH_COURSES_FULL_TEXT, start, e);
+            e.printStackTrace();
+            return courses;
+        }
+        return metrics.record(Operation.SEARCH_COURSES_FULL_TEXT, start, courses);
+    }
+
+    // Courses joined with their materialized rating aggregates, so a single
+    // query returns everything a Course needs without touching reviews
+    private static final String COURSE_SELECT = """
+        SELECT c.id, c.subject, c.number, c.title,
+               a.rating_sum, a.rating_count,
+               a.stars_1, a.stars_2, a.stars_3, a.stars_4, a.stars_5
+        FROM courses c
+        LEFT JOIN course_ratings a ON a.course_id = c.id""";
+
+    private static final String COURSE_BY_ID_SQL = COURSE_SELECT + " WHERE c.id = ?";
+
+    // searchCourses filters, combined as a bit mask indexing SEARCH_SQL
+    private static final int FILTER_SUBJECT = 1;
+    private static final int FILTER_NUMBER = 2;
+    private static final int FILTER_TITLE_MATCH = 4;
+    private static final int FILTER_TITLE_LIKE = 8;
+    private static final int FILTER_AFTER = 16;
+
+    // One fixed SQL string per filter combination, built once so every search
+    // with the same shape hits the same cached prepared statement
+    private static final String[] SEARCH_SQL = new String[32];
+
+    static {
+        for (int filters = 0; filters < SEARCH_SQL.length; filters++) {
+            StringBuilder sql = new StringBuilder(COURSE_SELECT).append(" WHERE 1=1");
+            if ((filters & FILTER_SUBJECT) != 0) {
+                sql.append(" AND c.subject = UPPER(?)");
+            }
+            if ((filters & FILTER_NUMBER) != 0) {
+                sql.append(" AND c.number = ?");
+            }
+            if ((filters & FILTER_TITLE_MATCH) != 0) {
+                sql.append(" AND c.id IN (SELECT rowid FROM courses_fts WHERE courses_fts MATCH ?)");
+            }
+            if ((filters & FILTER_TITLE_LIKE) != 0) {
+                sql.append(" AND UPPER(c.title) LIKE UPPER(?)");
+            }
+            if ((filters & FILTER_AFTER) != 0) {
+                // Keyset pagination along the UNIQUE(subject, number, title) index
+                sql.append(" AND (c.subject, c.number, c.title) > (?, ?, ?)");
+            }
+            sql.append(" ORDER BY c.subject, c.number, c.title LIMIT ?");
+            SEARCH_SQL[filters] = sql.toString();
+        }
+    }
+
+    private Course findCourse(Connection conn, String sql, Object... params) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++) {
+                pstmt.setObject(i + 1, params[i]);
+            }
+            ResultSet rs = pstmt.executeQuery();
+            return rs.next() ? mapCourse(rs) : null;
+        }
+    }
+
+    private Course mapCourse(ResultSet rs) throws SQLException {
+        return mapCourse(rs, "id");
+    }
+
+    private Course mapCourse(ResultSet rs, String idColumn) throws SQLException {
+        Course course = new Course(
+            rs.getInt(idColumn),
+            rs.getString("subject"),
+            rs.getInt("number"),
+            rs.getString("title")
+        );
+        int count = rs.getInt("rating_count");
+        course.setReviewCount(count);
+        course.setAverageRating(count > 0 ? rs.getDouble("rating_sum") / count : null);
+        int[] histogram = new int[5];
+        for (int stars = 1; stars <= 5; stars++) {
+            histogram[stars - 1] = rs.getInt("stars_" + stars);
+        }
+        course.setRatingHistogram(histogram);
+        return course;
+    }
+
+    // Loads the catalog on first use with a single query; afterwards it answers from memory
+    private CourseCatalog loadedCatalog() throws SQLException {
+        catalog.ensureLoaded(() -> {
+            List<Course> courses = new ArrayList<>();
+            try (Connection conn = pool.getConnection();
+                 Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery(COURSE_SELECT)) {
+                while (rs.next()) {
+                    courses.add(mapCourse(rs));
                 }
             }
+            return courses;
+        });
+        return catalog;
+    }
+
+    // Write-through after a change to one course. Callers must not hold a pooled
+    // connection here: the catalog lock is always taken before a connection.
+    private void refreshCatalog(int courseId) {
+        if (!config.isCatalogEnabled()) {
+            return;
+        }
+        try {
+            catalog.refresh(courseId, () -> {
+                try (Connection conn = pool.getConnection()) {
+                    return findCourse(conn, COURSE_BY_ID_SQL, courseId);
+                }
+            });
         } catch (SQLException e) {
+            // The course is missing from the catalog now; reload everything on the next read
+            catalog.invalidate();
             e.printStackTrace();
         }
-        return null;
+    }
+
+    // Written reviews are read back in the same statement
+    private static final String REVIEW_RETURNING = " RETURNING id, user_id, course_id, rating, comment, timestamp";
+    private static final String INSERT_REVIEW_SQL =
+        "INSERT INTO reviews (user_id, course_id, rating, comment, timestamp) VALUES (?, ?, ?, ?, ?)";
+    private static final String UPSERT_REVIEW_SQL = INSERT_REVIEW_SQL +
+        " ON CONFLICT (user_id, course_id) DO UPDATE SET" +
+        " rating = excluded.rating, comment = excluded.comment, timestamp = excluded.timestamp";
+
+    /**
+     * Shorthand for {@link #createReview} when the reason for a failure does not
+     * matter: the new review, or null.
+     */
+    public Review addReview(int userId, int courseId, int rating, String comment) {
+        return createReview(userId, courseId, rating, comment).getValue();
+    }
+
+    /**
+     * Inserts a review in one statement. Ids that cannot exist and ratings
+     * outside 1-5 are INVALID without a query; otherwise the table's
+     * constraints do the checking: an unknown user or course is
+     * MISSING_REFERENCE and a second review of the same course DUPLICATE.
+     * With db.foreignKeys off, nothing checks that the user and course exist,
+     * so a review of an unknown one is written and reported as OK.
+     */
+    public WriteResult<Review> createReview(int userId, int courseId, int rating, String comment) {
+        return writeReview(Operation.CREATE_REVIEW, INSERT_REVIEW_SQL + REVIEW_RETURNING, userId, courseId, rating,
+            comment);
+    }
+
+    /**
+     * Creates the user's review of the course, or replaces the rating and
+     * comment of the one they already have, atomically in one statement.
+     */
+    public WriteResult<Review> saveReview(int userId, int courseId, int rating, String comment) {
+        return writeReview(Operation.SAVE_REVIEW, UPSERT_REVIEW_SQL + REVIEW_RETURNING, userId, courseId, rating,
+            comment);
+    }
+
+    private WriteResult<Review> writeReview(Operation operation, String sql, int userId, int courseId, int rating,
+                                            String comment) {
+        if (!isValidId(userId) || !isValidId(courseId) || !isValidRating(rating)) {
+            return invalidWrite(operation);
+        }
+        // Use local time when inserting
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        return runReviewWrite(operation, conn -> {
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setInt(1, userId);
+                pstmt.setInt(2, courseId);
+                pstmt.setInt(3, rating);
+                pstmt.setString(4, comment);
+                pstmt.setTimestamp(5, now);
+                return returnedReview(pstmt);
+            }
+        });
+    }
+
+    /**
+     * Runs one review write: through the group-commit queue when
+     * writes.groupCommit is on (returning once its batch has committed),
+     * otherwise as its own auto-commit statement. NOT_FOUND when the write
+     * found no row to change.
+     */
+    private WriteResult<Review> runReviewWrite(Operation operation, ReviewWriteQueue.Mutation mutation) {
+        long start = metrics.start();
+        WriteResult<Review> result;
+        if (config.isGroupCommit()) {
+            result = ReviewWriteQueue.forConfig(config, pool).submit(mutation).join();
+        } else {
+            try (Connection conn = pool.getConnection()) {
+                Review review = mutation.apply(conn);
+                result = review != null ? WriteResult.ok(review) : WriteResult.failed(WriteResult.Status.NOT_FOUND);
+            } catch (SQLException e) {
+                metrics.error(operation, start, e);
+                return writeFailure(e);
+            }
+        }
+        // The returned row says which course to refresh, so no lookup is needed first
+        if (result.isOk()) {
+            refreshCatalog(result.getValue().getCourseId());
+        }
+        if (result.isOk() || result.getStatus() == WriteResult.Status.NOT_FOUND) {
+            metrics.record(operation, start, result.getValue());
+        } else {
+            // Rejected in the group-commit writer, where the exception stays
+            metrics.failed(operation, start);
+        }
+        return result;
+    }
+
+    // Runs a write ending in RETURNING; the statement only completes (and, in
+    // auto-commit mode, commits) once its result set is closed
+    private Review returnedReview(PreparedStatement pstmt) throws SQLException {
+        try (ResultSet rs = pstmt.executeQuery()) {
+            return rs.next() ? mapReview(rs) : null;
+        }
+    }
+
+    // SQLite's primary result code for a violated constraint
+    private static final int SQLITE_CONSTRAINT = 19;
+
+    /**
+     * Maps a failed write to why it failed. Constraint violations are expected
+     * outcomes and are not logged; anything else is.
+     */
+    static <T> WriteResult<T> writeFailure(SQLException e) {
+        String message = String.valueOf(e.getMessage());
+        if ((e.getErrorCode() & 0xff) == SQLITE_CONSTRAINT) {
+            if (message.contains("FOREIGN KEY")) {
+                return WriteResult.failed(WriteResult.Status.MISSING_REFERENCE);
+            }
+            if (message.contains("UNIQUE") || message.contains("PRIMARY KEY")) {
+                return WriteResult.failed(WriteResult.Status.DUPLICATE);
+            }
+            if (message.contains("CHECK") || message.contains("NOT NULL")) {
+                return WriteResult.failed(WriteResult.Status.INVALID);
+            }
+        }
+        e.printStackTrace();
+        return WriteResult.failed(WriteResult.Status.ERROR);
     }
 
     public List<Review> getReviewsForCourse(int courseId) {
-        String sql = "SELECT * FROM reviews WHERE course_id = ? ORDER BY timestamp DESC";
-        List<Review> reviews = new ArrayList<>();
-        
-        try (Connection conn = DriverManager.getConnection(URL);
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setInt(1, courseId);
+        return getReviewsForCourse(courseId, null, ALL_ROWS).getItems();
+    }
+
+    /**
+     * One page of a course's reviews, newest first. Pass null for the first page
+     * and the previous page's last review for the following ones.
+     */
+    public Page<Review> getReviewsForCourse(int courseId, Review after, int pageSize) {
+        return findReviews(Operation.GET_REVIEWS_FOR_COURSE,
+            after == null ? REVIEWS_FOR_COURSE_SQL : REVIEWS_FOR_COURSE_AFTER_SQL, courseId, after, pageSize);
+    }
+
+    public List<Review> getUserReviews(int userId) {
+        return getUserReviews(userId, null, ALL_ROWS).getItems();
+    }
+
+    /**
+     * One page of a user's reviews, newest first. Pass null for the first page
+     * and the previous page's last review for the following ones.
+     */
+    public Page<Review> getUserReviews(int userId, Review after, int pageSize) {
+        return findReviews(Operation.GET_USER_REVIEWS, after == null ? USER_REVIEWS_SQL : USER_REVIEWS_AFTER_SQL,
+            userId, after, pageSize);
+    }
+
+    /**
+     * One page of a user's reviews, newest first, each with its course and the
+     * course's rating aggregates, read in a single joined query. Pages like
+     * {@link #getUserReviews(int, Review, int)}: pass the previous page's last
+     * review as the cursor.
+     */
+    public Page<ReviewDisplay> getUserReviewDisplays(int userId, Review after, int pageSize) {
+        return findPage(Operation.GET_USER_REVIEW_DISPLAYS,
+            after == null ? USER_REVIEW_DISPLAYS_SQL : USER_REVIEW_DISPLAYS_AFTER_SQL,
+            userId, after, pageSize, rs -> new ReviewDisplay(mapReview(rs), mapCourse(rs, "course_id")));
+    }
+
+    // Reviews are listed by (timestamp, id) descending; id breaks ties between equal
+    // timestamps so a page boundary never skips or repeats a row
+    private static final String REVIEWS_FOR_COURSE_SQL =
+        "SELECT * FROM reviews WHERE course_id = ? ORDER BY timestamp DESC, id DESC LIMIT ?";
+    private static final String REVIEWS_FOR_COURSE_AFTER_SQL =
+        "SELECT * FROM reviews WHERE course_id = ? AND (timestamp, id) < (?, ?) ORDER BY timestamp DESC, id DESC LIMIT ?";
+    private static final String USER_REVIEWS_SQL =
+        "SELECT * FROM reviews WHERE user_id = ? ORDER BY timestamp DESC, id DESC LIMIT ?";
+    private static final String USER_REVIEWS_AFTER_SQL =
+        "SELECT * FROM reviews WHERE user_id = ? AND (timestamp, id) < (?, ?) ORDER BY timestamp DESC, id DESC LIMIT ?";
+
+    private static final String USER_REVIEW_DISPLAYS_SELECT = """
+        SELECT r.id, r.user_id, r.course_id, r.rating, r.comment, r.timestamp,
+               c.subject, c.number, c.title,
+               a.rating_sum, a.rating_count,
+               a.stars_1, a.stars_2, a.stars_3, a.stars_4, a.stars_5
+        FROM reviews r
+        JOIN courses c ON c.id = r.course_id
+        LEFT JOIN course_ratings a ON a.course_id = r.course_id
+        WHERE r.user_id = ?""";
+    private static final String USER_REVIEW_DISPLAYS_SQL = USER_REVIEW_DISPLAYS_SELECT
+        + " ORDER BY r.timestamp DESC, r.id DESC LIMIT ?";
+    private static final String USER_REVIEW_DISPLAYS_AFTER_SQL = USER_REVIEW_DISPLAYS_SELECT
+        + " AND (r.timestamp, r.id) < (?, ?) ORDER BY r.timestamp DESC, r.id DESC LIMIT ?";
+
+    private interface RowMapper<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
+
+    private Page<Review> findReviews(Operation operation, String sql, int ownerId, Review after, int pageSize) {
+        return findPage(operation, sql, ownerId, after, pageSize, this::mapReview);
+    }
+
+    private <T> Page<T> findPage(Operation operation, String sql, int ownerId, Review after, int pageSize,
+                                 RowMapper<T> mapper) {
+        long start = metrics.start();
+        try (Connection conn = pool.getConnection()) {
+            return metrics.record(operation, start, findPage(conn, sql, ownerId, after, pageSize, mapper));
+        } catch (SQLException e) {
+            metrics.error(operation, start, e);
+            e.printStackTrace();
+        }
+        return Page.empty();
+    }
+
+    private <T> Page<T> findPage(Connection conn, String sql, int ownerId, Review after, int pageSize,
+                                 RowMapper<T> mapper) throws SQLException {
+        List<T> rows = new ArrayList<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            int index = 1;
+            pstmt.setInt(index++, ownerId);
+            if (after != null) {
+                pstmt.setTimestamp(index++, after.getTimestamp());
+                pstmt.setInt(index++, after.getId());
+            }
+            pstmt.setInt(index, fetchLimit(pageSize));
             ResultSet rs = pstmt.executeQuery();
-            
+
             while (rs.next()) {
-                reviews.add(new Review(
-                    rs.getInt("id"),
-                    rs.getInt("user_id"),
-                    rs.getInt("course_id"),
-                    rs.getInt("rating"),
-                    rs.getString("comment"),
-                    rs.getTimestamp("timestamp")
-                ));
+                rows.add(mapper.map(rs));
             }
+        }
+        return toPage(rows, pageSize);
+    }
+
+    /**
+     * The user's review of the course, or null if they have not written one.
+     */
+    public Review getUserReviewForCourse(int userId, int courseId) {
+        long start = metrics.start();
+        try (Connection conn = pool.getConnection()) {
+            return metrics.record(Operation.GET_USER_REVIEW_FOR_COURSE, start, findUserReview(conn, userId, courseId));
         } catch (SQLException e) {
+            metrics.error(Operation.GET_USER_REVIEW_FOR_COURSE, start, e);
             e.printStackTrace();
         }
-        return reviews;
+        return null;
     }
 
-    public List<Review> getUserReviews(int userId) {
-        String sql = "SELECT * FROM reviews WHERE user_id = ? ORDER BY timestamp DESC";
-        List<Review> reviews = new ArrayList<>();
-        
-        try (Connection conn = DriverManager.getConnection(URL);
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
+    private Review findUserReview(Connection conn, int userId, int courseId) throws SQLException {
+        String sql = "SELECT * FROM reviews WHERE user_id = ? AND course_id = ?";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, userId);
+            pstmt.setInt(2, courseId);
             ResultSet rs = pstmt.executeQuery();
-            
-            while (rs.next()) {
-                reviews.add(new Review(
-                    rs.getInt("id"),
-                    rs.getInt("user_id"),
-                    rs.getInt("course_id"),
-                    rs.getInt("rating"),
-                    rs.getString("comment"),
-                    rs.getTimestamp("timestamp")
-                ));
+            return rs.next() ? mapReview(rs) : null;
+        }
+    }
+
+    /**
+     * The course with its aggregates, its first page of reviews (newest first)
+     * and the user's own review, read in one transaction on one connection so
+     * they are consistent with each other. Returns null if the course does not
+     * exist or the database cannot be read.
+     */
+    public CoursePageSnapshot getCoursePageSnapshot(int courseId, int userId, int pageSize) {
+        long start = metrics.start();
+        if (!isValidId(courseId)) {
+            return metrics.record(Operation.GET_COURSE_PAGE_SNAPSHOT, start, null);
+        }
+
+        try (Connection conn = pool.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try {
+                Course course = findCourse(conn, COURSE_BY_ID_SQL, courseId);
+                CoursePageSnapshot snapshot = null;
+                if (course != null) {
+                    Page<Review> reviews = findPage(conn, REVIEWS_FOR_COURSE_SQL, courseId, null, pageSize,
+                        this::mapReview);
+                    Review userReview = isValidId(userId) ? findUserReview(conn, userId, courseId) : null;
+                    snapshot = new CoursePageSnapshot(course, reviews, userReview);
+                }
+                conn.commit();
+                // Rows: the reviews on the page
+                metrics.record(Operation.GET_COURSE_PAGE_SNAPSHOT, start,
+                    snapshot == null ? 0 : snapshot.getReviews().getItems().size());
+                return snapshot;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
             }
         } catch (SQLException e) {
+            metrics.error(Operation.GET_COURSE_PAGE_SNAPSHOT, start, e);
             e.printStackTrace();
         }
-        return reviews;
+        return null;
     }
 
-    public boolean updateReview(int reviewId, int rating, String comment) {
-        if (!isValidId(reviewId) || rating < 1 || rating > 5) {
-            return false;
+    // Page size meaning "no limit" for the list-returning methods
+    private static final int ALL_ROWS = -1;
+
+    // One row beyond the page tells whether another page follows; LIMIT -1 is unlimited in SQLite
+    private static int fetchLimit(int pageSize) {
+        return pageSize < 0 ? -1 : pageSize + 1;
+    }
+
+    private static <T> Page<T> toPage(List<T> rows, int pageSize) {
+        if (pageSize >= 0 && rows.size() > pageSize) {
+            return new Page<>(rows.subList(0, pageSize), true);
+        }
+        return new Page<>(rows, false);
+    }
+
+    /**
+     * Full-text search over one user's reviews. A review matches if its comment
+     * or its course's subject/title matches the query. The two indexes' bm25
+     * scores are not comparable, so comment matches come first, then course
+     * matches, each ranked by its own index's bm25.
+     */
+    public List<Review> searchUserReviews(int userId, String query) {
+        long start = metrics.start();
+        List<Review> reviews = new ArrayList<>();
+        String match = FullTextQuery.toMatchExpression(query);
+        if (match == null || !isValidId(userId)) {
+            return metrics.record(Operation.SEARCH_USER_REVIEWS, start, reviews);
         }
 
-        String sql = "UPDATE reviews SET rating = ?, comment = ?, timestamp = ? WHERE id = ?";
-        try (Connection conn = DriverManager.getConnection(URL);
+        String sql = """
+            SELECT r.*, 0 AS source, bm25(reviews_fts) AS score
+            FROM reviews_fts JOIN reviews r ON r.id = reviews_fts.rowid
+            WHERE reviews_fts MATCH ? AND r.user_id = ?
+            UNION ALL
+            SELECT r.*, 1 AS source, bm25(courses_fts) AS score
+            FROM courses_fts JOIN reviews r ON r.course_id = courses_fts.rowid
+            WHERE courses_fts MATCH ? AND r.user_id = ?
+            ORDER BY source, score
+        """;
+        try (Connection conn = pool.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setInt(1, rating);
-            pstmt.setString(2, comment);
-            // Use local time when updating
-            pstmt.setTimestamp(3, new Timestamp(System.currentTimeMillis()));
-            pstmt.setInt(4, reviewId);
-            
-            return pstmt.executeUpdate() > 0;
+            pstmt.setString(1, match);
+            pstmt.setInt(2, userId);
+            pstmt.setString(3, match);
+            pstmt.setInt(4, userId);
+            ResultSet rs = pstmt.executeQuery();
+
+            // A review can match through both its comment and its course
+            Set<Integer> seen = new HashSet<>();
+            while (rs.next()) {
+                if (seen.add(rs.getInt("id"))) {
+                    reviews.add(mapReview(rs));
+                }
+            }
         } catch (SQLException e) {
+            metrics.error(Operation.SEARCH_USER_REVIEWS, start, e);
             e.printStackTrace();
-            return false;
+            return reviews;
         }
+        return metrics.record(Operation.SEARCH_USER_REVIEWS, start, reviews);
+    }
+
+    private Review mapReview(ResultSet rs) throws SQLException {
+        return new Review(
+            rs.getInt("id"),
+            rs.getInt("user_id"),
+            rs.getInt("course_id"),
+            rs.getInt("rating"),
+            rs.getString("comment"),
+            rs.getTimestamp("timestamp")
+        );
+    }
+
+    /**
+     * Shorthand for {@link #changeReview}: whether the review was updated.
+     */
+    public boolean updateReview(int reviewId, int rating, String comment) {
+        return changeReview(reviewId, rating, comment).isOk();
     }
 
+    /**
+     * Replaces a review's rating and comment and returns it as written, or
+     * NOT_FOUND if there is no such review. INVALID for a rating outside 1-5.
+     */
+    public WriteResult<Review> changeReview(int reviewId, int rating, String comment) {
+        if (!isValidId(reviewId) || !isValidRating(rating)) {
+            return invalidWrite(Operation.CHANGE_REVIEW);
+        }
+        String sql = "UPDATE reviews SET rating = ?, comment = ?, timestamp = ? WHERE id = ?" + REVIEW_RETURNING;
+        // Use local time when updating
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        return runReviewWrite(Operation.CHANGE_REVIEW, conn -> {
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setInt(1, rating);
+                pstmt.setString(2, comment);
+                pstmt.setTimestamp(3, now);
+                pstmt.setInt(4, reviewId);
+                return returnedReview(pstmt);
+            }
+        });
+    }
+
+    /**
+     * Shorthand for {@link #removeReview}: whether the review was deleted.
+     */
     public boolean deleteReview(int reviewId) {
+        return removeReview(reviewId).isOk();
+    }
+
+    /**
+     * Deletes a review and returns it as it was, or NOT_FOUND if there is no
+     * such review.
+     */
+    public WriteResult<Review> removeReview(int reviewId) {
         if (!isValidId(reviewId)) {
-            return false;
+            return invalidWrite(Operation.REMOVE_REVIEW);
         }
+        String sql = "DELETE FROM reviews WHERE id = ?" + REVIEW_RETURNING;
+        return runReviewWrite(Operation.REMOVE_REVIEW, conn -> {
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setInt(1, reviewId);
+                return returnedReview(pstmt);
+            }
+        });
+    }
 
-        String sql = "DELETE FROM reviews WHERE id = ?";
-        try (Connection conn = DriverManager.getConnection(URL);
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setInt(1, reviewId);
-            return pstmt.executeUpdate() > 0;
-        } catch (SQLException e) {
-            e.printStackTrace();
-            return false;
-        }
+    /**
+     * The group-commit queue behind review writes when writes.groupCommit is
+     * on, for its throughput metrics; null otherwise.
+     */
+    public ReviewWriteQueue getReviewWriteQueue() {
+        return config.isGroupCommit() ? ReviewWriteQueue.forConfig(config, pool) : null;
     }
 
     public int getUserId(String username) {
         String sql = "SELECT id FROM users WHERE username = ?";
-        try (Connection conn = DriverManager.getConnection(URL);
+        long start = metrics.start();
+        try (Connection conn = pool.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
             pstmt.setString(1, username);
             ResultSet rs = pstmt.executeQuery();
             
             if (rs.next()) {
+                metrics.record(Operation.GET_USER_ID, start, 1);
                 return rs.getInt("id");
             }
+            metrics.record(Operation.GET_USER_ID, start, 0);
             return -1;
         } catch (SQLException e) {
+            metrics.error(Operation.GET_USER_ID, start, e);
             e.printStackTrace();
             return -1;
         }
     }
 
+    /**
+     * Recomputes every course's rating aggregates from the reviews table. Use it
+     * to repair a database whose aggregates were reported by checkAggregates().
+     */
+    public boolean rebuildAggregates() {
+        long start = metrics.start();
+        try (Connection conn = pool.getConnection()) {
+            rebuildAggregates(conn);
+            metrics.record(Operation.REBUILD_AGGREGATES, start, 0);
+            return true;
+        } catch (SQLException e) {
+            metrics.error(Operation.REBUILD_AGGREGATES, start, e);
+            e.printStackTrace();
+            return false;
+        } finally {
+            catalog.invalidate();
+        }
+    }
+
+    private void rebuildAggregates(Connection conn) throws SQLException {
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(SchemaMigrations.DELETE_AGGREGATES_SQL);
+            stmt.execute(SchemaMigrations.REBUILD_AGGREGATES_SQL);
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    /**
+     * Compares the stored rating aggregates against the reviews table and returns
+     * the ids of courses whose aggregates are missing or out of date. An empty
+     * list means the database is consistent.
+     */
+    public List<Integer> checkAggregates() {
+        String sql = """
+            SELECT c.id FROM courses c
+            LEFT JOIN course_ratings a ON a.course_id = c.id
+            LEFT JOIN (SELECT course_id, SUM(rating) AS total, COUNT(*) AS n,
+                              SUM(rating = 1) AS s1, SUM(rating = 2) AS s2, SUM(rating = 3) AS s3,
+                              SUM(rating = 4) AS s4, SUM(rating = 5) AS s5
+                       FROM reviews GROUP BY course_id) t ON t.course_id = c.id
+            WHERE a.course_id IS NULL
+               OR a.rating_sum IS NOT COALESCE(t.total, 0)
+               OR a.rating_count IS NOT COALESCE(t.n, 0)
+               OR a.stars_1 IS NOT COALESCE(t.s1, 0)
+               OR a.stars_2 IS NOT COALESCE(t.s2, 0)
+               OR a.stars_3 IS NOT COALESCE(t.s3, 0)
+               OR a.stars_4 IS NOT COALESCE(t.s4, 0)
+               OR a.stars_5 IS NOT COALESCE(t.s5, 0)
+            ORDER BY c.id
+        """;
+        List<Integer> inconsistent = new ArrayList<>();
+        long start = metrics.start();
+        try (Connection conn = pool.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                inconsistent.add(rs.getInt(1));
+            }
+        } catch (SQLException e) {
+            metrics.error(Operation.CHECK_AGGREGATES, start, e);
+            e.printStackTrace();
+            return inconsistent;
+        }
+        return metrics.record(Operation.CHECK_AGGREGATES, start, inconsistent);
+    }
+
     public void clearDatabase() {
-        try (Connection conn = DriverManager.getConnection(URL);
+        try (Connection conn = pool.getConnection();
              Statement stmt = conn.createStatement()) {
             stmt.execute("DELETE FROM reviews");
             stmt.execute("DELETE FROM courses");
             stmt.execute("DELETE FROM users");
+            stmt.execute("DELETE FROM course_ratings");
             // Reset auto-increment counters
             stmt.execute("DELETE FROM sqlite_sequence");
         } catch (SQLException e) {
             e.printStackTrace();
+        } finally {
+            catalog.invalidate();
         }
     }
 
     public void printTableContents() {
-        try (Connection conn = DriverManager.getConnection(URL)) {
+        try (Connection conn = pool.getConnection()) {
             // Print users
             try (Statement stmt = conn.createStatement();
                  ResultSet rs = stmt.executeQuery("SELECT * FROM users")) {
@@ -427,37 +1082,32 @@ public class DatabaseService {
         return id > 0;
     }
 
-    private boolean userExists(int userId) {
-        String sql = "SELECT 1 FROM users WHERE id = ?";
-        try (Connection conn = DriverManager.getConnection(URL);
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setInt(1, userId);
-            ResultSet rs = pstmt.executeQuery();
-            return rs.next();
-        } catch (SQLException e) {
-            e.printStackTrace();
-            return false;
-        }
+    private boolean isValidRating(int rating) {
+        return rating >= 1 && rating <= 5;
     }
 
-    private boolean courseExists(int courseId) {
-        String sql = "SELECT 1 FROM courses WHERE id = ?";
-        try (Connection conn = DriverManager.getConnection(URL);
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setInt(1, courseId);
-            ResultSet rs = pstmt.executeQuery();
-            return rs.next();
-        } catch (SQLException e) {
-            e.printStackTrace();
-            return false;
-        }
+    // A write rejected before reaching the database
+    private WriteResult<Review> invalidWrite(Operation operation) {
+        metrics.failed(operation, metrics.start());
+        return WriteResult.failed(WriteResult.Status.INVALID);
     }
 
     public int getCourseIdBySubjectAndNumber(String subject, int number) {
-        String sql = "SELECT id FROM courses WHERE subject = ? AND number = ?";
-        try (Connection conn = DriverManager.getConnection(URL);
+        long start = metrics.start();
+        if (config.isCatalogEnabled()) {
+            try {
+                int courseId = loadedCatalog().getCourseId(subject, number);
+                metrics.record(Operation.GET_COURSE_ID, start, courseId > 0 ? 1 : 0);
+                return courseId;
+            } catch (SQLException e) {
+                metrics.error(Operation.GET_COURSE_ID, start, e);
+                e.printStackTrace();
+                return -1;
+            }
+        }
+
+        String sql = "SELECT id FROM courses WHERE subject = UPPER(?) AND number = ?";
+        try (Connection conn = pool.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
             pstmt.setString(1, subject);
@@ -465,10 +1115,13 @@ public class DatabaseService {
             ResultSet rs = pstmt.executeQuery();
             
             if (rs.next()) {
+                metrics.record(Operation.GET_COURSE_ID, start, 1);
                 return rs.getInt("id");
             }
+            metrics.record(Operation.GET_COURSE_ID, start, 0);
             return -1;
         } catch (SQLException e) {
+            metrics.error(Operation.GET_COURSE_ID, start, e);
             e.printStackTrace();
             return -1;
         }
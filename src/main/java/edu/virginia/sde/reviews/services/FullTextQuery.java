@@ -0,0 +1,128 @@
+package edu.virginia.sde.reviews.services;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Turns free text typed by a user into a safe FTS5 MATCH expression.
+ *
+ * Text inside double quotes becomes a phrase query; every other word becomes a
+ * prefix query, so "soft dev" matches "Software Development". All terms must
+ * match. Words are split the same way the unicode61 tokenizer splits them, and
+ * everything is re-quoted, so FTS5 operators typed by the user are treated as
+ * plain text rather than query syntax.
+ */
+final class FullTextQuery {
+    private FullTextQuery() {
+    }
+
+    /**
+     * Returns the MATCH expression for the given input, or null if the input
+     * contains no searchable words.
+     */
+    static String toMatchExpression(String input) {
+        List<String> expressions = new ArrayList<>();
+        for (Term term : parseTerms(input)) {
+            expressions.add(quote(String.join(" ", term.words)) + (term.prefix ? "*" : ""));
+        }
+        return expressions.isEmpty() ? null : String.join(" ", expressions);
+    }
+
+    /**
+     * Same as {@link #toMatchExpression(String)} but restricted to one column of
+     * the full-text table.
+     */
+    static String toMatchExpression(String column, String input) {
+        String expression = toMatchExpression(input);
+        return expression == null ? null : column + " : (" + expression + ")";
+    }
+
+    /**
+     * The terms of the query as the in-memory catalog matches them: lower-cased,
+     * without diacritics, like the unicode61 tokenizer.
+     */
+    static List<Term> parseTerms(String input) {
+        List<Term> terms = new ArrayList<>();
+        if (input == null) {
+            return terms;
+        }
+
+        int i = 0;
+        while (i < input.length()) {
+            char ch = input.charAt(i);
+            if (ch == '"') {
+                int end = input.indexOf('"', i + 1);
+                if (end < 0) {
+                    end = input.length();
+                }
+                List<String> words = words(input.substring(i + 1, end));
+                if (!words.isEmpty()) {
+                    terms.add(new Term(words, false));
+                }
+                i = end + 1;
+            } else if (isWordChar(ch)) {
+                int end = i;
+                while (end < input.length() && isWordChar(input.charAt(end))) {
+                    end++;
+                }
+                terms.add(new Term(List.of(normalize(input.substring(i, end))), true));
+                i = end;
+            } else {
+                i++;
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Splits text into normalized words, the same way titles are tokenized.
+     */
+    static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char ch = text.charAt(i);
+            if (isWordChar(ch)) {
+                current.append(ch);
+            } else if (current.length() > 0) {
+                words.add(normalize(current.toString()));
+                current.setLength(0);
+            }
+        }
+        if (current.length() > 0) {
+            words.add(normalize(current.toString()));
+        }
+        return words;
+    }
+
+    // Case and diacritics do not matter to FTS5, so an accented word matches its plain spelling
+    private static String normalize(String word) {
+        String decomposed = Normalizer.normalize(word, Normalizer.Form.NFD);
+        return decomposed.replaceAll("\\p{M}", "").toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean isWordChar(char ch) {
+        return Character.isLetterOrDigit(ch);
+    }
+
+    private static String quote(String text) {
+        // Only letters, digits and spaces reach here, so there is nothing to escape
+        return "\"" + text + "\"";
+    }
+
+    /**
+     * One query term: a single word matched as a prefix, or a quoted phrase
+     * whose words must appear consecutively.
+     */
+    static final class Term {
+        final List<String> words;
+        final boolean prefix;
+
+        Term(List<String> words, boolean prefix) {
+            this.words = words;
+            this.prefix = prefix;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package edu.virginia.sde.reviews.services;
+
+import edu.virginia.sde.reviews.models.Course;
+
+import java.sql.Timestamp;
+import java.util.Locale;
+
+/**
+ * One row of bulk-import input: a user, a course or a review. Reviews refer to
+ * their user by username and to their course by subject and number, so input
+ * files never need database ids.
+ */
+public class ImportRecord {
+    public enum Type { USER, COURSE, REVIEW }
+
+    private final Type type;
+    private final String username;
+    private final String password;
+    private final String subject;
+    private final int number;
+    private final String title;
+    private final int rating;
+    private final String comment;
+    private final Timestamp timestamp;
+
+    private ImportRecord(Type type, String username, String password, String subject, int number,
+                         String title, int rating, String comment, Timestamp timestamp) {
+        this.type = type;
+        this.username = username;
+        this.password = password;
+        this.subject = subject == null ? null : subject.toUpperCase(Locale.ROOT);
+        this.number = number;
+        this.title = title;
+        this.rating = rating;
+        this.comment = comment;
+        this.timestamp = timestamp;
+    }
+
+    public static ImportRecord user(String username, String password) {
+        if (username == null || username.isEmpty() || password == null || password.isEmpty()) {
+            throw new IllegalArgumentException("User needs a username and password");
+        }
+        return new ImportRecord(Type.USER, username, password, null, 0, null, 0, null, null);
+    }
+
+    /**
+     * A course; the same subject, number and title rules as {@link Course} apply.
+     */
+    public static ImportRecord course(String subject, int number, String title) {
+        if (!Course.isValidSubject(subject) || !Course.isValidNumber(number) || !Course.isValidTitle(title)) {
+            throw new IllegalArgumentException(
+                "Course needs a 2-4 letter subject, 4-digit number and title of at most 50 characters");
+        }
+        return new ImportRecord(Type.COURSE, null, null, subject, number, title, 0, null, null);
+    }
+
+    /**
+     * A review; a null timestamp means "now".
+     */
+    public static ImportRecord review(String username, String subject, int number, int rating,
+                                      String comment, Timestamp timestamp) {
+        if (username == null || username.isEmpty() || subject == null || subject.isEmpty()) {
+            throw new IllegalArgumentException("Review needs a username and course subject");
+        }
+        if (rating < 1 || rating > 5) {
+            throw new IllegalArgumentException("Rating must be between 1 and 5");
+        }
+        return new ImportRecord(Type.REVIEW, username, null, subject, number, null, rating, comment,
+            timestamp != null ? timestamp : new Timestamp(System.currentTimeMillis()));
+    }
+
+    // Getters
+    public Type getType() { return type; }
+    public String getUsername() { return username; }
+    public String getPassword() { return password; }
+    public String getSubject() { return subject; }
+    public int getNumber() { return number; }
+    public String getTitle() { return title; }
+    public int getRating() { return rating; }
+    public String getComment() { return comment; }
+    public Timestamp getTimestamp() { return timestamp; }
+
+    /**
+     * The record as one CSV line that {@link ImportRecordParser} reads back;
+     * timestamps are written as epoch milliseconds.
+     */
+    public String toCsv() {
+        return switch (type) {
+            case USER -> String.join(",", "user", csvField(username), csvField(password));
+            case COURSE -> String.join(",", "course", subject, Integer.toString(number), csvField(title));
+            case REVIEW -> String.join(",", "review", csvField(username), subject, Integer.toString(number),
+                Integer.toString(rating), csvField(comment == null ? "" : comment),
+                Long.toString(timestamp.getTime()));
+        };
+    }
+
+    /**
+     * The record as one JSONL line that {@link ImportRecordParser} reads back.
+     */
+    public String toJson() {
+        return switch (type) {
+            case USER -> "{\"type\":\"user\",\"username\":" + jsonString(username)
+                + ",\"password\":" + jsonString(password) + "}";
+            case COURSE -> "{\"type\":\"course\",\"subject\":" + jsonString(subject) + ",\"number\":" + number
+                + ",\"title\":" + jsonString(title) + "}";
+            case REVIEW -> "{\"type\":\"review\",\"username\":" + jsonString(username)
+                + ",\"subject\":" + jsonString(subject) + ",\"number\":" + number
+                + ",\"rating\":" + rating + ",\"comment\":" + (comment == null ? "null" : jsonString(comment))
+                + ",\"timestamp\":" + timestamp.getTime() + "}";
+        };
+    }
+
+    // Fields are read a line at a time, so a line break cannot be quoted
+    private static String csvField(String value) {
+        if (value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+            throw new IllegalArgumentException("CSV fields cannot contain line breaks");
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.strip().equals(value)) {
+            return value;
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    private static String jsonString(String value) {
+        StringBuilder json = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+                }
+            }
+        }
+        return json.append('"').toString();
+    }
+}
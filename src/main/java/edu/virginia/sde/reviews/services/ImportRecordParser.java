@@ -0,0 +1,291 @@
+package edu.virginia.sde.reviews.services;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Turns one line of bulk-import input into an {@link ImportRecord}.
+ *
+ * CSV lines start with the record type:
+ * <pre>
+ * user,&lt;username&gt;,&lt;password&gt;
+ * course,&lt;subject&gt;,&lt;number&gt;,&lt;title&gt;
+ * review,&lt;username&gt;,&lt;subject&gt;,&lt;number&gt;,&lt;rating&gt;,&lt;comment&gt;[,&lt;timestamp&gt;]
+ * </pre>
+ * Fields may be double-quoted (with "" for a literal quote) but cannot span lines.
+ *
+ * JSONL lines are flat objects with a "type" field and the same field names, e.g.
+ * {@code {"type":"course","subject":"CS","number":3140,"title":"Software Development Methods"}}.
+ *
+ * Timestamps are epoch milliseconds, an ISO-8601 instant, or a local date-time
+ * such as {@code 2024-12-05T10:00:00} or {@code 2024-12-05 10:00:00}.
+ */
+final class ImportRecordParser {
+    private ImportRecordParser() {
+    }
+
+    /**
+     * Returns the record on the line, or null for blank lines, {@code #} comments
+     * and CSV header lines. Throws IllegalArgumentException for malformed input.
+     */
+    static ImportRecord parse(String line, boolean json) {
+        String trimmed = line.strip();
+        if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+            return null;
+        }
+        return json ? parseJson(trimmed) : parseCsv(trimmed);
+    }
+
+    static ImportRecord parseCsv(String line) {
+        List<String> fields = splitCsv(line);
+        String type = fields.get(0).strip().toLowerCase(Locale.ROOT);
+        switch (type) {
+            case "type":
+                // Header row
+                return null;
+            case "user":
+                expectFields(fields, 3, 3);
+                return ImportRecord.user(fields.get(1), fields.get(2));
+            case "course":
+                expectFields(fields, 4, 4);
+                return ImportRecord.course(fields.get(1).strip(), parseInt(fields.get(2), "number"), fields.get(3));
+            case "review":
+                expectFields(fields, 6, 7);
+                return ImportRecord.review(fields.get(1), fields.get(2).strip(), parseInt(fields.get(3), "number"),
+                    parseInt(fields.get(4), "rating"), fields.get(5),
+                    fields.size() == 7 ? parseTimestamp(fields.get(6)) : null);
+            default:
+                throw new IllegalArgumentException("Unknown record type: " + type);
+        }
+    }
+
+    static ImportRecord parseJson(String line) {
+        Map<String, String> object = new JsonObjectReader(line).read();
+        String type = object.get("type");
+        if (type == null) {
+            throw new IllegalArgumentException("Missing \"type\" field");
+        }
+        switch (type.toLowerCase(Locale.ROOT)) {
+            case "user":
+                return ImportRecord.user(object.get("username"), object.get("password"));
+            case "course":
+                return ImportRecord.course(object.get("subject"), parseInt(object.get("number"), "number"),
+                    object.get("title"));
+            case "review":
+                return ImportRecord.review(object.get("username"), object.get("subject"),
+                    parseInt(object.get("number"), "number"), parseInt(object.get("rating"), "rating"),
+                    object.get("comment"), parseTimestamp(object.get("timestamp")));
+            default:
+                throw new IllegalArgumentException("Unknown record type: " + type);
+        }
+    }
+
+    static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    static Timestamp parseTimestamp(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        String text = value.strip();
+        try {
+            if (text.chars().allMatch(Character::isDigit)) {
+                return new Timestamp(Long.parseLong(text));
+            }
+            if (text.endsWith("Z") || text.matches(".*[+-]\\d\\d:\\d\\d$")) {
+                return Timestamp.from(Instant.parse(text));
+            }
+            return Timestamp.valueOf(LocalDateTime.parse(text.replace(' ', 'T')));
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid timestamp: " + value);
+        }
+    }
+
+    private static void expectFields(List<String> fields, int min, int max) {
+        if (fields.size() < min || fields.size() > max) {
+            throw new IllegalArgumentException("Expected " + (min == max ? min : min + "-" + max)
+                + " fields for " + fields.get(0) + " but found " + fields.size());
+        }
+    }
+
+    private static int parseInt(String value, String name) {
+        if (value == null) {
+            throw new IllegalArgumentException("Missing " + name);
+        }
+        try {
+            return Integer.parseInt(value.strip());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + name + ": " + value);
+        }
+    }
+
+    /**
+     * Reads a single flat JSON object. Values are returned as strings (numbers and
+     * booleans in their literal form, null as a missing key); nested objects and
+     * arrays are rejected since no import record needs them.
+     */
+    private static final class JsonObjectReader {
+        private final String text;
+        private int pos;
+
+        JsonObjectReader(String text) {
+            this.text = text;
+        }
+
+        Map<String, String> read() {
+            Map<String, String> object = new HashMap<>();
+            expect('{');
+            skipWhitespace();
+            if (peek() == '}') {
+                pos++;
+            } else {
+                while (true) {
+                    skipWhitespace();
+                    String key = readString();
+                    skipWhitespace();
+                    expect(':');
+                    skipWhitespace();
+                    String value = readValue();
+                    if (value != null) {
+                        object.put(key, value);
+                    }
+                    skipWhitespace();
+                    if (peek() == ',') {
+                        pos++;
+                    } else {
+                        expect('}');
+                        break;
+                    }
+                }
+            }
+            skipWhitespace();
+            if (pos != text.length()) {
+                throw error("Unexpected trailing content");
+            }
+            return object;
+        }
+
+        private String readValue() {
+            char c = peek();
+            if (c == '"') {
+                return readString();
+            }
+            if (c == '{' || c == '[') {
+                throw error("Nested values are not supported");
+            }
+            int start = pos;
+            while (pos < text.length() && ",} \t".indexOf(text.charAt(pos)) < 0) {
+                pos++;
+            }
+            String literal = text.substring(start, pos);
+            if (literal.equals("null")) {
+                return null;
+            }
+            if (literal.equals("true") || literal.equals("false") || literal.matches("-?\\d+(\\.\\d+)?([eE][+-]?\\d+)?")) {
+                return literal;
+            }
+            throw error("Invalid value '" + literal + "'");
+        }
+
+        private String readString() {
+            expect('"');
+            StringBuilder value = new StringBuilder();
+            while (true) {
+                if (pos >= text.length()) {
+                    throw error("Unterminated string");
+                }
+                char c = text.charAt(pos++);
+                if (c == '"') {
+                    return value.toString();
+                }
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                if (pos >= text.length()) {
+                    throw error("Unterminated escape");
+                }
+                char escaped = text.charAt(pos++);
+                switch (escaped) {
+                    case '"', '\\', '/' -> value.append(escaped);
+                    case 'b' -> value.append('\b');
+                    case 'f' -> value.append('\f');
+                    case 'n' -> value.append('\n');
+                    case 'r' -> value.append('\r');
+                    case 't' -> value.append('\t');
+                    case 'u' -> {
+                        if (pos + 4 > text.length()) {
+                            throw error("Invalid unicode escape");
+                        }
+                        try {
+                            value.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw error("Invalid unicode escape");
+                        }
+                        pos += 4;
+                    }
+                    default -> throw error("Invalid escape \\" + escaped);
+                }
+            }
+        }
+
+        private char peek() {
+            if (pos >= text.length()) {
+                throw error("Unexpected end of line");
+            }
+            return text.charAt(pos);
+        }
+
+        private void expect(char c) {
+            if (peek() != c) {
+                throw error("Expected '" + c + "'");
+            }
+            pos++;
+        }
+
+        private void skipWhitespace() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at column " + (pos + 1));
+        }
+    }
+}
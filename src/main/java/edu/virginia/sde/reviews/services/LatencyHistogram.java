@@ -0,0 +1,108 @@
+package edu.virginia.sde.reviews.services;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-size histogram of durations in nanoseconds that any number of threads
+ * can record into without locking or allocating.
+ *
+ * Buckets are log-linear: every power of two is split into {@value #SUB_BUCKETS}
+ * equal buckets, so a reported percentile is at most 12.5% above the true
+ * value, from single nanoseconds up to about 18 minutes. Longer durations
+ * land in the last bucket; the maximum is tracked exactly.
+ *
+ * Reads are not a consistent snapshot: a percentile computed while other
+ * threads record may include some of their values and not others.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // Powers of two up to 2^40 ns
+    private static final int MAX_EXPONENT = 40;
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        buckets.incrementAndGet(bucketOf(value));
+        count.incrementAndGet();
+        totalNanos.addAndGet(value);
+        maxNanos.accumulateAndGet(value, Math::max);
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    public double getMeanNanos() {
+        long n = count.get();
+        return n == 0 ? 0.0 : (double) totalNanos.get() / n;
+    }
+
+    /**
+     * The smallest recorded duration that at least the given fraction (0-1) of
+     * recordings do not exceed, rounded up to its bucket's upper bound; 0 when
+     * nothing has been recorded.
+     */
+    public long getPercentileNanos(double fraction) {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += buckets.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(fraction * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return Math.min(upperBound(i), getMaxNanos());
+            }
+        }
+        return getMaxNanos();
+    }
+
+    /**
+     * Clears every bucket. Recordings made during a reset may be partly lost.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.set(i, 0);
+        }
+        count.set(0);
+        totalNanos.set(0);
+        maxNanos.set(0);
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        int sub = bucket % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        return ((long) (SUB_BUCKETS + sub) << (exponent - SUB_BUCKET_BITS)) + width - 1;
+    }
+}
@@ -0,0 +1,18 @@
+package edu.virginia.sde.reviews.services;
+
+/**
+ * JMX view of one DatabaseService operation, registered by {@link DataLayerMetrics}
+ * as {@code edu.virginia.sde.reviews:type=DataLayer,database=...,operation=<method>}.
+ * Latencies are in microseconds.
+ */
+public interface OperationMetricsMXBean {
+    String getOperation();
+    long getCalls();
+    long getErrors();
+    long getRows();
+    double getMeanMicros();
+    double getP50Micros();
+    double getP95Micros();
+    double getP99Micros();
+    double getMaxMicros();
+}
@@ -0,0 +1,117 @@
+package edu.virginia.sde.reviews.services;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Salted PBKDF2 (HMAC-SHA256) password hashes, stored as
+ * {@code pbkdf2$<iterations>$<salt>$<hash>} with Base64 salt and hash.
+ *
+ * The iteration count is the cost knob (auth.iterations): each stored hash
+ * records its own count, so raising the setting only affects new hashes and
+ * those upgraded at login (see {@link #needsRehash(String)}). Rows written
+ * before hashing hold the plain password; they still verify, and are rehashed
+ * on the next successful login.
+ *
+ * Hashing is deliberately slow, so it must never run on the JavaFX Application
+ * Thread; the controllers reach it through {@link AsyncDatabaseService}.
+ */
+public final class PasswordHasher {
+    public static final int DEFAULT_ITERATIONS = 210_000;
+    // Below this the hash is no real obstacle, so configurations are rejected
+    public static final int MIN_ITERATIONS = 1_000;
+
+    private static final String PREFIX = "pbkdf2";
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    // Hashed for unknown users, so they take as long to reject as wrong passwords
+    private static final byte[] DUMMY_SALT = new byte[SALT_BYTES];
+
+    private final int iterations;
+
+    public PasswordHasher(int iterations) {
+        if (iterations < MIN_ITERATIONS) {
+            throw new IllegalArgumentException("auth.iterations must be at least " + MIN_ITERATIONS);
+        }
+        this.iterations = iterations;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    public String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        RANDOM.nextBytes(salt);
+        byte[] hash = pbkdf2(password, salt, iterations);
+        Base64.Encoder base64 = Base64.getEncoder();
+        return PREFIX + "$" + iterations + "$" + base64.encodeToString(salt) + "$" + base64.encodeToString(hash);
+    }
+
+    /**
+     * Whether the password matches the stored value, which is either a hash
+     * from {@link #hash(String)} or a legacy plain password. A null stored
+     * value (no such user) costs a full hash too and never matches.
+     */
+    public boolean verify(String password, String stored) {
+        if (stored == null) {
+            pbkdf2(password, DUMMY_SALT, iterations);
+            return false;
+        }
+        if (!isHashed(stored)) {
+            return MessageDigest.isEqual(stored.getBytes(StandardCharsets.UTF_8),
+                password.getBytes(StandardCharsets.UTF_8));
+        }
+        String[] parts = stored.split("\\$");
+        if (parts.length != 4) {
+            return false;
+        }
+        try {
+            int storedIterations = Integer.parseInt(parts[1]);
+            Base64.Decoder base64 = Base64.getDecoder();
+            byte[] salt = base64.decode(parts[2]);
+            byte[] expected = base64.decode(parts[3]);
+            // MessageDigest.isEqual compares in time independent of where the bytes differ
+            return storedIterations > 0 && MessageDigest.isEqual(expected, pbkdf2(password, salt, storedIterations));
+        } catch (IllegalArgumentException e) {
+            // Malformed iteration count or Base64
+            return false;
+        }
+    }
+
+    /**
+     * Whether a stored value should be replaced after a successful login: it is
+     * a legacy plain password or was hashed with a different iteration count.
+     */
+    public boolean needsRehash(String stored) {
+        if (!isHashed(stored)) {
+            return true;
+        }
+        String[] parts = stored.split("\\$");
+        return parts.length != 4 || !parts[1].equals(Integer.toString(iterations));
+    }
+
+    public static boolean isHashed(String stored) {
+        return stored != null && stored.startsWith(PREFIX + "$");
+    }
+
+    private static byte[] pbkdf2(String password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            // Every Java 8+ runtime ships PBKDF2WithHmacSHA256
+            throw new IllegalStateException(ALGORITHM + " is not available", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
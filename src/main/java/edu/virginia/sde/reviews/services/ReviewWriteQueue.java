@@ -0,0 +1,285 @@
+package edu.virginia.sde.reviews.services;
+
+import edu.virginia.sde.reviews.models.Review;
+import edu.virginia.sde.reviews.models.WriteResult;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Group commit for review writes (writes.groupCommit). Callers queue their
+ * insert, update or delete; one writer thread per database takes them off the
+ * queue and commits them together, so a burst of N writes pays for one
+ * transaction and one fsync instead of N.
+ *
+ * A batch is closed when it reaches writes.batchSize mutations or
+ * writes.maxDelayMillis after its first one arrived, whichever comes first.
+ * Each mutation runs under its own savepoint, so one that breaks a constraint
+ * is rolled back alone and the rest of its batch still commits. Futures are
+ * completed only after the batch has committed; if the commit itself fails,
+ * every write in the batch fails with it.
+ *
+ * The queue holds at most writes.queueSize mutations; when it is full,
+ * {@link #submit(Mutation)} blocks until the writer catches up. Writes
+ * submitted after the queue has been closed fail with ERROR.
+ */
+public class ReviewWriteQueue {
+    private static final Map<String, ReviewWriteQueue> QUEUES = new ConcurrentHashMap<>();
+    // How often an idle writer checks whether it has been closed
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    /**
+     * One review write, run on the writer's connection inside the open batch
+     * transaction. Returns the written (or deleted) review, or null if there
+     * was no row to change.
+     */
+    interface Mutation {
+        Review apply(Connection conn) throws SQLException;
+    }
+
+    private final ConnectionPool pool;
+    private final int batchSize;
+    private final long maxDelayNanos;
+    private final BlockingQueue<Pending> queue;
+    private final Thread writer;
+    private volatile boolean closed = false;
+    // Submits hold the read lock from their closed check until they are queued, and
+    // close() takes the write lock, so nothing is queued after the writer may have left
+    private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+
+    private final long startNanos = System.nanoTime();
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong committed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong largestBatch = new AtomicLong();
+    private final AtomicLong commitNanos = new AtomicLong();
+    private final AtomicLong blockedSubmits = new AtomicLong();
+
+    ReviewWriteQueue(ConnectionPool pool, int batchSize, long maxDelayMillis, int capacity) {
+        this.pool = pool;
+        this.batchSize = batchSize;
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.writer = new Thread(this::run, "review-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * The shared queue for the configured database, started on first use.
+     */
+    static ReviewWriteQueue forConfig(DatabaseConfig config, ConnectionPool pool) {
+        return QUEUES.compute(config.getJdbcUrl(), (url, existing) -> {
+            if (existing != null && existing.pool == pool && !existing.closed) {
+                return existing;
+            }
+            // The pool it wrote through has been shut down and replaced
+            if (existing != null) {
+                existing.close();
+            }
+            return new ReviewWriteQueue(pool, config.getWriteBatchSize(), config.getWriteMaxDelayMillis(),
+                config.getWriteQueueSize());
+        });
+    }
+
+    /**
+     * Commits everything already queued and stops the writers. Call before
+     * {@link ConnectionPool#shutdownAll()}.
+     */
+    public static void shutdownAll() {
+        for (ReviewWriteQueue queue : QUEUES.values()) {
+            queue.close();
+        }
+        QUEUES.clear();
+    }
+
+    /**
+     * Queues a write; the future completes once it has committed (or failed).
+     */
+    CompletableFuture<WriteResult<Review>> submit(Mutation mutation) {
+        Pending pending = new Pending(mutation);
+        closeLock.readLock().lock();
+        try {
+            if (closed) {
+                pending.future.complete(WriteResult.failed(WriteResult.Status.ERROR));
+                return pending.future;
+            }
+            if (!queue.offer(pending)) {
+                // Backpressure: wait for room rather than letting the backlog grow without bound.
+                // The writer keeps draining while close() waits for this lock.
+                blockedSubmits.incrementAndGet();
+                try {
+                    queue.put(pending);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    pending.future.complete(WriteResult.failed(WriteResult.Status.ERROR));
+                    return pending.future;
+                }
+            }
+        } finally {
+            closeLock.readLock().unlock();
+        }
+        submitted.incrementAndGet();
+        return pending.future;
+    }
+
+    void close() {
+        closeLock.writeLock().lock();
+        try {
+            closed = true;
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        try {
+            while (!closed || !queue.isEmpty()) {
+                Pending first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < batchSize) {
+                    // Whatever is queued already joins the batch, then it waits out the delay
+                    Pending next = queue.poll();
+                    if (next == null) {
+                        long remaining = deadline - System.nanoTime();
+                        next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    }
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                commit(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Anything left after an interrupt is failed rather than left hanging
+        for (Pending pending : batch) {
+            pending.future.complete(WriteResult.failed(WriteResult.Status.ERROR));
+        }
+        Pending pending;
+        while ((pending = queue.poll()) != null) {
+            pending.future.complete(WriteResult.failed(WriteResult.Status.ERROR));
+        }
+    }
+
+    private void commit(List<Pending> batch) {
+        long start = System.nanoTime();
+        List<WriteResult<Review>> results = new ArrayList<>(batch.size());
+        try (Connection conn = pool.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                for (Pending pending : batch) {
+                    results.add(apply(conn, pending.mutation));
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            // The transaction is gone, so nothing in the batch was written
+            failed.addAndGet(batch.size());
+            WriteResult<Review> failure = DatabaseService.writeFailure(e);
+            for (Pending pending : batch) {
+                pending.future.complete(WriteResult.failed(failure.getStatus()));
+            }
+            return;
+        }
+
+        commitNanos.addAndGet(System.nanoTime() - start);
+        batches.incrementAndGet();
+        largestBatch.accumulateAndGet(batch.size(), Math::max);
+        for (int i = 0; i < batch.size(); i++) {
+            WriteResult<Review> result = results.get(i);
+            (result.isOk() ? committed : failed).incrementAndGet();
+            batch.get(i).future.complete(result);
+        }
+    }
+
+    // Runs one mutation under a savepoint so its failure does not undo the others
+    private static WriteResult<Review> apply(Connection conn, Mutation mutation) throws SQLException {
+        Savepoint savepoint = conn.setSavepoint();
+        try {
+            Review review = mutation.apply(conn);
+            conn.releaseSavepoint(savepoint);
+            return review != null ? WriteResult.ok(review) : WriteResult.failed(WriteResult.Status.NOT_FOUND);
+        } catch (SQLException e) {
+            conn.rollback(savepoint);
+            conn.releaseSavepoint(savepoint);
+            return DatabaseService.writeFailure(e);
+        }
+    }
+
+    // Getters
+    public int getQueueDepth() { return queue.size(); }
+    public long getSubmittedCount() { return submitted.get(); }
+    public long getCommittedCount() { return committed.get(); }
+    public long getFailedCount() { return failed.get(); }
+    public long getBatchCount() { return batches.get(); }
+    public long getLargestBatch() { return largestBatch.get(); }
+    public long getBlockedSubmitCount() { return blockedSubmits.get(); }
+
+    public double getAverageBatchSize() {
+        long count = getBatchCount();
+        return count == 0 ? 0.0 : (double) (getCommittedCount() + getFailedCount()) / count;
+    }
+
+    public double getAverageCommitMillis() {
+        long count = getBatchCount();
+        return count == 0 ? 0.0 : commitNanos.get() / 1e6 / count;
+    }
+
+    /**
+     * Committed writes per second since the queue started.
+     */
+    public double getThroughput() {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        return seconds <= 0 ? 0.0 : getCommittedCount() / seconds;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ReviewWriteQueue[depth=%d, submitted=%d, committed=%d, failed=%d, batches=%d, " +
+                "avgBatch=%.1f, largestBatch=%d, avgCommit=%.2f ms, blockedSubmits=%d, throughput=%.0f/s]",
+            getQueueDepth(), getSubmittedCount(), getCommittedCount(), getFailedCount(), getBatchCount(),
+            getAverageBatchSize(), getLargestBatch(), getAverageCommitMillis(), getBlockedSubmitCount(),
+            getThroughput());
+    }
+
+    private static final class Pending {
+        final Mutation mutation;
+        final CompletableFuture<WriteResult<Review>> future = new CompletableFuture<>();
+
+        Pending(Mutation mutation) {
+            this.mutation = mutation;
+        }
+    }
+}
@@ -0,0 +1,387 @@
+package edu.virginia.sde.reviews.services;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * Versioned schema migrations keyed on SQLite's {@code PRAGMA user_version}.
+ *
+ * Each migration runs once, in order, inside its own transaction, and bumps
+ * user_version when it commits. Databases created before versioning existed
+ * report version 0; every step is written to be safe on such a database, so
+ * they are upgraded in place. To change the schema, append a new migration;
+ * never edit one that has already shipped.
+ */
+public final class SchemaMigrations {
+    // Recomputes course_ratings from the reviews table
+    static final String DELETE_AGGREGATES_SQL = "DELETE FROM course_ratings";
+    static final String REBUILD_AGGREGATES_SQL = """
+        INSERT INTO course_ratings (course_id, rating_sum, rating_count,
+                                    stars_1, stars_2, stars_3, stars_4, stars_5)
+        SELECT c.id, COALESCE(SUM(r.rating), 0), COUNT(r.id),
+               COUNT(CASE WHEN r.rating = 1 THEN 1 END),
+               COUNT(CASE WHEN r.rating = 2 THEN 1 END),
+               COUNT(CASE WHEN r.rating = 3 THEN 1 END),
+               COUNT(CASE WHEN r.rating = 4 THEN 1 END),
+               COUNT(CASE WHEN r.rating = 5 THEN 1 END)
+        FROM courses c
+        LEFT JOIN reviews r ON r.course_id = c.id
+        GROUP BY c.id
+    """;
+
+    // Courses with the same subject (ignoring case), number and title as an older course
+    private static final String MERGED_COURSES_SQL = """
+        SELECT c.id FROM courses c
+        WHERE EXISTS (SELECT 1 FROM courses k WHERE k.id < c.id AND UPPER(k.subject) = UPPER(c.subject)
+                      AND k.number = c.number AND k.title = c.title)
+    """;
+    // For a row of reviews: the oldest course its course is a case variant of (or itself)
+    private static final String OLDEST_SAME_COURSE_SQL = """
+        SELECT MIN(k.id) FROM courses k JOIN courses c ON c.id = reviews.course_id
+        WHERE UPPER(k.subject) = UPPER(c.subject) AND k.number = c.number AND k.title = c.title
+    """;
+    // Reviews by a user who also has a newer review (by timestamp, then id) of the same merged course
+    private static final String SUPERSEDED_REVIEWS_SQL = """
+        SELECT id FROM (
+            SELECT r.id, ROW_NUMBER() OVER (PARTITION BY r.user_id, UPPER(c.subject), c.number, c.title
+                                            ORDER BY r.timestamp DESC, r.id DESC) AS position
+            FROM reviews r JOIN courses c ON c.id = r.course_id
+        ) WHERE position > 1
+    """;
+
+    private static final List<Migration> MIGRATIONS = List.of(
+        new Migration(1, "Create users, courses and reviews tables",
+            """
+                CREATE TABLE IF NOT EXISTS users (
+                    id INTEGER PRIMARY KEY AUTOINCREMENT,
+                    username TEXT UNIQUE NOT NULL,
+                    password TEXT NOT NULL
+                )
+            """,
+
+            """
+                CREATE TABLE IF NOT EXISTS courses (
+                    id INTEGER PRIMARY KEY AUTOINCREMENT,
+                    subject TEXT NOT NULL,
+                    number INTEGER NOT NULL,
+                    title TEXT NOT NULL,
+                    UNIQUE(subject, number, title)
+                )
+            """,
+
+            """
+                CREATE TABLE IF NOT EXISTS reviews (
+                    id INTEGER PRIMARY KEY AUTOINCREMENT,
+                    user_id INTEGER NOT NULL,
+                    course_id INTEGER NOT NULL,
+                    rating INTEGER NOT NULL CHECK (rating >= 1 AND rating <= 5),
+                    comment TEXT,
+                    timestamp TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                    FOREIGN KEY (user_id) REFERENCES users(id),
+                    FOREIGN KEY (course_id) REFERENCES courses(id),
+                    UNIQUE(user_id, course_id)
+                )
+            """
+        ),
+
+        new Migration(2, "Materialized per-course rating aggregates",
+            """
+                CREATE TABLE IF NOT EXISTS course_ratings (
+                    course_id INTEGER PRIMARY KEY,
+                    rating_sum INTEGER NOT NULL DEFAULT 0,
+                    rating_count INTEGER NOT NULL DEFAULT 0,
+                    stars_1 INTEGER NOT NULL DEFAULT 0,
+                    stars_2 INTEGER NOT NULL DEFAULT 0,
+                    stars_3 INTEGER NOT NULL DEFAULT 0,
+                    stars_4 INTEGER NOT NULL DEFAULT 0,
+                    stars_5 INTEGER NOT NULL DEFAULT 0
+                )
+            """,
+
+            """
+                CREATE TRIGGER IF NOT EXISTS course_ratings_on_course_insert
+                AFTER INSERT ON courses
+                BEGIN
+                    INSERT OR IGNORE INTO course_ratings (course_id) VALUES (NEW.id);
+                END
+            """,
+
+            """
+                CREATE TRIGGER IF NOT EXISTS course_ratings_on_review_insert
+                AFTER INSERT ON reviews
+                BEGIN
+                    INSERT OR IGNORE INTO course_ratings (course_id) VALUES (NEW.course_id);
+                    UPDATE course_ratings SET
+                        rating_sum = rating_sum + NEW.rating,
+                        rating_count = rating_count + 1,
+                        stars_1 = stars_1 + (NEW.rating = 1),
+                        stars_2 = stars_2 + (NEW.rating = 2),
+                        stars_3 = stars_3 + (NEW.rating = 3),
+                        stars_4 = stars_4 + (NEW.rating = 4),
+                        stars_5 = stars_5 + (NEW.rating = 5)
+                    WHERE course_id = NEW.course_id;
+                END
+            """,
+
+            """
+                CREATE TRIGGER IF NOT EXISTS course_ratings_on_review_delete
+                AFTER DELETE ON reviews
+                BEGIN
+                    UPDATE course_ratings SET
+                        rating_sum = rating_sum - OLD.rating,
+                        rating_count = rating_count - 1,
+                        stars_1 = stars_1 - (OLD.rating = 1),
+                        stars_2 = stars_2 - (OLD.rating = 2),
+                        stars_3 = stars_3 - (OLD.rating = 3),
+                        stars_4 = stars_4 - (OLD.rating = 4),
+                        stars_5 = stars_5 - (OLD.rating = 5)
+                    WHERE course_id = OLD.course_id;
+                END
+            """,
+
+            """
+                CREATE TRIGGER IF NOT EXISTS course_ratings_on_review_update
+                AFTER UPDATE OF rating, course_id ON reviews
+                BEGIN
+                    UPDATE course_ratings SET
+                        rating_sum = rating_sum - OLD.rating,
+                        rating_count = rating_count - 1,
+                        stars_1 = stars_1 - (OLD.rating = 1),
+                        stars_2 = stars_2 - (OLD.rating = 2),
+                        stars_3 = stars_3 - (OLD.rating = 3),
+                        stars_4 = stars_4 - (OLD.rating = 4),
+                        stars_5 = stars_5 - (OLD.rating = 5)
+                    WHERE course_id = OLD.course_id;
+                    INSERT OR IGNORE INTO course_ratings (course_id) VALUES (NEW.course_id);
+                    UPDATE course_ratings SET
+                        rating_sum = rating_sum + NEW.rating,
+                        rating_count = rating_count + 1,
+                        stars_1 = stars_1 + (NEW.rating = 1),
+                        stars_2 = stars_2 + (NEW.rating = 2),
+                        stars_3 = stars_3 + (NEW.rating = 3),
+                        stars_4 = stars_4 + (NEW.rating = 4),
+                        stars_5 = stars_5 + (NEW.rating = 5)
+                    WHERE course_id = NEW.course_id;
+                END
+            """,
+
+            DELETE_AGGREGATES_SQL,
+            REBUILD_AGGREGATES_SQL
+        ),
+
+        new Migration(3, "Full-text indexes over courses and reviews",
+            """
+                CREATE VIRTUAL TABLE IF NOT EXISTS courses_fts USING fts5(
+                    subject, title,
+                    content = 'courses', content_rowid = 'id',
+                    tokenize = 'unicode61', prefix = '2 3'
+                )
+            """,
+
+            """
+                CREATE VIRTUAL TABLE IF NOT EXISTS reviews_fts USING fts5(
+                    comment,
+                    content = 'reviews', content_rowid = 'id',
+                    tokenize = 'unicode61', prefix = '2 3'
+                )
+            """,
+
+            """
+                CREATE TRIGGER IF NOT EXISTS courses_fts_insert
+                AFTER INSERT ON courses
+                BEGIN
+                    INSERT INTO courses_fts (rowid, subject, title) VALUES (NEW.id, NEW.subject, NEW.title);
+                END
+            """,
+
+            """
+                CREATE TRIGGER IF NOT EXISTS courses_fts_delete
+                AFTER DELETE ON courses
+                BEGIN
+                    INSERT INTO courses_fts (courses_fts, rowid, subject, title)
+                    VALUES ('delete', OLD.id, OLD.subject, OLD.title);
+                END
+            """,
+
+            """
+                CREATE TRIGGER IF NOT EXISTS courses_fts_update
+                AFTER UPDATE OF subject, title ON courses
+                BEGIN
+                    INSERT INTO courses_fts (courses_fts, rowid, subject, title)
+                    VALUES ('delete', OLD.id, OLD.subject, OLD.title);
+                    INSERT INTO courses_fts (rowid, subject, title) VALUES (NEW.id, NEW.subject, NEW.title);
+                END
+            """,
+
+            """
+                CREATE TRIGGER IF NOT EXISTS reviews_fts_insert
+                AFTER INSERT ON reviews
+                BEGIN
+                    INSERT INTO reviews_fts (rowid, comment) VALUES (NEW.id, NEW.comment);
+                END
+            """,
+
+            """
+                CREATE TRIGGER IF NOT EXISTS reviews_fts_delete
+                AFTER DELETE ON reviews
+                BEGIN
+                    INSERT INTO reviews_fts (reviews_fts, rowid, comment) VALUES ('delete', OLD.id, OLD.comment);
+                END
+            """,
+
+            """
+                CREATE TRIGGER IF NOT EXISTS reviews_fts_update
+                AFTER UPDATE OF comment ON reviews
+                BEGIN
+                    INSERT INTO reviews_fts (reviews_fts, rowid, comment) VALUES ('delete', OLD.id, OLD.comment);
+                    INSERT INTO reviews_fts (rowid, comment) VALUES (NEW.id, NEW.comment);
+                END
+            """,
+
+            "INSERT INTO courses_fts (courses_fts) VALUES ('rebuild')",
+            "INSERT INTO reviews_fts (reviews_fts) VALUES ('rebuild')"
+        ),
+
+        new Migration(4, "Secondary indexes for review listings and course lookups",
+            // Subjects are stored upper-case so lookups can compare them directly
+            // and use the (subject, number, title) unique index
+            "UPDATE OR IGNORE courses SET subject = UPPER(subject) WHERE subject <> UPPER(subject)",
+            // Reviews of a course / by a user, newest first, without a sort step
+            "CREATE INDEX IF NOT EXISTS idx_reviews_course_timestamp ON reviews (course_id, timestamp, id)",
+            "CREATE INDEX IF NOT EXISTS idx_reviews_user_timestamp ON reviews (user_id, timestamp, id)",
+            // Number-only course searches; subject lookups are served by the unique index
+            "CREATE INDEX IF NOT EXISTS idx_courses_number ON courses (number)"
+        ),
+
+        // Inside an upsert (INSERT ... ON CONFLICT DO UPDATE) the triggers' INSERT OR IGNORE
+        // loses its IGNORE and fails on the existing course_ratings row, so the aggregate
+        // row is created with an explicit NOT EXISTS check instead
+        new Migration(5, "Rating triggers that work under upserts",
+            "DROP TRIGGER IF EXISTS course_ratings_on_review_insert",
+            """
+                CREATE TRIGGER course_ratings_on_review_insert
+                AFTER INSERT ON reviews
+                BEGIN
+                    INSERT INTO course_ratings (course_id) SELECT NEW.course_id
+                    WHERE NOT EXISTS (SELECT 1 FROM course_ratings WHERE course_id = NEW.course_id);
+                    UPDATE course_ratings SET
+                        rating_sum = rating_sum + NEW.rating,
+                        rating_count = rating_count + 1,
+                        stars_1 = stars_1 + (NEW.rating = 1),
+                        stars_2 = stars_2 + (NEW.rating = 2),
+                        stars_3 = stars_3 + (NEW.rating = 3),
+                        stars_4 = stars_4 + (NEW.rating = 4),
+                        stars_5 = stars_5 + (NEW.rating = 5)
+                    WHERE course_id = NEW.course_id;
+                END
+            """,
+
+            "DROP TRIGGER IF EXISTS course_ratings_on_review_update",
+            """
+                CREATE TRIGGER course_ratings_on_review_update
+                AFTER UPDATE OF rating, course_id ON reviews
+                BEGIN
+                    UPDATE course_ratings SET
+                        rating_sum = rating_sum - OLD.rating,
+                        rating_count = rating_count - 1,
+                        stars_1 = stars_1 - (OLD.rating = 1),
+                        stars_2 = stars_2 - (OLD.rating = 2),
+                        stars_3 = stars_3 - (OLD.rating = 3),
+                        stars_4 = stars_4 - (OLD.rating = 4),
+                        stars_5 = stars_5 - (OLD.rating = 5)
+                    WHERE course_id = OLD.course_id;
+                    INSERT INTO course_ratings (course_id) SELECT NEW.course_id
+                    WHERE NOT EXISTS (SELECT 1 FROM course_ratings WHERE course_id = NEW.course_id);
+                    UPDATE course_ratings SET
+                        rating_sum = rating_sum + NEW.rating,
+                        rating_count = rating_count + 1,
+                        stars_1 = stars_1 + (NEW.rating = 1),
+                        stars_2 = stars_2 + (NEW.rating = 2),
+                        stars_3 = stars_3 + (NEW.rating = 3),
+                        stars_4 = stars_4 + (NEW.rating = 4),
+                        stars_5 = stars_5 + (NEW.rating = 5)
+                    WHERE course_id = NEW.course_id;
+                END
+            """
+        ),
+
+        // Migration 4's UPDATE OR IGNORE skipped courses whose upper-cased subject collided
+        // with an existing course, leaving them unreachable by lookups. Such courses are
+        // merged into the oldest one: where a user reviewed several of them only the newest
+        // review is kept, the rest move over, and the leftover subjects are upper-cased
+        new Migration(6, "Merge courses that differ only in subject case",
+            "DELETE FROM reviews WHERE id IN (" + SUPERSEDED_REVIEWS_SQL + ")",
+            "UPDATE reviews SET course_id = (" + OLDEST_SAME_COURSE_SQL + ") "
+                + "WHERE course_id IN (" + MERGED_COURSES_SQL + ")",
+            "DELETE FROM course_ratings WHERE course_id IN (" + MERGED_COURSES_SQL + ")",
+            "DELETE FROM courses WHERE id IN (" + MERGED_COURSES_SQL + ")",
+            // No OR IGNORE: every collision has been merged above
+            "UPDATE courses SET subject = UPPER(subject) WHERE subject <> UPPER(subject)"
+        )
+    );
+
+    public static final int LATEST_VERSION = MIGRATIONS.get(MIGRATIONS.size() - 1).version;
+
+    private SchemaMigrations() {
+    }
+
+    /**
+     * Brings the database behind the connection up to {@link #LATEST_VERSION}
+     * and returns the version it was at before.
+     */
+    public static int migrate(Connection conn) throws SQLException {
+        int startVersion = getVersion(conn);
+        if (startVersion > LATEST_VERSION) {
+            throw new SQLException("Database schema version " + startVersion
+                + " is newer than this application supports (" + LATEST_VERSION + ")");
+        }
+
+        for (Migration migration : MIGRATIONS) {
+            if (migration.version > startVersion) {
+                apply(conn, migration);
+            }
+        }
+        return startVersion;
+    }
+
+    public static int getVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private static void apply(Connection conn, Migration migration) throws SQLException {
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try (Statement stmt = conn.createStatement()) {
+            for (String sql : migration.statements) {
+                stmt.execute(sql);
+            }
+            // PRAGMA does not accept bound parameters; the version is a trusted constant
+            stmt.execute("PRAGMA user_version = " + migration.version);
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw new SQLException("Schema migration " + migration.version + " ("
+                + migration.description + ") failed: " + e.getMessage(), e);
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    private static final class Migration {
+        private final int version;
+        private final String description;
+        private final String[] statements;
+
+        private Migration(int version, String description, String... statements) {
+            this.version = version;
+            this.description = description;
+            this.statements = statements;
+        }
+    }
+}
@@ -0,0 +1,305 @@
+package edu.virginia.sde.reviews.services;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Logs statements that spend longer than a threshold inside SQLite, for one
+ * connection pool. ConnectionPool times every execute call plus every
+ * ResultSet.next() on its result, so a LIKE scan that only slows down while
+ * rows are read is caught as well as a slow sort before the first row.
+ *
+ * Each slow statement is printed with its normalized SQL, the shapes of its
+ * bound parameters (types and string lengths, never the values), its row count
+ * and the time taken. The first time a SQL shape is slow, its
+ * {@code EXPLAIN QUERY PLAN} is captured on the same connection and printed
+ * with every later report of that shape; plans containing a full table scan or
+ * a temporary B-tree sort are flagged.
+ */
+public class SlowQueryLog {
+    public static final int MAX_RECENT = 100;
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final long thresholdNanos;
+    // Query plans by normalized SQL, captured once per shape
+    private final Map<String, String> plans = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedDeque<SlowQuery> recent = new ConcurrentLinkedDeque<>();
+    private final AtomicLong slowQueries = new AtomicLong();
+    private final AtomicLong plansCaptured = new AtomicLong();
+    private volatile boolean verbose = true;
+
+    public SlowQueryLog(long thresholdMillis) {
+        if (thresholdMillis < 0) {
+            throw new IllegalArgumentException("Slow query threshold cannot be negative");
+        }
+        this.thresholdNanos = thresholdMillis * 1_000_000;
+    }
+
+    /**
+     * Turns printing to standard error on or off; slow queries are still
+     * counted and kept in {@link #getRecent()}.
+     */
+    public void setVerbose(boolean verbose) {
+        this.verbose = verbose;
+    }
+
+    public long getThresholdMillis() { return thresholdNanos / 1_000_000; }
+    public long getSlowQueryCount() { return slowQueries.get(); }
+    public long getPlansCaptured() { return plansCaptured.get(); }
+
+    /**
+     * The most recent slow queries, oldest first, at most {@value #MAX_RECENT}.
+     */
+    public List<SlowQuery> getRecent() {
+        return new ArrayList<>(recent);
+    }
+
+    /**
+     * The captured query plan for a normalized SQL shape, or null if that shape
+     * has not been slow yet.
+     */
+    public String getPlan(String normalizedSql) {
+        return plans.get(normalizedSql);
+    }
+
+    /**
+     * Every captured query plan, by normalized SQL.
+     */
+    public Map<String, String> getPlans() {
+        return new HashMap<>(plans);
+    }
+
+    Execution start(String sql, Parameters parameters) {
+        return new Execution(sql, parameters);
+    }
+
+    /**
+     * Collapses whitespace and replaces string and number literals with ?, so
+     * statements that differ only in their values share one shape.
+     */
+    public static String normalize(String sql) {
+        String normalized = STRING_LITERAL.matcher(sql).replaceAll("?");
+        normalized = NUMBER_LITERAL.matcher(normalized).replaceAll("?");
+        return WHITESPACE.matcher(normalized).replaceAll(" ").trim();
+    }
+
+    /**
+     * True when the plan reads a whole table or builds a temporary B-tree to
+     * sort, group or deduplicate rows.
+     */
+    public static boolean isExpensivePlan(String plan) {
+        if (plan == null) {
+            return false;
+        }
+        for (String line : plan.split("\n")) {
+            String detail = line.trim();
+            if (detail.contains("USE TEMP B-TREE")) {
+                return true;
+            }
+            // An FTS5 table is always reported as a virtual table scan, which
+            // is the index lookup itself
+            if (detail.startsWith("SCAN ") && !detail.contains("VIRTUAL TABLE")
+                    && !detail.contains("CONSTANT ROW")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void report(Execution execution, Connection connection) {
+        String shape = normalize(execution.sql);
+        String plan = plans.get(shape);
+        if (plan == null) {
+            String captured = explain(connection, execution.sql, execution.parameters);
+            plan = plans.putIfAbsent(shape, captured);
+            if (plan == null) {
+                plan = captured;
+                plansCaptured.incrementAndGet();
+            }
+        }
+        SlowQuery query = new SlowQuery(shape, describe(execution.parameters), execution.rows,
+            execution.nanos, plan);
+        slowQueries.incrementAndGet();
+        recent.addLast(query);
+        while (recent.size() > MAX_RECENT) {
+            recent.pollFirst();
+        }
+        if (verbose) {
+            System.err.println(query);
+        }
+    }
+
+    private static String explain(Connection connection, String sql, Parameters parameters) {
+        try (PreparedStatement pstmt = connection.prepareStatement("EXPLAIN QUERY PLAN " + sql)) {
+            if (parameters != null) {
+                parameters.bind(pstmt);
+            }
+            // Rows are (id, parent, notused, detail); children follow their parent
+            Map<Integer, Integer> depths = new HashMap<>();
+            StringBuilder plan = new StringBuilder();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    int depth = depths.getOrDefault(rs.getInt(2), -1) + 1;
+                    depths.put(rs.getInt(1), depth);
+                    plan.append("  ".repeat(depth)).append(rs.getString(4)).append('\n');
+                }
+            }
+            return plan.toString();
+        } catch (SQLException e) {
+            return "(no plan: " + e.getMessage() + ")\n";
+        }
+    }
+
+    private static String describe(Parameters parameters) {
+        if (parameters == null || parameters.count == 0) {
+            return "[]";
+        }
+        StringBuilder shapes = new StringBuilder("[");
+        for (int i = 1; i <= parameters.count; i++) {
+            if (i > 1) {
+                shapes.append(", ");
+            }
+            Object value = parameters.values[i];
+            String type = parameters.types[i];
+            if (type == null) {
+                shapes.append("unset");
+            } else if (value == null) {
+                shapes.append("null");
+            } else if (value instanceof String) {
+                shapes.append("string(").append(((String) value).length()).append(')');
+            } else {
+                shapes.append(type);
+            }
+        }
+        return shapes.append(']').toString();
+    }
+
+    /**
+     * The values bound to one prepared statement, by 1-based index, kept only
+     * so a plan can be explained with them and their shapes reported.
+     */
+    static final class Parameters {
+        private Object[] values = new Object[8];
+        private String[] types = new String[8];
+        private int count = 0;
+
+        // Called with the setter name, e.g. "setString", and its arguments
+        void set(String setter, Object[] args) {
+            int index = (Integer) args[0];
+            if (index < 1) {
+                return;
+            }
+            if (index >= values.length) {
+                values = Arrays.copyOf(values, Math.max(index + 1, values.length * 2));
+                types = Arrays.copyOf(types, values.length);
+            }
+            boolean isNull = setter.equals("setNull");
+            values[index] = isNull ? null : args[1];
+            types[index] = setter.substring(3).toLowerCase();
+            count = Math.max(count, index);
+        }
+
+        void clear() {
+            Arrays.fill(values, null);
+            Arrays.fill(types, null);
+            count = 0;
+        }
+
+        private void bind(PreparedStatement pstmt) throws SQLException {
+            for (int i = 1; i <= count; i++) {
+                if (values[i] == null) {
+                    pstmt.setNull(i, Types.NULL);
+                } else {
+                    pstmt.setObject(i, values[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * One execution of a statement: the time spent in SQLite so far and the rows
+     * read. Used by a single thread, like the statement it times.
+     */
+    final class Execution {
+        private final String sql;
+        private final Parameters parameters;
+        private long nanos = 0;
+        private int rows = 0;
+        private boolean finished = false;
+
+        private Execution(String sql, Parameters parameters) {
+            this.sql = sql;
+            this.parameters = parameters;
+        }
+
+        void addNanos(long elapsed) {
+            nanos += elapsed;
+        }
+
+        void addRows(int count) {
+            rows += count;
+        }
+
+        /**
+         * Ends the execution, reporting it if it was slow. Safe to call more than once.
+         */
+        void finish(Connection connection) {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            if (nanos >= thresholdNanos && sql != null) {
+                report(this, connection);
+            }
+        }
+    }
+
+    /**
+     * A statement that took longer than the threshold.
+     */
+    public static final class SlowQuery {
+        private final String sql;
+        private final String parameters;
+        private final int rows;
+        private final long elapsedNanos;
+        private final String plan;
+
+        private SlowQuery(String sql, String parameters, int rows, long elapsedNanos, String plan) {
+            this.sql = sql;
+            this.parameters = parameters;
+            this.rows = rows;
+            this.elapsedNanos = elapsedNanos;
+            this.plan = plan;
+        }
+
+        // Getters
+        public String getSql() { return sql; }
+        public String getParameters() { return parameters; }
+        public int getRows() { return rows; }
+        public long getElapsedNanos() { return elapsedNanos; }
+        public String getPlan() { return plan; }
+        public boolean isExpensivePlan() { return SlowQueryLog.isExpensivePlan(plan); }
+
+        @Override
+        public String toString() {
+            return String.format("Slow query (%.1f ms, %d rows%s): %s params=%s%n%s",
+                elapsedNanos / 1e6, rows, isExpensivePlan() ? ", SCAN/TEMP B-TREE" : "", sql, parameters,
+                plan.stripTrailing().indent(2).stripTrailing());
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package edu.virginia.sde.reviews.services;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LRU cache of prepared statements for a single pooled connection, keyed by SQL
+ * text. A connection is only ever used by one thread at a time, so the cache
+ * itself is not synchronized.
+ *
+ * A cached statement is lent out to one caller at a time. If the same SQL is
+ * prepared again while the first copy is still open, the caller gets a fresh,
+ * uncached statement instead.
+ */
+final class StatementCache {
+    private final int capacity;
+    private final AtomicLong evictions;
+    private final LinkedHashMap<String, Entry> statements;
+
+    StatementCache(int capacity, AtomicLong evictions) {
+        this.capacity = capacity;
+        this.evictions = evictions;
+        this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() <= StatementCache.this.capacity) {
+                    return false;
+                }
+                StatementCache.this.evictions.incrementAndGet();
+                eldest.getValue().evict();
+                return true;
+            }
+        };
+    }
+
+    boolean isEnabled() {
+        return capacity > 0;
+    }
+
+    /**
+     * Returns the cached statement for the SQL and marks it in use, or null if
+     * there is none or it is already lent out.
+     */
+    Entry borrow(String sql) {
+        Entry entry = statements.get(sql);
+        if (entry != null && entry.evicted) {
+            // Could not be reset after its last use
+            statements.remove(sql);
+            return null;
+        }
+        if (entry == null || entry.inUse) {
+            return null;
+        }
+        entry.inUse = true;
+        return entry;
+    }
+
+    /**
+     * Adds a newly prepared statement, already marked in use. Returns null when
+     * the SQL is cached already (the caller then owns the statement outright).
+     */
+    Entry add(String sql, PreparedStatement statement) {
+        if (!isEnabled() || statements.containsKey(sql)) {
+            return null;
+        }
+        Entry entry = new Entry(statement);
+        entry.inUse = true;
+        statements.put(sql, entry);
+        return entry;
+    }
+
+    /**
+     * Resets every lent-out statement. Called when the connection goes back to
+     * the pool, so statements leaked by a caller don't stay checked out.
+     */
+    void releaseAll() {
+        for (Entry entry : statements.values()) {
+            if (entry.inUse) {
+                entry.release();
+            }
+        }
+    }
+
+    /**
+     * Closes and forgets every statement, e.g. after the schema has changed.
+     */
+    void clear() {
+        List<Entry> entries = new ArrayList<>(statements.values());
+        statements.clear();
+        for (Entry entry : entries) {
+            entry.evict();
+        }
+    }
+
+    int size() {
+        return statements.size();
+    }
+
+    static final class Entry {
+        private final PreparedStatement statement;
+        private ResultSet openResultSet;
+        private boolean inUse;
+        private boolean evicted;
+
+        private Entry(PreparedStatement statement) {
+            this.statement = statement;
+        }
+
+        PreparedStatement statement() {
+            return statement;
+        }
+
+        void track(ResultSet resultSet) {
+            this.openResultSet = resultSet;
+        }
+
+        /**
+         * Returns the statement to the cache: closes its result set and clears
+         * bound parameters and any unexecuted batch so the next borrower starts clean.
+         */
+        void release() {
+            inUse = false;
+            try {
+                if (openResultSet != null) {
+                    openResultSet.close();
+                    openResultSet = null;
+                }
+                if (evicted) {
+                    statement.close();
+                } else {
+                    statement.clearBatch();
+                    statement.clearParameters();
+                }
+            } catch (SQLException e) {
+                // A statement that cannot be reset is useless; make sure it is closed
+                evicted = true;
+                closeQuietly();
+            }
+        }
+
+        private void evict() {
+            evicted = true;
+            if (!inUse) {
+                closeQuietly();
+            }
+        }
+
+        private void closeQuietly() {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
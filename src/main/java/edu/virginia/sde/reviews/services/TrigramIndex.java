@@ -0,0 +1,148 @@
+package edu.virginia.sde.reviews.services;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Typo-tolerant word lookup for {@link CourseCatalog}: maps each distinct word
+ * (title words and subject codes) to the courses containing it, and each
+ * trigram to the words containing it.
+ *
+ * A query word only has to be compared against words that share enough of its
+ * trigrams, since one edit changes at most three of them. That keeps lookups
+ * proportional to the number of similar words rather than the catalog size.
+ */
+final class TrigramIndex {
+    // Words are padded so their first and last letters get trigrams of their own
+    private static final char PAD = '$';
+
+    private final Map<String, Set<Integer>> postings = new HashMap<>();
+    private final Map<String, Set<String>> wordsByTrigram = new HashMap<>();
+
+    void add(int courseId, Collection<String> words) {
+        for (String word : words) {
+            Set<Integer> ids = postings.get(word);
+            if (ids == null) {
+                ids = new HashSet<>();
+                postings.put(word, ids);
+                for (String trigram : trigrams(word)) {
+                    wordsByTrigram.computeIfAbsent(trigram, t -> new HashSet<>()).add(word);
+                }
+            }
+            ids.add(courseId);
+        }
+    }
+
+    void remove(int courseId, Collection<String> words) {
+        for (String word : words) {
+            Set<Integer> ids = postings.get(word);
+            if (ids == null || !ids.remove(courseId) || !ids.isEmpty()) {
+                continue;
+            }
+            postings.remove(word);
+            for (String trigram : trigrams(word)) {
+                Set<String> similar = wordsByTrigram.get(trigram);
+                if (similar != null) {
+                    similar.remove(word);
+                    if (similar.isEmpty()) {
+                        wordsByTrigram.remove(trigram);
+                    }
+                }
+            }
+        }
+    }
+
+    void clear() {
+        postings.clear();
+        wordsByTrigram.clear();
+    }
+
+    /**
+     * The courses containing a word within maxEdits of the query word, or
+     * starting with it, mapped to the smallest edit distance found. At most
+     * maxWords candidate words (those sharing the most trigrams) are compared,
+     * which bounds the cost of very common trigrams.
+     */
+    Map<Integer, Integer> match(String queryWord, int maxEdits, int maxWords) {
+        List<String> queryTrigrams = trigrams(queryWord);
+        Map<String, Integer> shared = new HashMap<>();
+        for (String trigram : queryTrigrams) {
+            Set<String> words = wordsByTrigram.get(trigram);
+            if (words != null) {
+                for (String word : words) {
+                    shared.merge(word, 1, Integer::sum);
+                }
+            }
+        }
+
+        // Words sharing too few trigrams cannot be within maxEdits
+        int required = Math.max(1, queryTrigrams.size() - 3 * maxEdits);
+        List<Map.Entry<String, Integer>> candidates = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : shared.entrySet()) {
+            if (entry.getValue() >= required) {
+                candidates.add(entry);
+            }
+        }
+        if (candidates.size() > maxWords) {
+            candidates.sort(Map.Entry.<String, Integer>comparingByValue().reversed());
+            candidates = candidates.subList(0, maxWords);
+        }
+
+        Map<Integer, Integer> matches = new HashMap<>();
+        for (Map.Entry<String, Integer> candidate : candidates) {
+            String word = candidate.getKey();
+            int distance = queryWord.length() >= 3 && word.startsWith(queryWord)
+                ? 0 : distance(queryWord, word, maxEdits);
+            if (distance <= maxEdits) {
+                for (int id : postings.get(word)) {
+                    matches.merge(id, distance, Math::min);
+                }
+            }
+        }
+        return matches;
+    }
+
+    static List<String> trigrams(String word) {
+        String padded = PAD + word + PAD;
+        List<String> trigrams = new ArrayList<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            trigrams.add(padded.substring(i, i + 3));
+        }
+        return trigrams;
+    }
+
+    /**
+     * Levenshtein distance, or max + 1 as soon as it is known to exceed max.
+     */
+    static int distance(String a, String b, int max) {
+        if (Math.abs(a.length() - b.length()) > max) {
+            return max + 1;
+        }
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return Math.min(previous[b.length()], max + 1);
+    }
+}
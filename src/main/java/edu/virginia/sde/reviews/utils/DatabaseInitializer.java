@@ -1,119 +1,171 @@
 package edu.virginia.sde.reviews.utils;
 
+import edu.virginia.sde.reviews.services.BulkImporter;
+import edu.virginia.sde.reviews.services.DatabaseConfig;
 import edu.virginia.sde.reviews.services.DatabaseService;
-
+import edu.virginia.sde.reviews.services.ImportRecord;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Seeds the database with sample data, or bulk-imports a CSV/JSONL file.
+ * {@link DatasetGenerator} produces large synthetic datasets and fixtures.
+ *
+ * Usage: DatabaseInitializer [--import=&lt;file&gt;] [--batch-size=N] [--restart]
+ * [--check-aggregates | --rebuild-aggregates] [database settings, see DatabaseConfig]
+ */
 public class DatabaseInitializer {
     private final DatabaseService database;
+    private final List<ImportRecord> records = new ArrayList<>();
 
     public DatabaseInitializer() {
         this.database = new DatabaseService();
     }
 
-    public void initializeDatabase() {
+    public void initializeDatabase() throws SQLException {
+        records.clear();
+
         // Create sample users
-        database.createUser("student1", "password123");
-        database.createUser("wahoo2024", "hoosgoingtowin");
-        database.createUser("cs_major", "javaislife123");
-        database.createUser("math_lover", "calculus4ever");
-        database.createUser("grad_student", "research2023");
-        database.createUser("engr_student", "bridges2024");
-        database.createUser("physics_fan", "quantum2023");
-        database.createUser("bio_student", "dna4life");
+        records.add(ImportRecord.user("student1", "password123"));
+        records.add(ImportRecord.user("wahoo2024", "hoosgoingtowin"));
+        records.add(ImportRecord.user("cs_major", "javaislife123"));
+        records.add(ImportRecord.user("math_lover", "calculus4ever"));
+        records.add(ImportRecord.user("grad_student", "research2023"));
+        records.add(ImportRecord.user("engr_student", "bridges2024"));
+        records.add(ImportRecord.user("physics_fan", "quantum2023"));
+        records.add(ImportRecord.user("bio_student", "dna4life"));
 
         // Add sample courses
-        database.addCourse("CS", 3140, "Software Development Methods");
-        database.addCourse("CS", 2100, "Data Structures and Algorithms");
-        database.addCourse("CS", 4102, "Algorithms");
-        database.addCourse("MATH", 3354, "Survey of Algebra");
-        database.addCourse("PHYS", 2415, "Physics 1 for Engineers");
-        database.addCourse("APMA", 3100, "Probability");
-        database.addCourse("SYS", 2048, "System Design 1");
-        database.addCourse("ECE", 2330, "Digital Logic Design");
-        database.addCourse("CS", 4414, "Operating Systems");
-        database.addCourse("CS", 3240, "Advanced Software Development");
-        database.addCourse("MATH", 4310, "Real Analysis");
-        database.addCourse("PHYS", 3420, "Quantum Physics");
-        database.addCourse("CS", 4774, "Machine Learning");
-        database.addCourse("APMA", 2120, "Multivariable Calculus");
-        database.addCourse("ECE", 3430, "Introduction to Electronics");
+        records.add(ImportRecord.course("CS", 3140, "Software Development Methods"));
+        records.add(ImportRecord.course("CS", 2100, "Data Structures and Algorithms"));
+        records.add(ImportRecord.course("CS", 4102, "Algorithms"));
+        records.add(ImportRecord.course("MATH", 3354, "Survey of Algebra"));
+        records.add(ImportRecord.course("PHYS", 2415, "Physics 1 for Engineers"));
+        records.add(ImportRecord.course("APMA", 3100, "Probability"));
+        records.add(ImportRecord.course("SYS", 2048, "System Design 1"));
+        records.add(ImportRecord.course("ECE", 2330, "Digital Logic Design"));
+        records.add(ImportRecord.course("CS", 4414, "Operating Systems"));
+        records.add(ImportRecord.course("CS", 3240, "Advanced Software Development"));
+        records.add(ImportRecord.course("MATH", 4310, "Real Analysis"));
+        records.add(ImportRecord.course("PHYS", 3420, "Quantum Physics"));
+        records.add(ImportRecord.course("CS", 4774, "Machine Learning"));
+        records.add(ImportRecord.course("APMA", 2120, "Multivariable Calculus"));
+        records.add(ImportRecord.course("ECE", 3430, "Introduction to Electronics"));
 
         // Add sample reviews
         addSampleReviews();
+
+        // One transaction for everything; existing rows are skipped
+        new BulkImporter(database).importRecords(records);
     }
 
     private void addSampleReviews() {
-        // Get user IDs
-        int student1Id = database.getUserId("student1");
-        int wahooId = database.getUserId("wahoo2024");
-        int csMajorId = database.getUserId("cs_major");
-        int mathLoverId = database.getUserId("math_lover");
-        int gradStudentId = database.getUserId("grad_student");
-        int engrStudentId = database.getUserId("engr_student");
-        int physicsId = database.getUserId("physics_fan");
-        int bioId = database.getUserId("bio_student");
-
         // CS 3140 Reviews (diverse opinions)
-        addReview(student1Id, "CS", 3140, 4, "Great course! Learned a lot about software development practices.");
-        addReview(wahooId, "CS", 3140, 5, "Really enjoyed the group project! Great team experience.");
-        addReview(bioId, "CS", 3140, 2, "Challenging for non-CS majors. Need more programming background.");
+        review("student1", "CS", 3140, 4, "Great course! Learned a lot about software development practices.");
+        review("wahoo2024", "CS", 3140, 5, "Really enjoyed the group project! Great team experience.");
+        review("bio_student", "CS", 3140, 2, "Challenging for non-CS majors. Need more programming background.");
 
         // CS 2100 Reviews
-        addReview(student1Id, "CS", 2100, 5, "Essential course for CS majors. Challenging but rewarding.");
-        addReview(csMajorId, "CS", 2100, 5, "Best CS course I've taken! Great foundation for other courses.");
-        addReview(engrStudentId, "CS", 2100, 3, "Heavy workload, but concepts are useful.");
+        review("student1", "CS", 2100, 5, "Essential course for CS majors. Challenging but rewarding.");
+        review("cs_major", "CS", 2100, 5, "Best CS course I've taken! Great foundation for other courses.");
+        review("engr_student", "CS", 2100, 3, "Heavy workload, but concepts are useful.");
 
         // Physics Courses
-        addReview(physicsId, "PHYS", 2415, 5, "Excellent introduction to physics concepts.");
-        addReview(wahooId, "PHYS", 2415, 3, "Tough course, but the professor was helpful.");
-        addReview(engrStudentId, "PHYS", 2415, 4, "Important for engineering students. Good lab components.");
-        addReview(physicsId, "PHYS", 3420, 5, "Fascinating introduction to quantum mechanics!");
-        addReview(gradStudentId, "PHYS", 3420, 4, "Complex material but well-taught.");
+        review("physics_fan", "PHYS", 2415, 5, "Excellent introduction to physics concepts.");
+        review("wahoo2024", "PHYS", 2415, 3, "Tough course, but the professor was helpful.");
+        review("engr_student", "PHYS", 2415, 4, "Important for engineering students. Good lab components.");
+        review("physics_fan", "PHYS", 3420, 5, "Fascinating introduction to quantum mechanics!");
+        review("grad_student", "PHYS", 3420, 4, "Complex material but well-taught.");
 
         // Math Courses
-        addReview(mathLoverId, "MATH", 3354, 5, "Beautiful introduction to abstract algebra.");
-        addReview(gradStudentId, "MATH", 3354, 5, "Excellent preparation for graduate algebra.");
-        addReview(mathLoverId, "MATH", 4310, 4, "Rigorous but rewarding. Be prepared to write proofs!");
-        addReview(csMajorId, "MATH", 4310, 3, "Very theoretical. Requires strong math background.");
+        review("math_lover", "MATH", 3354, 5, "Beautiful introduction to abstract algebra.");
+        review("grad_student", "MATH", 3354, 5, "Excellent preparation for graduate algebra.");
+        review("math_lover", "MATH", 4310, 4, "Rigorous but rewarding. Be prepared to write proofs!");
+        review("cs_major", "MATH", 4310, 3, "Very theoretical. Requires strong math background.");
 
         // Advanced CS Courses
-        addReview(csMajorId, "CS", 4414, 4, "Fascinating material about OS internals.");
-        addReview(gradStudentId, "CS", 4414, 5, "Deep dive into operating systems. Great projects!");
-        addReview(csMajorId, "CS", 4774, 5, "Excellent introduction to ML concepts.");
-        addReview(gradStudentId, "CS", 4774, 4, "Good balance of theory and practice.");
+        review("cs_major", "CS", 4414, 4, "Fascinating material about OS internals.");
+        review("grad_student", "CS", 4414, 5, "Deep dive into operating systems. Great projects!");
+        review("cs_major", "CS", 4774, 5, "Excellent introduction to ML concepts.");
+        review("grad_student", "CS", 4774, 4, "Good balance of theory and practice.");
 
         // Engineering Courses
-        addReview(engrStudentId, "ECE", 2330, 4, "Very practical. Lots of hands-on experience.");
-        addReview(csMajorId, "ECE", 2330, 3, "Useful for understanding computer architecture.");
-        addReview(engrStudentId, "ECE", 3430, 5, "Great lab experiments!");
-        addReview(physicsId, "ECE", 3430, 4, "Interesting applications of physics concepts.");
+        review("engr_student", "ECE", 2330, 4, "Very practical. Lots of hands-on experience.");
+        review("cs_major", "ECE", 2330, 3, "Useful for understanding computer architecture.");
+        review("engr_student", "ECE", 3430, 5, "Great lab experiments!");
+        review("physics_fan", "ECE", 3430, 4, "Interesting applications of physics concepts.");
 
         // Applied Math
-        addReview(mathLoverId, "APMA", 3100, 5, "Essential for understanding statistics and ML.");
-        addReview(bioId, "APMA", 3100, 2, "Very difficult for biology students.");
-        addReview(student1Id, "APMA", 2120, 4, "Challenging but well-structured course.");
-        addReview(engrStudentId, "APMA", 2120, 3, "Heavy workload, but necessary for engineers.");
+        review("math_lover", "APMA", 3100, 5, "Essential for understanding statistics and ML.");
+        review("bio_student", "APMA", 3100, 2, "Very difficult for biology students.");
+        review("student1", "APMA", 2120, 4, "Challenging but well-structured course.");
+        review("engr_student", "APMA", 2120, 3, "Heavy workload, but necessary for engineers.");
 
         // Systems Engineering
-        addReview(engrStudentId, "SYS", 2048, 4, "Good introduction to systems thinking.");
-        addReview(bioId, "SYS", 2048, 5, "Surprisingly useful for non-engineering majors!");
+        review("engr_student", "SYS", 2048, 4, "Good introduction to systems thinking.");
+        review("bio_student", "SYS", 2048, 5, "Surprisingly useful for non-engineering majors!");
         
         // More CS Course Reviews
-        addReview(wahooId, "CS", 3240, 4, "Good follow-up to 3140.");
-        addReview(csMajorId, "CS", 3240, 5, "Great practical experience with Agile.");
-        addReview(student1Id, "CS", 4102, 4, "Challenging algorithms course, but very rewarding.");
-        addReview(gradStudentId, "CS", 4102, 5, "Essential for technical interviews.");
+        review("wahoo2024", "CS", 3240, 4, "Good follow-up to 3140.");
+        review("cs_major", "CS", 3240, 5, "Great practical experience with Agile.");
+        review("student1", "CS", 4102, 4, "Challenging algorithms course, but very rewarding.");
+        review("grad_student", "CS", 4102, 5, "Essential for technical interviews.");
     }
 
-    private void addReview(int userId, String subject, int number, int rating, String comment) {
-        int courseId = database.getCourseIdBySubjectAndNumber(subject, number);
-        if (courseId != -1) {
-            database.addReview(userId, courseId, rating, comment);
-        }
+    private void review(String username, String subject, int number, int rating, String comment) {
+        records.add(ImportRecord.review(username, subject, number, rating, comment, null));
     }
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException, SQLException {
+        List<String> options = Arrays.asList(args);
+        DatabaseConfig.setDefault(DatabaseConfig.load(options));
+        if (options.contains("--check-aggregates") || options.contains("--rebuild-aggregates")) {
+            checkAggregates(new DatabaseService(), options.contains("--rebuild-aggregates"));
+            return;
+        }
+
+        String importFile = option(options, "--import=");
+        if (importFile != null) {
+            BulkImporter importer = new BulkImporter(new DatabaseService());
+            String batchSize = option(options, "--batch-size=");
+            if (batchSize != null) {
+                importer.setBatchSize(Integer.parseInt(batchSize));
+            }
+            importer.setResume(!options.contains("--restart"));
+            importer.importFile(Path.of(importFile));
+            return;
+        }
+
         DatabaseInitializer initializer = new DatabaseInitializer();
         initializer.initializeDatabase();
         System.out.println("Database initialized successfully!");
     }
+
+    private static String option(List<String> options, String prefix) {
+        for (String option : options) {
+            if (option.startsWith(prefix)) {
+                return option.substring(prefix.length());
+            }
+        }
+        return null;
+    }
+
+    private static void checkAggregates(DatabaseService database, boolean rebuild) {
+        List<Integer> inconsistent = database.checkAggregates();
+        if (inconsistent.isEmpty()) {
+            System.out.println("Rating aggregates are consistent.");
+            return;
+        }
+        System.out.println("Inconsistent rating aggregates for course IDs: " + inconsistent);
+        if (rebuild) {
+            database.rebuildAggregates();
+            System.out.println("Rebuilt rating aggregates; remaining inconsistencies: "
+                + database.checkAggregates().size());
+        }
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,518 @@
+package edu.virginia.sde.reviews.utils;
+
+import edu.virginia.sde.reviews.services.BulkImporter;
+import edu.virginia.sde.reviews.services.ConnectionPool;
+import edu.virginia.sde.reviews.services.DatabaseConfig;
+import edu.virginia.sde.reviews.services.DatabaseService;
+import edu.virginia.sde.reviews.services.ImportRecord;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Generates a synthetic catalog at university scale: users, subjects, courses
+ * and reviews, with the skew real data has. Review counts per course follow a
+ * Zipf distribution (a few courses get most of the reviews), large subjects own
+ * most of the courses, some users review far more than others, timestamps
+ * cluster around the end of each semester and comments range from a few words
+ * to several paragraphs.
+ *
+ * The output depends only on the seed and the settings, so the same command
+ * always produces the same dataset. Records are generated lazily, users first,
+ * then courses, then reviews, so millions of reviews can be streamed into
+ * {@link BulkImporter} or a fixture file without being held in memory.
+ *
+ * Every user has the same password (--password), so load tests can log in as
+ * anyone. When writing to a database it is hashed once and the hash reused;
+ * hashing each user at the configured cost would dominate the run.
+ *
+ * Usage: DatasetGenerator [--seed=1] [--users=20000] [--subjects=120] [--courses=8000]
+ * [--reviews=500000] [--zipf=1.0] [--days=1460] [--password=password123]
+ * [--output=&lt;file.csv|file.jsonl&gt;] [--batch-size=N] [database settings, see DatabaseConfig]
+ */
+public class DatasetGenerator implements Iterable<ImportRecord> {
+    public static final String DEFAULT_PASSWORD = "password123";
+    // Every subject can hold at most this many distinct course numbers (1000-9999)
+    private static final int NUMBERS_PER_SUBJECT = 9000;
+    // Timestamps run back from here, so the dataset depends on neither the clock nor the time zone
+    private static final long END_MILLIS = Instant.parse("2024-12-20T00:00:00Z").toEpochMilli();
+
+    private static final String[] REAL_SUBJECTS = {
+        "CS", "MATH", "APMA", "PHYS", "CHEM", "BIOL", "ECON", "ECE", "SYS", "STAT", "HIST", "ENGL",
+        "PHIL", "PSYC", "COMM", "ARTH", "MUSI", "DRAM", "ASTR", "EVSC", "SOC", "PLAD", "ANTH", "LING",
+        "SPAN", "FREN", "GERM", "CHIN", "JAPN", "ARAB", "RELG", "MDST", "ARCH", "NURS", "EDUC", "KINE",
+        "CE", "ME", "MSE", "BME", "CHE", "AST", "LAW", "PPOL", "GOVT", "WGS", "AAS", "AMST"
+    };
+    // The real codes plus every X-prefixed code of three and four letters
+    public static final int MAX_SUBJECTS = REAL_SUBJECTS.length + 26 * 26 + 26 * 26 * 26;
+
+    private static final String[] TITLE_PREFIXES = {
+        "Introduction to", "Advanced", "Topics in", "Foundations of", "Principles of", "Seminar in",
+        "Applied", "Theory of", "Modern", "Survey of", "Methods in", "Special Topics in"
+    };
+    private static final String[] TITLE_TOPICS = {
+        "Algorithms", "Data Structures", "Operating Systems", "Linear Algebra", "Probability", "Statistics",
+        "Thermodynamics", "Organic Chemistry", "Genetics", "Microeconomics", "Macroeconomics", "Ethics",
+        "Cognitive Science", "World History", "Poetry", "Digital Logic", "Machine Learning", "Databases",
+        "Networks", "Signal Processing", "Quantum Mechanics", "Ecology", "Music Theory", "Architecture",
+        "Public Policy", "Linguistics", "Computer Graphics", "Cryptography", "Number Theory", "Optics"
+    };
+    private static final String[] OPENERS = {
+        "Great course.", "Tough but fair.", "Not what I expected.", "Would recommend.", "Avoid if you can.",
+        "Solid class.", "Loved it!", "It was fine.", "Heavy workload.", "Easy A.", "Really challenging."
+    };
+    private static final String[] WORDS = {
+        "the", "lectures", "were", "clear", "and", "homework", "took", "hours", "every", "week", "exams",
+        "professor", "explained", "concepts", "well", "but", "grading", "felt", "harsh", "projects", "taught",
+        "me", "a", "lot", "about", "practice", "office", "hours", "helped", "readings", "long", "labs",
+        "interesting", "boring", "curve", "generous", "quizzes", "discussion", "sections", "useful", "material",
+        "hard", "to", "follow", "at", "times", "overall", "worth", "it", "for", "majors", "group", "work"
+    };
+
+    private final long seed;
+    private int users = 20_000;
+    private int subjects = 120;
+    private int courses = 8_000;
+    private int reviews = 500_000;
+    private double zipfExponent = 1.0;
+    private int days = 1_460;
+    private String password = DEFAULT_PASSWORD;
+
+    public DatasetGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    // Getters
+    public long getSeed() { return seed; }
+    public int getUsers() { return users; }
+    public int getSubjects() { return subjects; }
+    public int getCourses() { return courses; }
+    public int getReviews() { return reviews; }
+    public double getZipfExponent() { return zipfExponent; }
+    public int getDays() { return days; }
+
+    public void setUsers(int users) {
+        if (users < 1) {
+            throw new IllegalArgumentException("There must be at least one user");
+        }
+        this.users = users;
+    }
+
+    public void setSubjects(int subjects) {
+        if (subjects < 1 || subjects > MAX_SUBJECTS) {
+            throw new IllegalArgumentException("The number of subjects must be between 1 and " + MAX_SUBJECTS);
+        }
+        this.subjects = subjects;
+    }
+
+    public void setCourses(int courses) {
+        if (courses < 1) {
+            throw new IllegalArgumentException("There must be at least one course");
+        }
+        this.courses = courses;
+    }
+
+    public void setReviews(int reviews) {
+        if (reviews < 0) {
+            throw new IllegalArgumentException("The number of reviews cannot be negative");
+        }
+        this.reviews = reviews;
+    }
+
+    /**
+     * How strongly reviews concentrate on popular courses: 0 spreads them
+     * evenly, 1 is classic Zipf, larger values are steeper still.
+     */
+    public void setZipfExponent(double zipfExponent) {
+        if (zipfExponent < 0) {
+            throw new IllegalArgumentException("The Zipf exponent cannot be negative");
+        }
+        this.zipfExponent = zipfExponent;
+    }
+
+    public void setDays(int days) {
+        if (days < 1) {
+            throw new IllegalArgumentException("Reviews must span at least one day");
+        }
+        this.days = days;
+    }
+
+    /**
+     * The password every user gets; may already be a stored hash, which
+     * BulkImporter keeps as is.
+     */
+    public void setPassword(String password) {
+        this.password = password;
+    }
+
+    /**
+     * Starts the dataset over from the seed; each iterator yields the same records.
+     */
+    @Override
+    public Iterator<ImportRecord> iterator() {
+        if ((long) subjects * NUMBERS_PER_SUBJECT < courses) {
+            throw new IllegalStateException(subjects + " subjects cannot hold " + courses + " course numbers");
+        }
+        if ((long) users * courses < reviews) {
+            throw new IllegalStateException(users + " users cannot write " + reviews
+                + " reviews of " + courses + " courses without reviewing a course twice");
+        }
+        return new Records();
+    }
+
+    /**
+     * Writes the dataset as a fixture that DatabaseInitializer --import reads:
+     * JSONL if the name ends in .jsonl, otherwise CSV. Returns the records written.
+     */
+    public long writeTo(Path file) throws IOException {
+        boolean json = file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".jsonl");
+        long count = 0;
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            if (!json) {
+                writer.write("type,field1,field2,field3,field4,field5,field6");
+                writer.newLine();
+            }
+            for (ImportRecord record : this) {
+                writer.write(json ? record.toJson() : record.toCsv());
+                writer.newLine();
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public static void main(String[] args) throws IOException, SQLException {
+        List<String> options = Arrays.asList(args);
+        String seed = option(options, "--seed=");
+        DatasetGenerator generator = new DatasetGenerator(seed == null ? 1 : Long.parseLong(seed));
+        String value;
+        if ((value = option(options, "--users=")) != null) {
+            generator.setUsers(Integer.parseInt(value));
+        }
+        if ((value = option(options, "--subjects=")) != null) {
+            generator.setSubjects(Integer.parseInt(value));
+        }
+        if ((value = option(options, "--courses=")) != null) {
+            generator.setCourses(Integer.parseInt(value));
+        }
+        if ((value = option(options, "--reviews=")) != null) {
+            generator.setReviews(Integer.parseInt(value));
+        }
+        if ((value = option(options, "--zipf=")) != null) {
+            generator.setZipfExponent(Double.parseDouble(value));
+        }
+        if ((value = option(options, "--days=")) != null) {
+            generator.setDays(Integer.parseInt(value));
+        }
+        String password = option(options, "--password=");
+        if (password != null) {
+            generator.setPassword(password);
+        }
+
+        String output = option(options, "--output=");
+        if (output != null) {
+            long start = System.nanoTime();
+            long count = generator.writeTo(Path.of(output));
+            System.out.printf("Wrote %,d records to %s in %.1f s%n", count, output, (System.nanoTime() - start) / 1e9);
+            return;
+        }
+
+        DatabaseConfig.setDefault(DatabaseConfig.load(options));
+        DatabaseService database = new DatabaseService();
+        generator.setPassword(database.getPasswordHasher().hash(password != null ? password : DEFAULT_PASSWORD));
+        BulkImporter importer = new BulkImporter(database);
+        if ((value = option(options, "--batch-size=")) != null) {
+            importer.setBatchSize(Integer.parseInt(value));
+        }
+        System.out.println(importer.importRecords(generator));
+        ConnectionPool.shutdownAll();
+    }
+
+    private static String option(List<String> options, String prefix) {
+        for (String option : options) {
+            if (option.startsWith(prefix)) {
+                return option.substring(prefix.length());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Samples ranks 0..n-1 with probability proportional to 1 / (rank + 1)^exponent.
+     */
+    static final class Zipf {
+        private final double[] cumulative;
+
+        Zipf(int n, double exponent) {
+            cumulative = new double[n];
+            double total = 0;
+            for (int rank = 0; rank < n; rank++) {
+                total += 1.0 / Math.pow(rank + 1, exponent);
+                cumulative[rank] = total;
+            }
+            for (int rank = 0; rank < n; rank++) {
+                cumulative[rank] /= total;
+            }
+        }
+
+        int sample(Random random) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble());
+            int rank = index >= 0 ? index : -index - 1;
+            return Math.min(rank, cumulative.length - 1);
+        }
+    }
+
+    private class Records implements Iterator<ImportRecord> {
+        // Separate streams per phase, so changing one setting does not reshuffle the rest
+        private final Random catalogRandom = new Random(seed);
+        private final Random userRandom = new Random(seed * 31 + 1);
+        private final Random reviewRandom = new Random(seed * 31 + 2);
+
+        private final String[] subjectCodes = subjectCodes(subjects);
+        private final int[] courseSubject = new int[courses];
+        private final int[] courseNumber = new int[courses];
+        // Popularity rank -> course, so the most reviewed courses are spread across subjects
+        private final int[] coursesByPopularity = shuffledRange(courses, catalogRandom);
+        // Each course's typical rating, so some courses are loved and some disliked
+        private final double[] courseQuality = new double[courses];
+        private final int[] userReviews;
+        // Semester ends within the span
+        private final int semesters;
+        private final Zipf coursePopularity;
+
+        private int user = 0;
+        private int course = 0;
+        private int reviewer = 0;
+        private int reviewerWritten = 0;
+        private final Set<Integer> reviewerCourses = new HashSet<>();
+
+        Records() {
+            assignCourses();
+            for (int i = 0; i < courses; i++) {
+                courseQuality[i] = 3.6 + catalogRandom.nextGaussian() * 0.8;
+            }
+            userReviews = reviewsPerUser();
+            int ends = 0;
+            while (daysBackToSemesterEnd(ends) < days) {
+                ends++;
+            }
+            semesters = ends;
+            coursePopularity = new Zipf(courses, zipfExponent);
+            while (reviewer < users && userReviews[reviewer] == 0) {
+                reviewer++;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return user < users || course < courses || reviewer < users;
+        }
+
+        @Override
+        public ImportRecord next() {
+            if (user < users) {
+                return ImportRecord.user(username(user++), password);
+            }
+            if (course < courses) {
+                int index = course++;
+                return ImportRecord.course(subjectCodes[courseSubject[index]], courseNumber[index],
+                    title(index));
+            }
+            if (reviewer >= users) {
+                throw new NoSuchElementException();
+            }
+            ImportRecord review = review(reviewer, pickCourse());
+            if (++reviewerWritten >= userReviews[reviewer]) {
+                nextReviewer();
+            }
+            return review;
+        }
+
+        // Large subjects own most of the courses; numbers within a subject are
+        // spread over 1000-9999 with random gaps, as real catalogs are
+        private void assignCourses() {
+            int[] perSubject = new int[subjects];
+            Zipf subjectSize = new Zipf(subjects, 0.8);
+            for (int i = 0; i < courses; i++) {
+                int subject = subjectSize.sample(catalogRandom);
+                // A full subject passes its course to the next one with room
+                while (perSubject[subject] >= NUMBERS_PER_SUBJECT) {
+                    subject = (subject + 1) % subjects;
+                }
+                perSubject[subject]++;
+            }
+            int index = 0;
+            for (int subject = 0; subject < subjects; subject++) {
+                int count = perSubject[subject];
+                int step = count == 0 ? 0 : NUMBERS_PER_SUBJECT / count;
+                for (int i = 0; i < count; i++) {
+                    courseSubject[index] = subject;
+                    courseNumber[index] = 1000 + i * step + catalogRandom.nextInt(step);
+                    index++;
+                }
+            }
+        }
+
+        // Splits the review total over users with a long tail of prolific
+        // reviewers; nobody can review more courses than there are
+        private int[] reviewsPerUser() {
+            int[] counts = new int[users];
+            int[] byActivity = shuffledRange(users, userRandom);
+            Zipf activity = new Zipf(users, 0.6);
+            for (int i = 0; i < reviews; i++) {
+                counts[byActivity[activity.sample(userRandom)]]++;
+            }
+            // Passing the excess along keeps the total exact
+            long excess = 0;
+            for (int u = 0; u < users; u++) {
+                if (counts[u] > courses) {
+                    excess += counts[u] - courses;
+                    counts[u] = courses;
+                }
+            }
+            for (int u = 0; excess > 0; u = (u + 1) % users) {
+                if (counts[u] < courses) {
+                    counts[u]++;
+                    excess--;
+                }
+            }
+            return counts;
+        }
+
+        private void nextReviewer() {
+            reviewer++;
+            reviewerWritten = 0;
+            reviewerCourses.clear();
+            while (reviewer < users && userReviews[reviewer] == 0) {
+                reviewer++;
+            }
+        }
+
+        // A popular course the reviewer has not reviewed yet; after a few
+        // collisions any unreviewed course will do, so heavy skew cannot stall
+        private int pickCourse() {
+            for (int attempt = 0; attempt < 32; attempt++) {
+                int candidate = coursesByPopularity[coursePopularity.sample(reviewRandom)];
+                if (reviewerCourses.add(candidate)) {
+                    return candidate;
+                }
+            }
+            int candidate = reviewRandom.nextInt(courses);
+            while (!reviewerCourses.add(candidate)) {
+                candidate = (candidate + 1) % courses;
+            }
+            return candidate;
+        }
+
+        private ImportRecord review(int user, int course) {
+            int rating = (int) Math.round(courseQuality[course] + reviewRandom.nextGaussian());
+            return ImportRecord.review(username(user), subjectCodes[courseSubject[course]], courseNumber[course],
+                Math.max(1, Math.min(5, rating)), comment(), new Timestamp(timestamp()));
+        }
+
+        // Most reviews land in the two weeks after a semester ends (early May
+        // and early December); the rest are spread evenly over the whole span
+        private long timestamp() {
+            long dayMillis = 86_400_000L;
+            long startMillis = END_MILLIS - days * dayMillis;
+            long time;
+            if (semesters > 0 && reviewRandom.nextDouble() < 0.7) {
+                double burstDays = Math.min(14, Math.abs(reviewRandom.nextGaussian()) * 5);
+                time = END_MILLIS - (long) ((daysBackToSemesterEnd(reviewRandom.nextInt(semesters)) - burstDays)
+                    * dayMillis);
+            } else {
+                time = startMillis + (long) (reviewRandom.nextDouble() * days * dayMillis);
+            }
+            return Math.max(startMillis, Math.min(END_MILLIS, time));
+        }
+
+        // Log-normal length: usually a sentence or two, occasionally an essay
+        private String comment() {
+            int length = (int) Math.round(Math.exp(2.5 + reviewRandom.nextGaussian() * 0.9));
+            if (length <= 1) {
+                return OPENERS[reviewRandom.nextInt(OPENERS.length)];
+            }
+            StringBuilder comment = new StringBuilder(OPENERS[reviewRandom.nextInt(OPENERS.length)]);
+            boolean sentenceStart = true;
+            for (int i = 0; i < Math.min(length, 400); i++) {
+                String word = WORDS[reviewRandom.nextInt(WORDS.length)];
+                comment.append(' ').append(sentenceStart ? Character.toUpperCase(word.charAt(0)) + word.substring(1) : word);
+                sentenceStart = reviewRandom.nextInt(12) == 0;
+                if (sentenceStart) {
+                    comment.append('.');
+                }
+            }
+            if (!sentenceStart) {
+                comment.append('.');
+            }
+            return comment.toString();
+        }
+
+        private String title(int course) {
+            Random random = new Random(seed ^ (course * 0x9E3779B97F4A7C15L));
+            String title = TITLE_PREFIXES[random.nextInt(TITLE_PREFIXES.length)] + " "
+                + TITLE_TOPICS[random.nextInt(TITLE_TOPICS.length)];
+            return random.nextInt(4) == 0 ? title + " " + (1 + random.nextInt(3)) : title;
+        }
+    }
+
+    // Semesters counted back from END_MILLIS: fall ends December 6, spring May 6
+    private static long daysBackToSemesterEnd(int semester) {
+        return (semester / 2) * 365L + (semester % 2 == 0 ? 14 : 228);
+    }
+
+    static String username(int user) {
+        return "user" + user;
+    }
+
+    // Real subject codes first, then made-up three- and four-letter ones
+    static String[] subjectCodes(int count) {
+        String[] codes = new String[count];
+        for (int i = 0; i < count; i++) {
+            if (i < REAL_SUBJECTS.length) {
+                codes[i] = REAL_SUBJECTS[i];
+                continue;
+            }
+            int n = i - REAL_SUBJECTS.length;
+            StringBuilder code = new StringBuilder("X");
+            // Base-26 suffix: XAA, XAB, ... then four letters, never clashing with the real codes
+            int letters = n < 26 * 26 ? 2 : 3;
+            int value = n < 26 * 26 ? n : n - 26 * 26;
+            char[] suffix = new char[letters];
+            for (int j = letters - 1; j >= 0; j--) {
+                suffix[j] = (char) ('A' + value % 26);
+                value /= 26;
+            }
+            codes[i] = code.append(suffix).toString();
+        }
+        return codes;
+    }
+
+    private static int[] shuffledRange(int n, Random random) {
+        int[] values = new int[n];
+        for (int i = 0; i < n; i++) {
+            values[i] = i;
+        }
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = values[i];
+            values[i] = values[j];
+            values[j] = swap;
+        }
+        return values;
+    }
+}
@@ -0,0 +1,132 @@
+package edu.virginia.sde.reviews.utils;
+
+import edu.virginia.sde.reviews.services.BulkImporter;
+import edu.virginia.sde.reviews.services.DatabaseConfig;
+import edu.virginia.sde.reviews.services.DatabaseService;
+import edu.virginia.sde.reviews.services.ImportRecord;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares typo-tolerant course search against the substring LIKE query that
+ * searchCourses used before, on a generated catalog in a temporary database.
+ * Reports the average latency and number of hits per query.
+ *
+ * Usage: FuzzySearchBenchmark [--courses=N] [--iterations=N]
+ */
+public class FuzzySearchBenchmark {
+    private static final String[] SUBJECTS = {
+        "CS", "MATH", "PHYS", "CHEM", "BIOL", "ECON", "ECE", "APMA", "SYS", "STS",
+        "PSYC", "HIST", "ENGL", "PHIL", "ASTR", "STAT", "MAE", "CE", "ARCH", "MUSI"
+    };
+    private static final String[] WORDS = {
+        "Introduction", "Advanced", "Software", "Development", "Algorithms", "Data", "Structures",
+        "Operating", "Systems", "Machine", "Learning", "Database", "Networks", "Theory", "Design",
+        "Analysis", "Quantum", "Physics", "Organic", "Chemistry", "Cell", "Biology", "Linear",
+        "Algebra", "Calculus", "Probability", "Statistics", "Digital", "Logic", "Circuits",
+        "Signals", "Microeconomics", "History", "Modern", "Ethics", "Literature", "Writing",
+        "Methods", "Applied", "Engineering", "Computer", "Architecture", "Security", "Graphics",
+        "Compilers", "Programming", "Languages", "Robotics", "Thermodynamics", "Mechanics"
+    };
+    private static final String[] QUERIES = {
+        "Algoritms", "Opperating Systems", "Machne Lerning", "Databse", "Softwre Developmnt",
+        "Quantm Physcs", "Algorithms", "cs algoritms"
+    };
+
+    public static void main(String[] args) throws IOException, SQLException {
+        List<String> options = Arrays.asList(args);
+        int courses = Integer.parseInt(option(options, "--courses=", "20000"));
+        int iterations = Integer.parseInt(option(options, "--iterations=", "50"));
+
+        Path dir = Files.createTempDirectory("fuzzy-benchmark");
+        DatabaseService database = new DatabaseService(DatabaseConfig.forPath(dir.resolve("benchmark.db")));
+        BulkImporter importer = new BulkImporter(database);
+        importer.setVerbose(false);
+        importer.importRecords(generateCourses(courses));
+        System.out.printf("Generated %,d courses in %s%n", courses, dir);
+
+        // Load the catalog up front so the fuzzy timings do not include the first read
+        database.searchCourses(null, null, null, null, 1);
+        System.out.println(database.getCourseCatalog());
+
+        System.out.printf("%-22s %14s %8s %14s %8s%n", "query", "LIKE (us)", "hits", "fuzzy (us)", "hits");
+        for (String query : QUERIES) {
+            int likeHits = 0;
+            int fuzzyHits = 0;
+            // One untimed round warms up the JIT and the statement cache
+            long likeNanos = 0;
+            long fuzzyNanos = 0;
+            for (int i = 0; i <= iterations; i++) {
+                long start = System.nanoTime();
+                likeHits = likeSearch(database, query);
+                long middle = System.nanoTime();
+                fuzzyHits = database.searchCoursesFuzzy(query, null, 200).size();
+                long end = System.nanoTime();
+                if (i > 0) {
+                    likeNanos += middle - start;
+                    fuzzyNanos += end - middle;
+                }
+            }
+            System.out.printf("%-22s %14.1f %8d %14.1f %8d%n", query,
+                likeNanos / 1000.0 / iterations, likeHits, fuzzyNanos / 1000.0 / iterations, fuzzyHits);
+        }
+    }
+
+    // The title filter searchCourses ran before full-text and fuzzy search
+    private static int likeSearch(DatabaseService database, String query) throws SQLException {
+        String sql = "SELECT id FROM courses WHERE UPPER(title) LIKE UPPER(?) ORDER BY subject, number, title";
+        try (Connection conn = database.getConnectionPool().getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, "%" + query + "%");
+            ResultSet rs = pstmt.executeQuery();
+            int hits = 0;
+            while (rs.next()) {
+                hits++;
+            }
+            return hits;
+        }
+    }
+
+    private static List<ImportRecord> generateCourses(int count) {
+        // Fixed seed so runs are comparable
+        Random random = new Random(42);
+        List<ImportRecord> records = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String subject = SUBJECTS[i % SUBJECTS.length];
+            int number = 1000 + (i / SUBJECTS.length) % 9000;
+            StringBuilder title = new StringBuilder();
+            int words = 2 + random.nextInt(3);
+            for (int w = 0; w < words; w++) {
+                String word = WORDS[random.nextInt(WORDS.length)];
+                if (title.length() + word.length() + 1 > 50) {
+                    break;
+                }
+                if (title.length() > 0) {
+                    title.append(' ');
+                }
+                title.append(word);
+            }
+            records.add(ImportRecord.course(subject, number, title.toString()));
+        }
+        return records;
+    }
+
+    private static String option(List<String> options, String prefix, String defaultValue) {
+        for (String option : options) {
+            if (option.startsWith(prefix)) {
+                return option.substring(prefix.length());
+            }
+        }
+        return defaultValue;
+    }
+}
@@ -0,0 +1,108 @@
+package edu.virginia.sde.reviews.utils;
+
+import javafx.application.Platform;
+import javafx.scene.control.ProgressIndicator;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+
+/**
+ * Tracks the latest background request of one kind (e.g. "the search results")
+ * for a controller. Submitting a new request cancels the previous one, and a
+ * result only reaches the UI if its request is still the latest, so a slow,
+ * superseded query can never overwrite newer results.
+ *
+ * Callbacks run on the JavaFX Application Thread; submit and cancel must be
+ * called from it as well.
+ */
+public class LatestRequest<T> {
+    private final Loading loading;
+    private CompletableFuture<T> current;
+
+    /**
+     * @param indicator shown while any request sharing it is in flight; may be null
+     */
+    public LatestRequest(ProgressIndicator indicator) {
+        this(new Loading(indicator));
+    }
+
+    public LatestRequest(Loading loading) {
+        this.loading = loading;
+    }
+
+    public void submit(CompletableFuture<T> future, Consumer<T> onSuccess) {
+        submit(future, onSuccess, Throwable::printStackTrace);
+    }
+
+    public void submit(CompletableFuture<T> future, Consumer<T> onSuccess, Consumer<Throwable> onFailure) {
+        cancel();
+        current = future;
+        loading.begin();
+        future.whenComplete((result, error) -> Platform.runLater(() -> {
+            if (current != future) {
+                // Superseded or cancelled; cancel() already ended the loading state
+                return;
+            }
+            current = null;
+            loading.end();
+            if (error == null) {
+                onSuccess.accept(result);
+            } else if (!(error instanceof CancellationException)) {
+                onFailure.accept(error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error);
+            }
+        }));
+    }
+
+    public boolean isPending() {
+        return current != null;
+    }
+
+    /**
+     * Drops the request in flight, if any. A task that has not started yet is
+     * skipped; one already running finishes but its result is ignored.
+     */
+    public void cancel() {
+        if (current != null) {
+            current.cancel(false);
+            current = null;
+            loading.end();
+        }
+    }
+
+    /**
+     * Shows a progress indicator while at least one request is in flight. Work
+     * not tracked by a LatestRequest can share it through begin and end.
+     */
+    public static class Loading {
+        private final ProgressIndicator indicator;
+        private int pending;
+
+        public Loading(ProgressIndicator indicator) {
+            this.indicator = indicator;
+            update();
+        }
+
+        public void begin() {
+            pending++;
+            update();
+        }
+
+        public void end() {
+            pending--;
+            update();
+        }
+
+        public boolean isLoading() {
+            return pending > 0;
+        }
+
+        private void update() {
+            if (indicator != null) {
+                indicator.setVisible(pending > 0);
+            }
+        }
+    }
+}
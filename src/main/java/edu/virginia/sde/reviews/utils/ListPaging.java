@@ -0,0 +1,43 @@
+package edu.virginia.sde.reviews.utils;
+
+import javafx.application.Platform;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+
+/**
+ * Loads the next page of a ListView when the user scrolls to the end of what has
+ * been loaded so far. ListView only creates cells for visible rows, so the cell
+ * showing the last item is the signal that more rows are needed.
+ */
+public final class ListPaging {
+    public static final int PAGE_SIZE = 50;
+
+    private ListPaging() {
+    }
+
+    /**
+     * Replaces the list's cells with plain text cells (as the default ones) that
+     * call {@code loadMore} once the last item comes into view. The callback runs
+     * after the current layout pass and should do nothing if there is no next page
+     * or one is already being loaded.
+     */
+    public static <T> void loadMoreOnScroll(ListView<T> listView, Runnable loadMore) {
+        listView.setCellFactory(view -> new ListCell<>() {
+            @Override
+            protected void updateItem(T item, boolean empty) {
+                super.updateItem(item, empty);
+                setText(empty || item == null ? null : item.toString());
+                int size = view.getItems().size();
+                if (!empty && getIndex() == size - 1) {
+                    // Changing the items during layout is not allowed, so load afterwards,
+                    // and only once even if several cells asked for the same page
+                    Platform.runLater(() -> {
+                        if (view.getItems().size() == size) {
+                            loadMore.run();
+                        }
+                    });
+                }
+            }
+        });
+    }
+}
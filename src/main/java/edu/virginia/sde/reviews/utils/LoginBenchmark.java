@@ -0,0 +1,113 @@
+package edu.virginia.sde.reviews.utils;
+
+import edu.virginia.sde.reviews.services.ConnectionPool;
+import edu.virginia.sde.reviews.services.DatabaseConfig;
+import edu.virginia.sde.reviews.services.DatabaseService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures login throughput and latency for a range of PBKDF2 iteration counts
+ * (auth.iterations), to pick the highest cost this hardware can afford. Each
+ * count gets a fresh temporary database with one user; worker threads then log
+ * in through DatabaseService.openSession, the path LoginController uses.
+ *
+ * Usage: LoginBenchmark [--costs=10000,50000,...] [--logins=200] [--threads=N]
+ */
+public class LoginBenchmark {
+    private static final String DEFAULT_COSTS = "10000,50000,100000,210000,600000";
+    private static final String USERNAME = "bench";
+    private static final String PASSWORD = "password123";
+    // Untimed logins per thread before measuring, so the JIT has settled
+    private static final int WARMUP_LOGINS = 3;
+
+    public static void main(String[] args) throws Exception {
+        String costs = DEFAULT_COSTS;
+        int logins = 200;
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (String arg : args) {
+            if (arg.startsWith("--costs=")) {
+                costs = arg.substring("--costs=".length());
+            } else if (arg.startsWith("--logins=")) {
+                logins = Integer.parseInt(arg.substring("--logins=".length()));
+            } else if (arg.startsWith("--threads=")) {
+                threads = Integer.parseInt(arg.substring("--threads=".length()));
+            }
+        }
+
+        System.out.printf("%d logins per cost on %d threads%n", logins, threads);
+        System.out.printf("%-12s %12s %12s %12s %12s%n", "iterations", "logins/sec", "p50 (ms)", "p99 (ms)", "max (ms)");
+        for (String cost : costs.split(",")) {
+            int iterations = Integer.parseInt(cost.trim());
+            Path dir = Files.createTempDirectory("login-benchmark");
+            Properties properties = new Properties();
+            properties.setProperty("db.path", dir.resolve("login.db").toString());
+            properties.setProperty("pool.maxSize", String.valueOf(threads + 1));
+            properties.setProperty("auth.iterations", String.valueOf(iterations));
+            DatabaseService database = new DatabaseService(new DatabaseConfig(properties));
+            if (!database.createUser(USERNAME, PASSWORD)) {
+                throw new IOException("Could not create the benchmark user");
+            }
+
+            long[] latencies = new long[logins];
+            double seconds = run(database, latencies, threads);
+            Arrays.sort(latencies);
+            System.out.printf("%-12d %12.1f %12.1f %12.1f %12.1f%n", iterations, logins / seconds,
+                percentile(latencies, 0.50), percentile(latencies, 0.99), latencies[logins - 1] / 1e6);
+        }
+        ConnectionPool.shutdownAll();
+    }
+
+    // Returns the wall-clock seconds taken; fills latencies with nanoseconds per login
+    private static double run(DatabaseService database, long[] latencies, int threadCount) throws Exception {
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger failures = new AtomicInteger();
+        CountDownLatch ready = new CountDownLatch(threadCount);
+        CountDownLatch go = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threadCount);
+
+        for (int t = 0; t < threadCount; t++) {
+            new Thread(() -> {
+                for (int i = 0; i < WARMUP_LOGINS; i++) {
+                    database.openSession(USERNAME, PASSWORD);
+                }
+                ready.countDown();
+                try {
+                    go.await();
+                    int index;
+                    while ((index = next.getAndIncrement()) < latencies.length) {
+                        long start = System.nanoTime();
+                        if (database.openSession(USERNAME, PASSWORD) == null) {
+                            failures.incrementAndGet();
+                        }
+                        latencies[index] = System.nanoTime() - start;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                done.countDown();
+            }).start();
+        }
+
+        ready.await();
+        long start = System.nanoTime();
+        go.countDown();
+        done.await();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        if (failures.get() > 0) {
+            throw new IOException(failures.get() + " benchmark logins failed");
+        }
+        return seconds;
+    }
+
+    private static double percentile(long[] sorted, double fraction) {
+        int index = (int) Math.ceil(fraction * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+    }
+}
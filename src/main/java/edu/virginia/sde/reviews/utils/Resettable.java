@@ -0,0 +1,12 @@
+package edu.virginia.sde.reviews.utils;
+
+/**
+ * A controller whose view {@link SceneManager} caches and shows again later.
+ * resetState() runs on the JavaFX Application Thread before every repeat
+ * visit, ahead of the usual setSession/setData call. It should cancel pending
+ * requests and clear what the last visit left behind: typed text, messages,
+ * selections and loaded lists.
+ */
+public interface Resettable {
+    void resetState();
+}
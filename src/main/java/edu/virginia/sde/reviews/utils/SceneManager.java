@@ -1,41 +1,217 @@
 package edu.virginia.sde.reviews.utils;
 
 import edu.virginia.sde.reviews.models.Course;
+import edu.virginia.sde.reviews.models.Session;
 import edu.virginia.sde.reviews.controllers.CourseReviewController;
 import edu.virginia.sde.reviews.controllers.CourseSearchController;
 import edu.virginia.sde.reviews.controllers.MyReviewsController;
+import edu.virginia.sde.reviews.services.DatabaseConfig;
+import edu.virginia.sde.reviews.services.LatencyHistogram;
 import javafx.fxml.FXMLLoader;
+import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.control.Control;
 import javafx.stage.Stage;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Moves the window between the application's views. Each FXML view is loaded
+ * once, together with its controller, and kept. Showing a view makes it the
+ * root of the window's single Scene, which holds the one shared stylesheet.
+ * A controller that implements {@link Resettable} is reset before it is shown
+ * again, then handed the session (and course) as on its first visit.
+ *
+ * {@link #preload} loads views on a background thread at startup; navigating
+ * to a view that is still loading waits for it. Each navigation is timed until
+ * the new view has been laid out (see {@link #getNavigationLatency}), and
+ * printed when metrics.logNavigation is on.
+ */
 public class SceneManager {
-    public static void switchToScene(Control sourceControl, String fxmlPath, String currentUser) throws IOException {
-        switchToScene(sourceControl, fxmlPath, currentUser, null);
+    public static final String LOGIN = "/edu/virginia/sde/reviews/login.fxml";
+    public static final String COURSE_SEARCH = "/edu/virginia/sde/reviews/courseSearch.fxml";
+    public static final String COURSE_REVIEW = "/edu/virginia/sde/reviews/courseReview.fxml";
+    public static final String MY_REVIEWS = "/edu/virginia/sde/reviews/myReviews.fxml";
+
+    private static final String STYLESHEET =
+        SceneManager.class.getResource("/edu/virginia/sde/reviews/css/style.css").toExternalForm();
+
+    // Views by FXML path; a view still being preloaded is an incomplete future
+    private static final Map<String, CompletableFuture<View>> VIEWS = new ConcurrentHashMap<>();
+    // Navigation times by FXML path, until the new view is laid out
+    private static final Map<String, LatencyHistogram> NAVIGATION = new ConcurrentHashMap<>();
+
+    /**
+     * Shows the first view in a new Scene on the stage, with the stylesheet.
+     */
+    public static void showFirst(Stage stage, String fxmlPath) throws IOException {
+        View view = view(fxmlPath);
+        view.shown = true;
+        Scene scene = new Scene(view.root);
+        scene.getStylesheets().add(STYLESHEET);
+        stage.setScene(scene);
+        stage.show();
     }
 
-    public static void switchToScene(Control sourceControl, String fxmlPath, String currentUser, Course selectedCourse) throws IOException {
-        FXMLLoader loader = new FXMLLoader(SceneManager.class.getResource(fxmlPath));
-        Scene scene = new Scene(loader.load());
+    /**
+     * Loads the views on a daemon thread, one after another, so the first visit
+     * to each is as fast as later ones. Views already loaded are skipped.
+     *
+     * Controller constructors and initialize() methods of preloaded views run
+     * on that thread, before the view is part of any scene. They may build and
+     * wire up their own nodes, but must not touch the window's scene or stage,
+     * start animations, or use other state owned by the JavaFX Application
+     * Thread. Such work belongs in setSession/setData, which always run on it.
+     */
+    public static void preload(String... fxmlPaths) {
+        Map<String, CompletableFuture<View>> claimed = new HashMap<>();
+        for (String fxmlPath : fxmlPaths) {
+            CompletableFuture<View> loading = new CompletableFuture<>();
+            if (VIEWS.putIfAbsent(fxmlPath, loading) == null) {
+                claimed.put(fxmlPath, loading);
+            }
+        }
+        Thread loader = new Thread(() -> {
+            for (String fxmlPath : fxmlPaths) {
+                CompletableFuture<View> loading = claimed.get(fxmlPath);
+                if (loading != null) {
+                    complete(fxmlPath, loading);
+                }
+            }
+        }, "scene-preload");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    public static void switchToScene(Control sourceControl, String fxmlPath, Session session) throws IOException {
+        switchToScene(sourceControl, fxmlPath, session, null);
+    }
 
-        String css = SceneManager.class.getResource("/edu/virginia/sde/reviews/css/style.css").toExternalForm();
-        scene.getStylesheets().add(css);
-        
-        // Get the controller and set the current user
-        Object controller = loader.getController();
+    public static void switchToScene(Control sourceControl, String fxmlPath, Session session, Course selectedCourse) throws IOException {
+        long start = System.nanoTime();
+        View view = view(fxmlPath);
+        boolean firstVisit = !view.shown;
+        if (!firstVisit && view.controller instanceof Resettable) {
+            ((Resettable) view.controller).resetState();
+        }
+        view.shown = true;
+
+        // Hand the controller the logged-in user's session
+        Object controller = view.controller;
         if (controller instanceof CourseSearchController) {
-            ((CourseSearchController) controller).setCurrentUser(currentUser);
+            ((CourseSearchController) controller).setSession(session);
         } else if (controller instanceof MyReviewsController) {
-            ((MyReviewsController) controller).setCurrentUser(currentUser);
+            ((MyReviewsController) controller).setSession(session);
         } else if (controller instanceof CourseReviewController) {
-            ((CourseReviewController) controller).setData(currentUser, selectedCourse);
+            ((CourseReviewController) controller).setData(session, selectedCourse);
         }
-        
-        // Get the stage and set the new scene
-        Stage stage = (Stage) sourceControl.getScene().getWindow();
-        stage.setScene(scene);
+
+        // Swap the view into the window's scene; the window takes the view's size
+        Scene scene = sourceControl.getScene();
+        scene.setRoot(view.root);
+        Stage stage = (Stage) scene.getWindow();
+        stage.sizeToScene();
         stage.show();
+        scene.addPostLayoutPulseListener(new NavigationTimer(scene, fxmlPath, start, firstVisit));
+    }
+
+    /**
+     * How long navigations to the view took, from the call to switchToScene
+     * until the view was laid out; null if it has not been shown yet.
+     */
+    public static LatencyHistogram getNavigationLatency(String fxmlPath) {
+        return NAVIGATION.get(fxmlPath);
+    }
+
+    private static View view(String fxmlPath) throws IOException {
+        CompletableFuture<View> loading = VIEWS.get(fxmlPath);
+        if (loading == null) {
+            // Not preloaded: load it here, on the JavaFX Application Thread
+            CompletableFuture<View> loaded = new CompletableFuture<>();
+            loading = VIEWS.putIfAbsent(fxmlPath, loaded);
+            if (loading == null) {
+                complete(fxmlPath, loaded);
+                loading = loaded;
+            }
+        }
+        try {
+            return loading.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw new IOException("Could not load " + fxmlPath, e.getCause());
+        }
+    }
+
+    private static void complete(String fxmlPath, CompletableFuture<View> loading) {
+        try {
+            FXMLLoader loader = new FXMLLoader(SceneManager.class.getResource(fxmlPath));
+            Parent root = loader.load();
+            loading.complete(new View(root, loader.getController()));
+        } catch (IOException e) {
+            failed(fxmlPath, loading, new UncheckedIOException(e));
+        } catch (RuntimeException e) {
+            failed(fxmlPath, loading, e);
+        }
+    }
+
+    // A failed load is forgotten, so the next navigation tries again
+    private static void failed(String fxmlPath, CompletableFuture<View> loading, RuntimeException e) {
+        VIEWS.remove(fxmlPath, loading);
+        loading.completeExceptionally(e);
+    }
+
+    /**
+     * A loaded view and its controller.
+     */
+    private static final class View {
+        private final Parent root;
+        private final Object controller;
+        // Only read and written on the JavaFX Application Thread
+        private boolean shown = false;
+
+        private View(Parent root, Object controller) {
+            this.root = root;
+            this.controller = controller;
+        }
+    }
+
+    /**
+     * Records a navigation once the next layout pass, which includes the new
+     * view, has finished.
+     */
+    private static final class NavigationTimer implements Runnable {
+        private final Scene scene;
+        private final String fxmlPath;
+        private final long start;
+        private final boolean firstVisit;
+
+        private NavigationTimer(Scene scene, String fxmlPath, long start, boolean firstVisit) {
+            this.scene = scene;
+            this.fxmlPath = fxmlPath;
+            this.start = start;
+            this.firstVisit = firstVisit;
+        }
+
+        @Override
+        public void run() {
+            scene.removePostLayoutPulseListener(this);
+            long elapsed = System.nanoTime() - start;
+            LatencyHistogram latency = NAVIGATION.computeIfAbsent(fxmlPath, path -> new LatencyHistogram());
+            latency.record(elapsed);
+            if (!DatabaseConfig.getDefault().isLogNavigation()) {
+                return;
+            }
+            String name = fxmlPath.substring(fxmlPath.lastIndexOf('/') + 1);
+            System.out.printf("Showed %s in %.1f ms (%s; median %.1f ms over %d visits)%n", name, elapsed / 1e6,
+                firstVisit ? "first visit" : "cached", latency.getPercentileNanos(0.5) / 1e6, latency.getCount());
+        }
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,139 @@
+package edu.virginia.sde.reviews.utils;
+
+import edu.virginia.sde.reviews.models.Course;
+import edu.virginia.sde.reviews.models.Review;
+import edu.virginia.sde.reviews.services.ConnectionPool;
+import edu.virginia.sde.reviews.services.DatabaseConfig;
+import edu.virginia.sde.reviews.services.DatabaseService;
+import edu.virginia.sde.reviews.services.PasswordHasher;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares read and write throughput of DatabaseService under different storage
+ * profiles (journal mode and synchronous level). Each profile gets a fresh
+ * temporary database; one writer thread updates reviews while reader threads
+ * list reviews and look up courses, so the numbers show how much readers are
+ * held up behind writers.
+ *
+ * Usage: StorageBenchmark [--seconds=5] [--readers=4]
+ */
+public class StorageBenchmark {
+    private static final int USERS = 200;
+    private static final int COURSES = 50;
+    private static final int REVIEWS_PER_USER = 10;
+
+    private static final String[][] PROFILES = {
+        // name, journal mode, synchronous
+        {"wal-normal", "WAL", "NORMAL"},
+        {"wal-full", "WAL", "FULL"},
+        {"rollback-normal", "DELETE", "NORMAL"},
+        {"rollback-full", "DELETE", "FULL"},
+    };
+
+    public static void main(String[] args) throws Exception {
+        int seconds = 5;
+        int readers = 4;
+        for (String arg : args) {
+            if (arg.startsWith("--seconds=")) {
+                seconds = Integer.parseInt(arg.substring("--seconds=".length()));
+            } else if (arg.startsWith("--readers=")) {
+                readers = Integer.parseInt(arg.substring("--readers=".length()));
+            }
+        }
+
+        System.out.printf("%-16s %14s %14s%n", "profile", "writes/sec", "reads/sec");
+        for (String[] profile : PROFILES) {
+            Path dir = Files.createTempDirectory("storage-benchmark");
+            Properties properties = new Properties();
+            properties.setProperty("db.path", dir.resolve(profile[0] + ".db").toString());
+            properties.setProperty("db.journalMode", profile[1]);
+            properties.setProperty("db.synchronous", profile[2]);
+            properties.setProperty("pool.maxSize", String.valueOf(readers + 2));
+            // Seeding users is not what is measured, so passwords get the cheapest hash
+            properties.setProperty("auth.iterations", String.valueOf(PasswordHasher.MIN_ITERATIONS));
+
+            double[] result = run(new DatabaseService(new DatabaseConfig(properties)), seconds, readers);
+            System.out.printf("%-16s %14.0f %14.0f%n", profile[0], result[0], result[1]);
+        }
+        ConnectionPool.shutdownAll();
+    }
+
+    private static double[] run(DatabaseService database, int seconds, int readerCount) throws Exception {
+        List<Integer> courseIds = new ArrayList<>();
+        List<Integer> reviewIds = new ArrayList<>();
+        seed(database, courseIds, reviewIds);
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong writes = new AtomicLong();
+        AtomicLong reads = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(readerCount + 1);
+
+        Thread writer = new Thread(() -> {
+            Random random = new Random(1);
+            while (running.get()) {
+                int reviewId = reviewIds.get(random.nextInt(reviewIds.size()));
+                if (database.updateReview(reviewId, 1 + random.nextInt(5), "Updated " + random.nextInt())) {
+                    writes.incrementAndGet();
+                }
+            }
+            done.countDown();
+        });
+        writer.start();
+
+        for (int i = 0; i < readerCount; i++) {
+            long seed = i;
+            new Thread(() -> {
+                Random random = new Random(seed);
+                while (running.get()) {
+                    int courseId = courseIds.get(random.nextInt(courseIds.size()));
+                    List<Review> reviews = database.getReviewsForCourse(courseId);
+                    Course course = database.getCourse(courseId);
+                    if (course != null && reviews != null) {
+                        reads.addAndGet(2);
+                    }
+                }
+                done.countDown();
+            }).start();
+        }
+
+        long start = System.nanoTime();
+        Thread.sleep(seconds * 1000L);
+        running.set(false);
+        done.await();
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        return new double[]{writes.get() / elapsed, reads.get() / elapsed};
+    }
+
+    private static void seed(DatabaseService database, List<Integer> courseIds, List<Integer> reviewIds)
+            throws IOException {
+        for (int c = 0; c < COURSES; c++) {
+            Course course = database.addCourse("BEN", 1000 + c, "Benchmark Course " + c);
+            if (course == null) {
+                throw new IOException("Could not seed course " + c);
+            }
+            courseIds.add(course.getId());
+        }
+        for (int u = 0; u < USERS; u++) {
+            String username = "bench" + u;
+            database.createUser(username, "password123");
+            int userId = database.getUserId(username);
+            for (int r = 0; r < REVIEWS_PER_USER; r++) {
+                int courseId = courseIds.get((u + r) % COURSES);
+                Review review = database.addReview(userId, courseId, 1 + (u + r) % 5, "Seed review");
+                if (review != null) {
+                    reviewIds.add(review.getId());
+                }
+            }
+        }
+    }
+}
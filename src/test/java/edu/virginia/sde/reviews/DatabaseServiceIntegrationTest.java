@@ -2,15 +2,21 @@ package edu.virginia.sde.reviews;
 
 import edu.virginia.sde.reviews.models.Course;
 import edu.virginia.sde.reviews.models.Review;
+import edu.virginia.sde.reviews.services.DatabaseConfig;
 import edu.virginia.sde.reviews.services.DatabaseService;
 import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.nio.file.Path;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 @TestMethodOrder(MethodOrderer.OrderAnnotation.class)
 class DatabaseServiceIntegrationTest {
+    @TempDir
+    static Path tempDir;
+
     private static DatabaseService database;
     private static final String TEST_USER = "testUser";
     private static final String TEST_PASSWORD = "password123";
@@ -18,7 +24,7 @@ class DatabaseServiceIntegrationTest {
 
     @BeforeAll
     static void setUp() {
-        database = new DatabaseService();
+        database = new DatabaseService(DatabaseConfig.forPath(tempDir.resolve("integration_reviews.db")));
         database.clearDatabase();
         assertTrue(database.createUser(TEST_USER, TEST_PASSWORD));
         userId = database.getUserId(TEST_USER);
@@ -0,0 +1,105 @@
+package edu.virginia.sde.reviews.services;
+
+import edu.virginia.sde.reviews.models.Course;
+import edu.virginia.sde.reviews.models.Page;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncDatabaseServiceTest {
+    @TempDir
+    Path tempDir;
+
+    private DatabaseConfig config(String executor) {
+        Properties properties = new Properties();
+        properties.setProperty("db.path", tempDir.resolve("async.db").toString());
+        properties.setProperty("async.executor", executor);
+        properties.setProperty("async.threads", "2");
+        return new DatabaseConfig(properties);
+    }
+
+    @Test
+    void testRunsCallsOffTheCallingThread() throws Exception {
+        DatabaseConfig config = config("bounded");
+        AsyncDatabaseService async = new AsyncDatabaseService(new DatabaseService(config));
+
+        Course course = async.addCourse("CS", 3140, "Software Development Methods").get(5, TimeUnit.SECONDS);
+        assertNotNull(course);
+        Page<Course> page = async.searchCourses("CS", null, null, null, 10).get(5, TimeUnit.SECONDS);
+        assertEquals(1, page.getItems().size());
+
+        Thread caller = Thread.currentThread();
+        Thread worker = async.call(db -> Thread.currentThread()).get(5, TimeUnit.SECONDS);
+        assertNotSame(caller, worker);
+        assertTrue(worker.isDaemon());
+    }
+
+    @Test
+    void testBoundedExecutorUsesConfiguredThreads() {
+        ExecutorService executor = AsyncDatabaseService.executorFor(config("bounded"));
+        assertTrue(executor instanceof ThreadPoolExecutor);
+        assertEquals(2, ((ThreadPoolExecutor) executor).getMaximumPoolSize());
+        // Shared per database
+        assertSame(executor, AsyncDatabaseService.executorFor(config("bounded")));
+    }
+
+    @Test
+    void testCancelledRequestIsSkipped() throws Exception {
+        DatabaseService database = new DatabaseService(config("bounded"));
+        ExecutorService single = Executors.newSingleThreadExecutor();
+        try {
+            AsyncDatabaseService async = new AsyncDatabaseService(database, single);
+            CountDownLatch release = new CountDownLatch(1);
+            CompletableFuture<Boolean> blocker = async.call(db -> {
+                try {
+                    return release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    return false;
+                }
+            });
+
+            AtomicBoolean ran = new AtomicBoolean();
+            CompletableFuture<Boolean> superseded = async.call(db -> ran.getAndSet(true));
+            assertTrue(superseded.cancel(false));
+            release.countDown();
+            assertTrue(blocker.get(5, TimeUnit.SECONDS));
+
+            // The queued task for the cancelled request never touched the database
+            async.call(db -> true).get(5, TimeUnit.SECONDS);
+            assertFalse(ran.get());
+        } finally {
+            single.shutdownNow();
+        }
+    }
+
+    @Test
+    void testRejectedCallFailsTheFuture() {
+        DatabaseService database = new DatabaseService(config("bounded"));
+        ExecutorService stopped = Executors.newSingleThreadExecutor();
+        stopped.shutdown();
+        AsyncDatabaseService async = new AsyncDatabaseService(database, stopped);
+
+        CompletableFuture<Boolean> rejected = async.call(db -> true);
+        assertTrue(rejected.isCompletedExceptionally());
+        ExecutionException e = assertThrows(ExecutionException.class, rejected::get);
+        assertTrue(e.getCause() instanceof RejectedExecutionException);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        AsyncDatabaseService.shutdownAll();
+    }
+}
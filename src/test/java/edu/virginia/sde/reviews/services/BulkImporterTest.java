@@ -0,0 +1,233 @@
+package edu.virginia.sde.reviews.services;
+
+import edu.virginia.sde.reviews.models.Course;
+import edu.virginia.sde.reviews.models.Review;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BulkImporterTest {
+    @TempDir
+    Path tempDir;
+
+    private DatabaseService database;
+    private BulkImporter importer;
+
+    @BeforeEach
+    void setUp() {
+        database = new DatabaseService(DatabaseConfig.forPath(tempDir.resolve("import.db")));
+        importer = new BulkImporter(database);
+        importer.setVerbose(false);
+    }
+
+    @Test
+    void testImportsCsvAndResolvesNames() throws Exception {
+        Path file = write("catalog.csv",
+            "type,field1,field2",
+            "user,alice,secret1",
+            "user,bob,secret2",
+            "course,cs,3140,Software Development Methods",
+            "course,MATH,3354,Survey of Algebra",
+            "review,alice,CS,3140,5,\"Great, would take again\",2024-12-05T10:00:00",
+            "review,bob,CS,3140,3,\"Said \"\"meh\"\"\",1733392800000",
+            "review,alice,MATH,3354,4,Proofs");
+        importer.setBatchSize(2);
+
+        BulkImporter.Report report = importer.importFile(file);
+        assertEquals(7, report.getRecordsRead());
+        assertEquals(2, report.getUsersInserted());
+        assertEquals(2, report.getCoursesInserted());
+        assertEquals(3, report.getReviewsInserted());
+        assertEquals(0, report.getRejected());
+        assertFalse(Files.exists(BulkImporter.checkpointFile(file)));
+
+        int courseId = database.getCourseIdBySubjectAndNumber("CS", 3140);
+        Course course = database.getCourse(courseId);
+        assertEquals(2, course.getReviewCount());
+        assertEquals(4.0, course.getAverageRating(), 0.01);
+
+        List<Review> reviews = database.getReviewsForCourse(courseId);
+        assertTrue(reviews.stream().anyMatch(r -> r.getComment().equals("Great, would take again")));
+        assertTrue(reviews.stream().anyMatch(r -> r.getComment().equals("Said \"meh\"")));
+        assertTrue(database.validateUser("bob", "secret2"));
+    }
+
+    @Test
+    void testImportsJsonLines() throws Exception {
+        Path file = write("catalog.jsonl",
+            "{\"type\":\"user\",\"username\":\"carol\",\"password\":\"pw\"}",
+            "{\"type\":\"course\",\"subject\":\"PHYS\",\"number\":2415,\"title\":\"Physics 1\"}",
+            "{\"type\":\"review\",\"username\":\"carol\",\"subject\":\"PHYS\",\"number\":2415,"
+                + "\"rating\":4,\"comment\":\"Line one\\nline two\",\"timestamp\":\"2024-01-02T03:04:05Z\"}");
+
+        BulkImporter.Report report = importer.importFile(file);
+        assertEquals(1, report.getReviewsInserted());
+        List<Review> reviews = database.getUserReviews(database.getUserId("carol"));
+        assertEquals("Line one\nline two", reviews.get(0).getComment());
+    }
+
+    @Test
+    void testSkipsDuplicatesAndRejectsUnknownReferences() throws Exception {
+        database.createUser("alice", "secret1");
+        Path file = write("dupes.csv",
+            "user,alice,other",
+            "course,CS,2100,Data Structures",
+            "review,alice,CS,2100,4,First",
+            "review,alice,CS,2100,2,Second review of the same course",
+            "review,nobody,CS,2100,4,Unknown user",
+            "review,alice,CS,9999,4,Unknown course",
+            "review,alice,CS,2100,9,Bad rating",
+            "not,a,record");
+
+        BulkImporter.Report report = importer.importFile(file);
+        assertEquals(0, report.getUsersInserted());
+        assertEquals(1, report.getReviewsInserted());
+        assertEquals(2, report.getDuplicates());
+        assertEquals(4, report.getRejected());
+        // The existing password is kept
+        assertTrue(database.validateUser("alice", "secret1"));
+    }
+
+    @Test
+    void testRejectsCoursesTheModelWouldRefuse() throws Exception {
+        Path file = write("bad-courses.csv",
+            "course,CS,3140,Software Development Methods",
+            "course,CS,314,Number too short",
+            "course,COMPSCI,3240,Subject too long",
+            "course,CS,4414," + "x".repeat(51));
+
+        BulkImporter.Report report = importer.importFile(file);
+        assertEquals(1, report.getCoursesInserted());
+        assertEquals(3, report.getRejected());
+
+        // Every stored row still loads as a Course
+        List<Course> courses = database.searchCourses(null, null, null);
+        assertEquals(1, courses.size());
+        assertEquals(3140, courses.get(0).getNumber());
+    }
+
+    @Test
+    void testResumesFromCheckpoint() throws Exception {
+        Path file = write("resume.csv",
+            "user,alice,secret1",
+            "course,CS,3140,Software Development Methods",
+            "review,alice,CS,3140,5,Imported before the failure",
+            "user,bob,secret2",
+            "review,bob,CS,3140,3,Imported after resuming");
+        // As if a previous run had committed the first three lines
+        importer.importRecords(List.of(
+            ImportRecord.user("alice", "secret1"),
+            ImportRecord.course("CS", 3140, "Software Development Methods"),
+            ImportRecord.review("alice", "CS", 3140, 5, "Imported before the failure", null)));
+        Files.writeString(BulkImporter.checkpointFile(file), "3");
+
+        BulkImporter.Report report = importer.importFile(file);
+        assertEquals(3, report.getResumedAfterLine());
+        assertEquals(2, report.getRecordsRead());
+        assertEquals(1, report.getUsersInserted());
+        assertEquals(1, report.getReviewsInserted());
+        assertFalse(Files.exists(BulkImporter.checkpointFile(file)));
+
+        Course course = database.getCourse(database.getCourseIdBySubjectAndNumber("CS", 3140));
+        assertEquals(2, course.getReviewCount());
+    }
+
+    @Test
+    void testNewIdsContinueAfterExistingRows() throws Exception {
+        Course existing = database.addCourse("CS", 1110, "Introduction to Programming");
+        assertNotNull(existing);
+
+        importer.importRecords(List.of(ImportRecord.course("CS", 2150, "Program and Data Representation")));
+        int importedId = database.getCourseIdBySubjectAndNumber("CS", 2150);
+        assertEquals(existing.getId() + 1, importedId);
+
+        // Regular inserts carry on after the imported ids
+        Course next = database.addCourse("CS", 3100, "Data Structures and Algorithms 2");
+        assertNotNull(next);
+        assertTrue(next.getId() > importedId);
+    }
+
+    @Test
+    void testFormattedRecordsImportBack() throws Exception {
+        List<ImportRecord> records = List.of(
+            ImportRecord.user("dave", "pass,word"),
+            ImportRecord.course("CS", 4414, "Operating Systems, \"the hard one\""),
+            ImportRecord.review("dave", "CS", 4414, 3, " Said \"fine\", mostly\ttabs ",
+                new Timestamp(1733392800000L)));
+        Path csv = write("export.csv", records.stream().map(ImportRecord::toCsv).toArray(String[]::new));
+        Path json = tempDir.resolve("export.jsonl");
+        Files.write(json, records.stream().map(ImportRecord::toJson).toList());
+
+        assertEquals(3, importer.importFile(csv).getRecordsRead());
+        DatabaseService other = new DatabaseService(DatabaseConfig.forPath(tempDir.resolve("other.db")));
+        BulkImporter otherImporter = new BulkImporter(other);
+        otherImporter.setVerbose(false);
+        assertEquals(1, otherImporter.importFile(json).getReviewsInserted());
+
+        for (DatabaseService imported : List.of(database, other)) {
+            int courseId = imported.getCourseIdBySubjectAndNumber("CS", 4414);
+            assertEquals("Operating Systems, \"the hard one\"", imported.getCourse(courseId).getTitle());
+            Review review = imported.getReviewsForCourse(courseId).get(0);
+            assertEquals(" Said \"fine\", mostly\ttabs ", review.getComment());
+            assertEquals(1733392800000L, review.getTimestamp().getTime());
+            assertTrue(imported.validateUser("dave", "pass,word"));
+        }
+    }
+
+    @Test
+    void testHashesPlainPasswordsWithConfiguredIterations() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty("db.path", tempDir.resolve("hashed.db").toString());
+        properties.setProperty("auth.iterations", String.valueOf(PasswordHasher.MIN_ITERATIONS));
+        DatabaseService hashed = new DatabaseService(new DatabaseConfig(properties));
+        BulkImporter hashingImporter = new BulkImporter(hashed);
+        hashingImporter.setVerbose(false);
+        hashingImporter.setBatchSize(2);
+        PasswordHasher hasher = new PasswordHasher(PasswordHasher.MIN_ITERATIONS);
+        String exported = hasher.hash("exported");
+
+        List<ImportRecord> records = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            records.add(ImportRecord.user("user" + i, "password" + i));
+        }
+        records.add(ImportRecord.user("migrated", exported));
+        assertEquals(6, hashingImporter.importRecords(records).getUsersInserted());
+
+        for (int i = 0; i < 5; i++) {
+            String stored = storedPassword(hashed, "user" + i);
+            assertTrue(PasswordHasher.isHashed(stored));
+            assertTrue(hasher.verify("password" + i, stored));
+            assertFalse(hasher.needsRehash(stored), "Hashed with the configured iteration count");
+        }
+        // Hashes from another database are stored as they are
+        assertEquals(exported, storedPassword(hashed, "migrated"));
+    }
+
+    private static String storedPassword(DatabaseService database, String username) throws Exception {
+        try (Connection conn = database.getConnectionPool().getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT password FROM users WHERE username = ?")) {
+            pstmt.setString(1, username);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                assertTrue(rs.next(), "Missing user " + username);
+                return rs.getString(1);
+            }
+        }
+    }
+
+    private Path write(String name, String... lines) throws Exception {
+        Path file = tempDir.resolve(name);
+        Files.write(file, List.of(lines));
+        return file;
+    }
+}
@@ -0,0 +1,215 @@
+package edu.virginia.sde.reviews.services;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionPoolTest {
+    @TempDir
+    Path tempDir;
+
+    private ConnectionPool pool;
+
+    @BeforeEach
+    void setUp() {
+        String url = "jdbc:sqlite:" + tempDir.resolve("pool_test.db");
+        pool = new ConnectionPool(url, 1, 2, 200, 60_000, 30_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    void testConnectionsAreReused() throws SQLException {
+        assertEquals(1, pool.getIdleCount(), "Pool should pre-open minIdle connections");
+
+        try (Connection conn = pool.getConnection()) {
+            assertEquals(1, pool.getInUseCount());
+            assertEquals(0, pool.getIdleCount());
+        }
+        try (Connection conn = pool.getConnection()) {
+            assertFalse(conn.isClosed());
+        }
+
+        assertEquals(0, pool.getInUseCount());
+        assertEquals(1, pool.getIdleCount());
+        assertEquals(1, pool.getCreatedCount(), "Second checkout should reuse the pre-opened connection");
+        assertEquals(2, pool.getCheckoutCount());
+    }
+
+    @Test
+    void testExhaustionTimesOut() throws SQLException {
+        Connection first = pool.getConnection();
+        Connection second = pool.getConnection();
+        assertEquals(2, pool.getPeakInUse());
+
+        assertThrows(SQLException.class, () -> pool.getConnection());
+        assertEquals(1, pool.getExhaustedCount());
+        assertEquals(1, pool.getWaitCount());
+
+        first.close();
+        try (Connection third = pool.getConnection()) {
+            assertNotNull(third);
+        }
+        second.close();
+    }
+
+    @Test
+    void testReturnedHandleCannotBeUsed() throws SQLException {
+        Connection conn = pool.getConnection();
+        conn.close();
+        assertTrue(conn.isClosed());
+        assertThrows(SQLException.class, conn::createStatement);
+        // Closing twice must not return the connection to the pool twice
+        conn.close();
+        assertEquals(1, pool.getIdleCount());
+    }
+
+    @Test
+    void testOpenTransactionIsRolledBackOnReturn() throws SQLException {
+        try (Connection conn = pool.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE items (id INTEGER PRIMARY KEY)");
+        }
+
+        try (Connection conn = pool.getConnection();
+             Statement stmt = conn.createStatement()) {
+            conn.setAutoCommit(false);
+            stmt.execute("INSERT INTO items (id) VALUES (1)");
+            // Returned without commit
+        }
+
+        try (Connection conn = pool.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM items")) {
+            assertTrue(conn.getAutoCommit());
+            assertTrue(rs.next());
+            assertEquals(0, rs.getInt(1));
+        }
+    }
+
+    @Test
+    void testShutdownRejectsCheckouts() {
+        pool.shutdown();
+        assertTrue(pool.isShutdown());
+        assertEquals(0, pool.getIdleCount());
+        assertThrows(SQLException.class, () -> pool.getConnection());
+    }
+
+    @Test
+    void testPreparedStatementsAreCached() throws SQLException {
+        ConnectionPool cached = new ConnectionPool(
+            "jdbc:sqlite:" + tempDir.resolve("cache_test.db"), 1, 1, 200, 60_000, 30_000, 2);
+        try {
+            for (int i = 0; i < 3; i++) {
+                try (Connection conn = cached.getConnection();
+                     PreparedStatement pstmt = conn.prepareStatement("SELECT ?")) {
+                    pstmt.setInt(1, i);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        assertTrue(rs.next());
+                        assertEquals(i, rs.getInt(1));
+                    }
+                }
+            }
+            assertEquals(1, cached.getStatementCacheMisses());
+            assertEquals(2, cached.getStatementCacheHits());
+
+            // The same SQL prepared while the cached copy is open gets its own statement
+            try (Connection conn = cached.getConnection();
+                 PreparedStatement outer = conn.prepareStatement("SELECT ?");
+                 PreparedStatement inner = conn.prepareStatement("SELECT ?")) {
+                assertNotSame(outer, inner);
+                outer.setInt(1, 1);
+                inner.setInt(1, 2);
+                try (ResultSet rs = outer.executeQuery()) {
+                    assertTrue(rs.next());
+                    assertEquals(1, rs.getInt(1));
+                }
+            }
+
+            // Least recently used statements are evicted beyond the capacity
+            try (Connection conn = cached.getConnection()) {
+                for (String sql : new String[]{"SELECT 1", "SELECT 2", "SELECT 3"}) {
+                    try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                        pstmt.executeQuery().close();
+                    }
+                }
+            }
+            assertTrue(cached.getStatementCacheEvictions() >= 2);
+
+            // Invalidation forces a fresh prepare on the next checkout
+            long misses = cached.getStatementCacheMisses();
+            cached.invalidateStatementCaches();
+            try (Connection conn = cached.getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement("SELECT 3")) {
+                pstmt.executeQuery().close();
+            }
+            assertEquals(misses + 1, cached.getStatementCacheMisses());
+        } finally {
+            cached.shutdown();
+        }
+    }
+
+    @Test
+    void testSlowQueriesAreLoggedWithPlan() throws SQLException {
+        // A zero threshold logs every statement
+        SlowQueryLog log = new SlowQueryLog(0);
+        log.setVerbose(false);
+        pool.setSlowQueryLog(log);
+        try (Connection conn = pool.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE items (id INTEGER PRIMARY KEY, name TEXT, price INTEGER)");
+            stmt.executeUpdate("INSERT INTO items (name, price) VALUES ('a', 3), ('b', 1), ('c', 2)");
+        }
+        String sql = "SELECT name FROM items WHERE name LIKE ?   ORDER BY price";
+        for (int i = 0; i < 2; i++) {
+            try (Connection conn = pool.getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setString(1, "%");
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        rs.getString(1);
+                    }
+                }
+            }
+        }
+
+        SlowQueryLog.SlowQuery insert = log.getRecent().get(1);
+        assertEquals("INSERT INTO items (name, price) VALUES (?, ?), (?, ?), (?, ?)", insert.getSql());
+        assertEquals(3, insert.getRows());
+
+        SlowQueryLog.SlowQuery query = log.getRecent().get(log.getRecent().size() - 1);
+        assertEquals("SELECT name FROM items WHERE name LIKE ? ORDER BY price", query.getSql());
+        assertEquals("[string(1)]", query.getParameters());
+        assertEquals(3, query.getRows());
+        assertTrue(query.getElapsedNanos() > 0);
+        assertTrue(query.getPlan().contains("SCAN items"), query.getPlan());
+        assertTrue(query.getPlan().contains("USE TEMP B-TREE FOR ORDER BY"), query.getPlan());
+        assertTrue(query.isExpensivePlan());
+
+        // Explained once per shape: create, insert and the query
+        assertEquals(4, log.getSlowQueryCount());
+        assertEquals(3, log.getPlansCaptured());
+    }
+
+    @Test
+    void testNormalizeAndPlanChecks() {
+        assertEquals("SELECT * FROM t WHERE a = ? AND b = ? AND c = ?",
+            SlowQueryLog.normalize("SELECT *\n  FROM t WHERE a = 'it''s' AND b = 42 AND c = ?"));
+        assertFalse(SlowQueryLog.isExpensivePlan("SEARCH courses USING INDEX idx_courses_subject (subject=?)\n"));
+        assertFalse(SlowQueryLog.isExpensivePlan("SCAN courses_fts VIRTUAL TABLE INDEX 0:M1\n"));
+        assertTrue(SlowQueryLog.isExpensivePlan("SCAN reviews\n"));
+        assertTrue(SlowQueryLog.isExpensivePlan(
+            "SEARCH reviews USING INDEX r (course_id=?)\nUSE TEMP B-TREE FOR ORDER BY\n"));
+    }
+}
@@ -0,0 +1,198 @@
+package edu.virginia.sde.reviews.services;
+
+import edu.virginia.sde.reviews.models.Course;
+import edu.virginia.sde.reviews.models.Page;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CourseCatalogTest {
+    @TempDir
+    Path tempDir;
+
+    private DatabaseService database;
+    // Same database file with the catalog turned off, so searches run as SQL
+    private DatabaseService sqlDatabase;
+    private CourseCatalog catalog;
+
+    @BeforeEach
+    void setUp() {
+        Path file = tempDir.resolve("catalog.db");
+        database = new DatabaseService(DatabaseConfig.forPath(file));
+        Properties properties = new Properties();
+        properties.setProperty("db.path", file.toString());
+        properties.setProperty("catalog.enabled", "false");
+        sqlDatabase = new DatabaseService(new DatabaseConfig(properties));
+        catalog = database.getCourseCatalog();
+
+        database.addCourse("CS", 3140, "Software Development");
+        database.addCourse("CS", 3240, "Advanced Software Development");
+        database.addCourse("CS", 2100, "Data Structures and Algorithms 1");
+        database.addCourse("CS", 2120, "Discrete Mathematics");
+        database.addCourse("MATH", 3354, "Survey of Algebra");
+        database.addCourse("MATH", 3140, "Mathematics of Software");
+        database.addCourse("STS", 4500, "Engineering & Society");
+        database.addCourse("ECON", 2010, "\u00c9conomie: Intro");
+    }
+
+    @Test
+    void testSearchMatchesSql() {
+        String[] subjects = {null, "", "cs", "MATH", "BIO"};
+        Integer[] numbers = {null, 3140, 9999};
+        String[] titles = {null, "", "soft", "SOFT dev", "\"software development\"", "\"development software\"",
+            "math", "eco", "&", "of", "algebra xyz"};
+        for (String subject : subjects) {
+            for (Integer number : numbers) {
+                for (String title : titles) {
+                    assertEquals(ids(sqlDatabase.searchCourses(subject, number, title)),
+                        ids(database.searchCourses(subject, number, title)),
+                        "subject=" + subject + " number=" + number + " title=" + title);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testPagesMatchSql() {
+        for (String title : new String[] {null, "s"}) {
+            Course after = null;
+            Course sqlAfter = null;
+            boolean hasMore = true;
+            while (hasMore) {
+                Page<Course> page = database.searchCourses(null, null, title, after, 3);
+                Page<Course> sqlPage = sqlDatabase.searchCourses(null, null, title, sqlAfter, 3);
+                assertEquals(ids(sqlPage.getItems()), ids(page.getItems()));
+                assertEquals(sqlPage.hasMore(), page.hasMore());
+                hasMore = page.hasMore();
+                after = page.getLast();
+                sqlAfter = sqlPage.getLast();
+            }
+        }
+    }
+
+    @Test
+    void testSuggestMatchesPrefixes() {
+        // "m" matches MATH only; "c" matches CS but not ECON
+        assertEquals(List.of("MATH 3140", "MATH 3354"), codes(database.suggestCourses("m", null, null, null, 10)));
+        assertEquals(4, database.suggestCourses("c", null, null, null, 10).getItems().size());
+        assertEquals(List.of("CS 3140", "MATH 3140"), codes(database.suggestCourses(null, "314", null, null, 10)));
+        assertEquals(List.of("CS 2100", "CS 2120"), codes(database.suggestCourses("C", "21", null, null, 10)));
+        assertEquals(List.of("CS 3140", "CS 3240", "MATH 3140"),
+            codes(database.suggestCourses(null, "3", "soft", null, 10)));
+        assertTrue(database.suggestCourses(null, "3x", null, null, 10).isEmpty());
+        assertTrue(database.suggestCourses(null, "31400", null, null, 10).isEmpty());
+
+        // Pages of a prefix search line up with the full result
+        List<String> all = codes(database.suggestCourses("c", null, null, null, -1));
+        List<String> paged = new ArrayList<>();
+        Page<Course> page = database.suggestCourses("c", null, null, null, 3);
+        paged.addAll(codes(page));
+        while (page.hasMore()) {
+            page = database.suggestCourses("c", null, null, page.getLast(), 3);
+            paged.addAll(codes(page));
+        }
+        assertEquals(all, paged);
+    }
+
+    @Test
+    void testFuzzySearchToleratesTypos() {
+        assertEquals(List.of("CS 2100"), codes(database.searchCoursesFuzzy("Algoritms", null, 10)));
+        assertEquals(List.of("CS 2100"), codes(database.searchCoursesFuzzy("cs algoritms", null, 10)));
+        assertEquals(List.of("ECON 2010"), codes(database.searchCoursesFuzzy("Ecnomie", null, 10)));
+        assertTrue(database.searchCoursesFuzzy("xyzzy", null, 10).isEmpty());
+
+        // Equally close matches are ranked by average rating, unrated courses last
+        assertTrue(database.createUser("reviewer", "password123"));
+        int userId = database.getUserId("reviewer");
+        int advanced = database.getCourseIdBySubjectAndNumber("CS", 3240);
+        assertNotNull(database.addReview(userId, advanced, 5, "Great"));
+        assertEquals(List.of("CS 3240", "CS 3140"), codes(database.searchCoursesFuzzy("Sofware Developmnt", null, 10)));
+        assertEquals(List.of("CS 3140"), codes(database.searchCoursesFuzzy("Sofware Developmnt", 3140, 10)));
+        assertEquals(1, database.searchCoursesFuzzy("Sofware Developmnt", null, 1).size());
+    }
+
+    @Test
+    void testEditDistance() {
+        assertEquals(0, TrigramIndex.distance("algebra", "algebra", 2));
+        assertEquals(1, TrigramIndex.distance("algoritms", "algorithms", 2));
+        assertEquals(2, TrigramIndex.distance("opperatng", "operating", 2));
+        assertEquals(3, TrigramIndex.distance("physics", "chemistry", 2));
+    }
+
+    @Test
+    void testWritesAreAppliedWithoutReloading() {
+        assertEquals(8, database.searchCourses(null, null, null).size());
+        int rebuilds = catalog.getRebuildCount();
+
+        Course added = database.addCourse("PHYS", 1425, "Introductory Physics");
+        assertNotNull(added);
+        assertEquals(List.of(added.getId()), ids(database.searchCourses("phys", null, null)));
+        assertEquals(added.getId(), database.getCourseIdBySubjectAndNumber("phys", 1425));
+
+        assertTrue(database.createUser("reviewer", "password123"));
+        int userId = database.getUserId("reviewer");
+        var review = database.addReview(userId, added.getId(), 4, "Good labs");
+        assertNotNull(review);
+        assertEquals(4.0, database.getCourse(added.getId()).getAverageRating(), 0.01);
+
+        assertTrue(database.updateReview(review.getId(), 2, "Hard labs"));
+        assertEquals(2.0, database.getCourse(added.getId()).getAverageRating(), 0.01);
+        assertEquals(1, database.getCourse(added.getId()).getRatingCount(2));
+
+        assertTrue(database.deleteReview(review.getId()));
+        assertNull(database.getCourse(added.getId()).getAverageRating());
+
+        assertEquals(rebuilds, catalog.getRebuildCount(), "single-course writes should not reload the catalog");
+        assertTrue(catalog.getHitRate() > 0);
+    }
+
+    @Test
+    void testBulkWritesInvalidate() throws Exception {
+        assertEquals(8, database.searchCourses(null, null, null).size());
+        int rebuilds = catalog.getRebuildCount();
+
+        BulkImporter importer = new BulkImporter(database);
+        importer.setVerbose(false);
+        importer.importRecords(List.of(ImportRecord.course("BIOL", 2100, "Cell Biology")));
+        assertFalse(catalog.isLoaded());
+        assertEquals(9, database.searchCourses(null, null, null).size());
+        assertEquals(rebuilds + 1, catalog.getRebuildCount());
+
+        database.clearDatabase();
+        assertTrue(database.searchCourses(null, null, null).isEmpty());
+        assertNull(database.getCourse(1));
+    }
+
+    @Test
+    void testCachedCoursesAreNotShared() {
+        int id = database.getCourseIdBySubjectAndNumber("CS", 3140);
+        database.getCourse(id).setAverageRating(1.0);
+        assertNull(database.getCourse(id).getAverageRating());
+    }
+
+    private static List<String> codes(Page<Course> page) {
+        return codes(page.getItems());
+    }
+
+    private static List<String> codes(List<Course> courses) {
+        List<String> codes = new ArrayList<>();
+        for (Course course : courses) {
+            codes.add(course.getSubject() + " " + course.getNumber());
+        }
+        return codes;
+    }
+
+    private static List<Integer> ids(List<Course> courses) {
+        List<Integer> ids = new ArrayList<>();
+        for (Course course : courses) {
+            ids.add(course.getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,59 @@
+package edu.virginia.sde.reviews.services;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DatabaseConfigTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testDefaults() {
+        DatabaseConfig config = new DatabaseConfig(new Properties());
+        assertEquals("course_reviews.db", config.getPath());
+        assertEquals("jdbc:sqlite:course_reviews.db", config.getJdbcUrl());
+        assertEquals("WAL", config.getJournalMode());
+        assertTrue(config.isForeignKeys());
+        assertTrue(config.getConnectionPragmas().contains("PRAGMA journal_mode = WAL"));
+        assertEquals(-1, config.getSlowQueryMillis());
+        assertFalse(config.isLogNavigation());
+    }
+
+    @Test
+    void testCommandLineOverridesConfigFile() throws IOException {
+        Path file = tempDir.resolve("reviews.properties");
+        Files.writeString(file, "db.path=from_file.db\ndb.journalMode=delete\ndb.busyTimeout=250\n");
+
+        DatabaseConfig config = DatabaseConfig.load(List.of(
+            "--config=" + file, "--db.path=from_args.db", "--init-db"));
+
+        assertEquals("from_args.db", config.getPath());
+        assertEquals("DELETE", config.getJournalMode());
+        assertEquals(250, config.getBusyTimeoutMillis());
+    }
+
+    @Test
+    void testRejectsInvalidValues() {
+        Properties properties = new Properties();
+        properties.setProperty("db.journalMode", "WAL; DROP TABLE users");
+        assertThrows(IllegalArgumentException.class, () -> new DatabaseConfig(properties));
+
+        Properties badNumber = new Properties();
+        badNumber.setProperty("db.cacheSize", "lots");
+        assertThrows(IllegalArgumentException.class, () -> new DatabaseConfig(badNumber));
+
+        Properties badThreshold = new Properties();
+        badThreshold.setProperty("metrics.slowQueryMillis", "-5");
+        assertThrows(IllegalArgumentException.class, () -> new DatabaseConfig(badThreshold));
+
+        assertThrows(IOException.class, () -> DatabaseConfig.load(List.of("--config=" + tempDir.resolve("missing"))));
+    }
+}
@@ -1,14 +1,30 @@
 package edu.virginia.sde.reviews.services;
 
 import edu.virginia.sde.reviews.models.Course;
+import edu.virginia.sde.reviews.models.CoursePageSnapshot;
+import edu.virginia.sde.reviews.models.Page;
 import edu.virginia.sde.reviews.models.Review;
+import edu.virginia.sde.reviews.models.ReviewDisplay;
+import edu.virginia.sde.reviews.models.Session;
+import edu.virginia.sde.reviews.models.WriteResult;
 import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Properties;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 class DatabaseServiceTest {
+    // Tests run against their own database file, never the application's
+    @TempDir
+    static Path tempDir;
+
     private static final String TEST_USERNAME = "testUser";
     private static final String TEST_PASSWORD = "testPass123";
     private DatabaseService database;
@@ -16,7 +32,7 @@ class DatabaseServiceTest {
 
     @BeforeEach
     void setUp() {
-        database = new DatabaseService();
+        database = new DatabaseService(DatabaseConfig.forPath(tempDir.resolve("test_reviews.db")));
         database.clearDatabase(); // Clear database before each test
         System.out.println("\n=== Starting new test ===");
         assertTrue(database.createUser(TEST_USERNAME, TEST_PASSWORD), "Failed to create test user");
@@ -157,4 +173,442 @@ class DatabaseServiceTest {
         assertTrue(userReviews.stream()
                 .allMatch(r -> r.getUserId() == testUserId), "All reviews should belong to test user");
     }
-} 
\ No newline at end of file
+
+    @Test
+    void testSearchCoursesIsSingleQuery() {
+        // The SQL path, without the in-memory catalog in front of it
+        Properties properties = new Properties();
+        properties.setProperty("db.path", tempDir.resolve("sql_search.db").toString());
+        properties.setProperty("catalog.enabled", "false");
+        DatabaseService sqlDatabase = new DatabaseService(new DatabaseConfig(properties));
+        sqlDatabase.clearDatabase();
+        assertTrue(sqlDatabase.createUser("testUser1", "password123"));
+        int user1Id = sqlDatabase.getUserId("testUser1");
+
+        // Several courses, some with reviews, so any per-row query would show up
+        Course course1 = sqlDatabase.addCourse("CS", 3140, "Software Development");
+        Course course2 = sqlDatabase.addCourse("CS", 2100, "Data Structures");
+        Course course3 = sqlDatabase.addCourse("MATH", 3354, "Survey of Algebra");
+        assertNotNull(course1);
+        assertNotNull(course2);
+        assertNotNull(course3);
+        assertTrue(sqlDatabase.createUser("testUser2", "password123"));
+        int user2Id = sqlDatabase.getUserId("testUser2");
+        assertNotNull(sqlDatabase.addReview(user1Id, course1.getId(), 5, "Great"));
+        assertNotNull(sqlDatabase.addReview(user2Id, course1.getId(), 2, "Meh"));
+        assertNotNull(sqlDatabase.addReview(user1Id, course2.getId(), 4, "Good"));
+
+        ConnectionPool pool = sqlDatabase.getConnectionPool();
+        long before = pool.getStatementsExecuted();
+        List<Course> courses = sqlDatabase.searchCourses(null, null, null);
+        long executed = pool.getStatementsExecuted() - before;
+
+        assertEquals(1, executed, "searchCourses should run exactly one statement");
+        assertEquals(3, courses.size());
+
+        Course found1 = courses.stream().filter(c -> c.getId() == course1.getId()).findFirst().orElseThrow();
+        assertEquals(3.5, found1.getAverageRating(), 0.01);
+        assertEquals(2, found1.getReviewCount());
+        Course found3 = courses.stream().filter(c -> c.getId() == course3.getId()).findFirst().orElseThrow();
+        assertNull(found3.getAverageRating());
+        assertEquals(0, found3.getReviewCount());
+
+        before = pool.getStatementsExecuted();
+        Course single = sqlDatabase.getCourse(course2.getId());
+        assertEquals(1, pool.getStatementsExecuted() - before, "getCourse should run exactly one statement");
+        assertEquals(4.0, single.getAverageRating(), 0.01);
+        assertEquals(1, single.getReviewCount());
+    }
+
+    @Test
+    void testSearchCoursesFromCatalog() {
+        Course course1 = database.addCourse("CS", 3140, "Software Development");
+        Course course2 = database.addCourse("CS", 2100, "Data Structures");
+        Course course3 = database.addCourse("MATH", 3354, "Survey of Algebra");
+        assertNotNull(course1);
+        assertNotNull(course2);
+        assertNotNull(course3);
+        assertTrue(database.createUser("testUser2", "password123"));
+        int user2Id = database.getUserId("testUser2");
+        assertNotNull(database.addReview(testUserId, course1.getId(), 5, "Great"));
+        assertNotNull(database.addReview(user2Id, course1.getId(), 2, "Meh"));
+        assertNotNull(database.addReview(testUserId, course2.getId(), 4, "Good"));
+
+        ConnectionPool pool = database.getConnectionPool();
+        long before = pool.getStatementsExecuted();
+        List<Course> courses = database.searchCourses(null, null, null);
+
+        // The first search loads the course catalog with one statement
+        assertEquals(1, pool.getStatementsExecuted() - before, "loading the catalog should run one statement");
+        assertEquals(3, courses.size());
+        Course found1 = courses.stream().filter(c -> c.getId() == course1.getId()).findFirst().orElseThrow();
+        assertEquals(3.5, found1.getAverageRating(), 0.01);
+        assertEquals(2, found1.getReviewCount());
+
+        // Later searches and lookups are answered from memory
+        before = pool.getStatementsExecuted();
+        assertEquals(2, database.searchCourses("CS", null, null).size());
+        Course single = database.getCourse(course2.getId());
+        assertEquals(0, pool.getStatementsExecuted() - before, "a loaded catalog should not query the database");
+        assertEquals(4.0, single.getAverageRating(), 0.01);
+        assertEquals(1, single.getReviewCount());
+    }
+
+    @Test
+    void testRatingAggregatesFollowReviewWrites() throws Exception {
+        Course course = database.addCourse("CS", 3140, "Software Development");
+        assertNotNull(course);
+        assertTrue(database.createUser("testUser2", "password123"));
+        int user2Id = database.getUserId("testUser2");
+
+        Review review1 = database.addReview(testUserId, course.getId(), 5, "Excellent!");
+        Review review2 = database.addReview(user2Id, course.getId(), 2, "Not for me");
+        assertNotNull(review1);
+        assertNotNull(review2);
+
+        Course retrieved = database.getCourse(course.getId());
+        assertEquals(2, retrieved.getReviewCount());
+        assertEquals(3.5, retrieved.getAverageRating(), 0.01);
+        assertEquals(1, retrieved.getRatingCount(5));
+        assertEquals(1, retrieved.getRatingCount(2));
+
+        assertTrue(database.updateReview(review2.getId(), 4, "Grew on me"));
+        retrieved = database.getCourse(course.getId());
+        assertEquals(4.5, retrieved.getAverageRating(), 0.01);
+        assertEquals(0, retrieved.getRatingCount(2));
+        assertEquals(1, retrieved.getRatingCount(4));
+
+        assertTrue(database.deleteReview(review1.getId()));
+        retrieved = database.getCourse(course.getId());
+        assertEquals(1, retrieved.getReviewCount());
+        assertEquals(4.0, retrieved.getAverageRating(), 0.01);
+        assertEquals(0, retrieved.getRatingCount(5));
+        assertTrue(database.checkAggregates().isEmpty());
+
+        // Corrupt the stored aggregates and make sure the checker and repair notice
+        try (java.sql.Connection conn = database.getConnectionPool().getConnection();
+             java.sql.Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("UPDATE course_ratings SET rating_sum = 42 WHERE course_id = " + course.getId());
+        }
+        assertEquals(List.of(course.getId()), database.checkAggregates());
+        assertTrue(database.rebuildAggregates());
+        assertTrue(database.checkAggregates().isEmpty());
+        assertEquals(4.0, database.getCourse(course.getId()).getAverageRating(), 0.01);
+    }
+
+    @Test
+    void testFullTextSearch() {
+        Course software = database.addCourse("CS", 3140, "Software Development");
+        Course advanced = database.addCourse("CS", 3240, "Advanced Software Development");
+        Course algebra = database.addCourse("MATH", 3354, "Survey of Algebra");
+        assertNotNull(software);
+        assertNotNull(advanced);
+        assertNotNull(algebra);
+
+        // Prefix queries match whole words from their first letters
+        List<Course> results = database.searchCoursesFullText("soft dev", 10);
+        assertEquals(2, results.size());
+        assertTrue(results.stream().noneMatch(c -> c.getId() == algebra.getId()));
+
+        // Phrases must appear in order
+        results = database.searchCoursesFullText("\"survey of algebra\"", 10);
+        assertEquals(1, results.size());
+        assertEquals(algebra.getId(), results.get(0).getId());
+
+        // Shorter titles rank ahead of longer ones for the same match
+        results = database.searchCoursesFullText("software", 10);
+        assertEquals(software.getId(), results.get(0).getId());
+
+        // FTS syntax typed by the user is treated as plain text
+        assertTrue(database.searchCoursesFullText("NOT OR (", 10).isEmpty());
+        assertTrue(database.searchCoursesFullText("   ", 10).isEmpty());
+
+        // The title filter in searchCourses uses the same index
+        assertEquals(1, database.searchCourses("MATH", null, "alg").size());
+
+        Review review = database.addReview(testUserId, software.getId(), 5, "Loved the group project");
+        assertNotNull(review);
+        assertNotNull(database.addReview(testUserId, algebra.getId(), 3, "Lots of proofs"));
+
+        List<Review> reviews = database.searchUserReviews(testUserId, "group proj");
+        assertEquals(1, reviews.size());
+        assertEquals(review.getId(), reviews.get(0).getId());
+
+        // Matching the course title finds the review too
+        reviews = database.searchUserReviews(testUserId, "algebra");
+        assertEquals(1, reviews.size());
+
+        // Comment matches are listed before course matches
+        assertTrue(database.updateReview(review.getId(), 5, "Easier than algebra"));
+        reviews = database.searchUserReviews(testUserId, "algebra");
+        assertEquals(2, reviews.size());
+        assertEquals(review.getId(), reviews.get(0).getId());
+
+        // The index follows updates and deletes
+        assertTrue(database.updateReview(review.getId(), 4, "Solid lectures"));
+        assertTrue(database.searchUserReviews(testUserId, "group").isEmpty());
+        assertEquals(1, database.searchUserReviews(testUserId, "lectures").size());
+        assertTrue(database.deleteReview(review.getId()));
+        assertTrue(database.searchUserReviews(testUserId, "lectures").isEmpty());
+    }
+
+    @Test
+    void testKeysetPagination() {
+        Course course = database.addCourse("CS", 2150, "Program and Data Representation");
+        assertNotNull(course);
+        for (int i = 0; i < 5; i++) {
+            String username = "pager" + i;
+            assertTrue(database.createUser(username, TEST_PASSWORD));
+            assertNotNull(database.addReview(database.getUserId(username), course.getId(), 1 + i, "Review " + i));
+        }
+
+        // Pages of two walk the same order as the full list, without gaps or repeats
+        List<Review> all = database.getReviewsForCourse(course.getId());
+        assertEquals(5, all.size());
+        List<Review> paged = new ArrayList<>();
+        Page<Review> page = database.getReviewsForCourse(course.getId(), null, 2);
+        paged.addAll(page.getItems());
+        while (page.hasMore()) {
+            assertEquals(2, page.getItems().size());
+            page = database.getReviewsForCourse(course.getId(), page.getLast(), 2);
+            paged.addAll(page.getItems());
+        }
+        assertEquals(all.stream().map(Review::getId).toList(), paged.stream().map(Review::getId).toList());
+
+        Review own = database.getUserReviewForCourse(database.getUserId("pager3"), course.getId());
+        assertNotNull(own);
+        assertEquals(4, own.getRating());
+        assertNull(database.getUserReviewForCourse(testUserId, course.getId()));
+
+        // Courses page in subject, number, title order
+        assertNotNull(database.addCourse("APMA", 3100, "Probability"));
+        assertNotNull(database.addCourse("CS", 1110, "Introduction to Programming"));
+        Page<Course> first = database.searchCourses(null, null, null, null, 2);
+        assertTrue(first.hasMore());
+        assertEquals("APMA", first.getItems().get(0).getSubject());
+        assertEquals(1110, first.getLast().getNumber());
+        Page<Course> second = database.searchCourses(null, null, null, first.getLast(), 2);
+        assertFalse(second.hasMore());
+        assertEquals(List.of(2150), second.getItems().stream().map(Course::getNumber).toList());
+    }
+
+    @Test
+    void testUserReviewDisplaysIsSingleQuery() {
+        Course course1 = database.addCourse("CS", 3140, "Software Development");
+        Course course2 = database.addCourse("CS", 2100, "Data Structures");
+        Course course3 = database.addCourse("MATH", 3354, "Survey of Algebra");
+        assertTrue(database.createUser("testUser2", "password123"));
+        int user2Id = database.getUserId("testUser2");
+        assertNotNull(database.addReview(user2Id, course1.getId(), 2, "Meh"));
+        assertNotNull(database.addReview(testUserId, course1.getId(), 5, "Great"));
+        assertNotNull(database.addReview(testUserId, course2.getId(), 4, "Good"));
+        assertNotNull(database.addReview(testUserId, course3.getId(), 3, null));
+
+        ConnectionPool pool = database.getConnectionPool();
+        long before = pool.getStatementsExecuted();
+        Page<ReviewDisplay> page = database.getUserReviewDisplays(testUserId, null, 2);
+        assertEquals(1, pool.getStatementsExecuted() - before, "one page should run exactly one statement");
+
+        // Same reviews, in the same order, as getUserReviews
+        List<ReviewDisplay> displays = new ArrayList<>(page.getItems());
+        while (page.hasMore()) {
+            page = database.getUserReviewDisplays(testUserId, page.getLast().getReview(), 2);
+            displays.addAll(page.getItems());
+        }
+        assertEquals(database.getUserReviews(testUserId).stream().map(Review::getId).toList(),
+            displays.stream().map(display -> display.getReview().getId()).toList());
+
+        ReviewDisplay software = displays.stream()
+            .filter(display -> display.getCourse().getId() == course1.getId()).findFirst().orElseThrow();
+        assertEquals("Software Development", software.getCourse().getTitle());
+        assertEquals(5, software.getReview().getRating());
+        assertEquals(2, software.getCourse().getReviewCount());
+        assertEquals(3.5, software.getCourse().getAverageRating(), 0.01);
+    }
+
+    @Test
+    void testCoursePageSnapshot() {
+        Course course = database.addCourse("CS", 3140, "Software Development");
+        assertNotNull(course);
+        assertTrue(database.createUser("testUser2", "password123"));
+        int user2Id = database.getUserId("testUser2");
+        Review own = database.addReview(testUserId, course.getId(), 5, "Great");
+        assertNotNull(own);
+        assertNotNull(database.addReview(user2Id, course.getId(), 2, "Meh"));
+
+        CoursePageSnapshot snapshot = database.getCoursePageSnapshot(course.getId(), testUserId, 1);
+        assertNotNull(snapshot);
+        assertEquals(2, snapshot.getCourse().getReviewCount());
+        assertEquals(3.5, snapshot.getCourse().getAverageRating(), 0.01);
+        assertEquals(1, snapshot.getReviews().getItems().size());
+        assertTrue(snapshot.getReviews().hasMore());
+        assertEquals(own.getId(), snapshot.getUserReview().getId());
+
+        // The connection goes back to the pool in auto-commit mode, so later writes stick
+        assertTrue(database.deleteReview(own.getId()));
+        snapshot = database.getCoursePageSnapshot(course.getId(), testUserId, 10);
+        assertNull(snapshot.getUserReview());
+        assertEquals(1, snapshot.getReviews().getItems().size());
+        assertEquals(2.0, snapshot.getCourse().getAverageRating(), 0.01);
+
+        assertNull(database.getCoursePageSnapshot(course.getId(), -1, 10).getUserReview());
+        assertNull(database.getCoursePageSnapshot(course.getId() + 100, testUserId, 10));
+    }
+
+    @Test
+    void testOpenSession() {
+        Course software = database.addCourse("CS", 3140, "Software Development");
+        Course algorithms = database.addCourse("CS", 4102, "Algorithms");
+        database.addCourse("CS", 2100, "Data Structures");
+        assertNotNull(database.addReview(testUserId, software.getId(), 5, "Great"));
+        assertNotNull(database.addReview(testUserId, algorithms.getId(), 4, "Hard"));
+
+        Session session = database.openSession(TEST_USERNAME, TEST_PASSWORD);
+        assertNotNull(session);
+        assertEquals(testUserId, session.getUserId());
+        assertEquals(TEST_USERNAME, session.getUsername());
+        assertEquals(2, session.getReviewCount());
+        assertTrue(session.hasReviewed(software.getId()));
+        assertTrue(session.hasReviewed(algorithms.getId()));
+
+        session.reviewDeleted(software.getId());
+        assertFalse(session.hasReviewed(software.getId()));
+        assertEquals(1, session.getReviewCount());
+
+        assertNull(database.openSession(TEST_USERNAME, "wrongPassword"));
+        assertNull(database.openSession("nonexistentUser", TEST_PASSWORD));
+    }
+
+    @Test
+    void testPasswordsAreHashedAndLegacyRowsUpgraded() throws Exception {
+        assertTrue(PasswordHasher.isHashed(storedPassword(TEST_USERNAME)));
+        assertTrue(database.validateUser(TEST_USERNAME, TEST_PASSWORD));
+
+        // A row written before passwords were hashed
+        try (Connection conn = database.getConnectionPool().getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(
+                 "INSERT INTO users (username, password) VALUES ('legacyUser', 'oldPassword1')")) {
+            pstmt.executeUpdate();
+        }
+        assertFalse(database.validateUser("legacyUser", "wrongPassword"));
+        assertEquals("oldPassword1", storedPassword("legacyUser"));
+
+        Session session = database.openSession("legacyUser", "oldPassword1");
+        assertNotNull(session);
+        String upgraded = storedPassword("legacyUser");
+        assertTrue(PasswordHasher.isHashed(upgraded));
+        assertTrue(database.validateUser("legacyUser", "oldPassword1"));
+        assertEquals(upgraded, storedPassword("legacyUser"));
+    }
+
+    private String storedPassword(String username) throws Exception {
+        try (Connection conn = database.getConnectionPool().getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT password FROM users WHERE username = ?")) {
+            pstmt.setString(1, username);
+            ResultSet rs = pstmt.executeQuery();
+            assertTrue(rs.next());
+            return rs.getString(1);
+        }
+    }
+
+    @Test
+    void testWritesReportConstraintFailures() {
+        WriteResult<Course> created = database.createCourse("CS", 3140, "Software Development");
+        assertTrue(created.isOk());
+        Course course = created.getValue();
+        assertEquals(WriteResult.Status.DUPLICATE, database.createCourse("cs", 3140, "Software Development").getStatus());
+        assertEquals(WriteResult.Status.INVALID, database.createCourse("CS", 314, "Software Development").getStatus());
+
+        WriteResult<Review> review = database.createReview(testUserId, course.getId(), 4, "Good");
+        assertTrue(review.isOk());
+        assertEquals(course.getId(), review.getValue().getCourseId());
+        assertNotNull(review.getValue().getTimestamp());
+        assertEquals(WriteResult.Status.DUPLICATE,
+            database.createReview(testUserId, course.getId(), 5, "Again").getStatus());
+        assertEquals(WriteResult.Status.MISSING_REFERENCE,
+            database.createReview(testUserId, course.getId() + 100, 5, "No such course").getStatus());
+        assertEquals(WriteResult.Status.MISSING_REFERENCE,
+            database.createReview(testUserId + 100, course.getId(), 5, "No such user").getStatus());
+        assertEquals(WriteResult.Status.INVALID,
+            database.changeReview(review.getValue().getId(), 9, "Too many stars").getStatus());
+
+        int missingId = review.getValue().getId() + 100;
+        assertEquals(WriteResult.Status.NOT_FOUND, database.changeReview(missingId, 3, "Gone").getStatus());
+        assertEquals(WriteResult.Status.NOT_FOUND, database.removeReview(missingId).getStatus());
+
+        // Rejected without a query, so they hold with db.foreignKeys off too
+        ConnectionPool pool = database.getConnectionPool();
+        long before = pool.getStatementsExecuted();
+        assertEquals(WriteResult.Status.INVALID, database.createReview(0, course.getId(), 4, "No user").getStatus());
+        assertEquals(WriteResult.Status.INVALID, database.saveReview(testUserId, -1, 4, "No course").getStatus());
+        assertEquals(WriteResult.Status.INVALID,
+            database.createReview(testUserId, course.getId(), 0, "No stars").getStatus());
+        assertEquals(WriteResult.Status.INVALID, database.removeReview(0).getStatus());
+        assertEquals(0, pool.getStatementsExecuted() - before);
+
+        WriteResult<Review> removed = database.removeReview(review.getValue().getId());
+        assertTrue(removed.isOk());
+        assertEquals("Good", removed.getValue().getComment());
+        assertEquals(0, database.getCourse(course.getId()).getReviewCount());
+    }
+
+    @Test
+    void testSaveReviewCreatesOrUpdates() {
+        Course course = database.addCourse("CS", 3140, "Software Development");
+        assertNotNull(course);
+
+        WriteResult<Review> first = database.saveReview(testUserId, course.getId(), 4, "Good");
+        assertTrue(first.isOk());
+        WriteResult<Review> second = database.saveReview(testUserId, course.getId(), 2, "Worse on reflection");
+        assertTrue(second.isOk());
+
+        // The same row is updated in place, and the aggregates follow it
+        assertEquals(first.getValue().getId(), second.getValue().getId());
+        assertEquals(2, second.getValue().getRating());
+        Course updated = database.getCourse(course.getId());
+        assertEquals(1, updated.getReviewCount());
+        assertEquals(2.0, updated.getAverageRating(), 0.01);
+        assertEquals(1, updated.getRatingCount(2));
+        assertEquals(0, updated.getRatingCount(4));
+        assertEquals("Worse on reflection", database.getUserReviewForCourse(testUserId, course.getId()).getComment());
+    }
+
+    @Test
+    void testMetricsRecordedPerOperation() {
+        DataLayerMetrics metrics = database.getMetrics();
+        assertTrue(metrics.isEnabled());
+        metrics.reset();
+
+        Course course = database.addCourse("CS", 3140, "Software Development");
+        database.createCourse("CS", 3140, "Software Development");
+        database.addReview(testUserId, course.getId(), 4, "Good");
+        database.getReviewsForCourse(course.getId(), null, 10);
+        database.getCourse(course.getId() + 100);
+
+        OperationMetricsMXBean create = metrics.getOperation(DataLayerMetrics.Operation.CREATE_COURSE);
+        assertEquals(2, create.getCalls());
+        assertEquals(1, create.getErrors());
+        assertEquals(1, create.getRows());
+        assertTrue(create.getMaxMicros() > 0);
+        assertEquals(Long.valueOf(1), metrics.getErrorsBySqlState().get("SQLITE_CONSTRAINT"));
+
+        assertEquals(1, metrics.getOperation(DataLayerMetrics.Operation.GET_REVIEWS_FOR_COURSE).getRows());
+        OperationMetricsMXBean missing = metrics.getOperation(DataLayerMetrics.Operation.GET_COURSE);
+        assertEquals(1, missing.getCalls());
+        assertEquals(0, missing.getRows());
+        assertTrue(metrics.getCheckouts() > 0);
+        assertTrue(metrics.getReport().contains("createCourse"));
+    }
+
+    @Test
+    void testMetricsCanBeDisabled() {
+        Properties properties = new Properties();
+        properties.setProperty("db.path", tempDir.resolve("unmetered.db").toString());
+        properties.setProperty("metrics.enabled", "false");
+        DatabaseService unmetered = new DatabaseService(new DatabaseConfig(properties));
+        assertFalse(unmetered.getMetrics().isEnabled());
+        unmetered.addCourse("CS", 3140, "Software Development");
+        assertEquals(0, unmetered.getMetrics().getOperation(DataLayerMetrics.Operation.CREATE_COURSE).getCalls());
+        assertEquals(0, unmetered.getMetrics().getCheckouts());
+    }
+}
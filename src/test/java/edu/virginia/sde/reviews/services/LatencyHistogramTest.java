@@ -0,0 +1,74 @@
+package edu.virginia.sde.reviews.services;
+
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+    @Test
+    void testPercentilesWithinBucketError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 1_000; micros++) {
+            histogram.record(micros * 1_000);
+        }
+        assertEquals(1_000, histogram.getCount());
+        assertEquals(1_000_000, histogram.getMaxNanos());
+        assertEquals(500_500, histogram.getMeanNanos(), 0.001);
+        // A percentile is never below the true value and at most 12.5% above it
+        assertBetween(500_000, histogram.getPercentileNanos(0.50));
+        assertBetween(950_000, histogram.getPercentileNanos(0.95));
+        assertBetween(990_000, histogram.getPercentileNanos(0.99));
+        assertEquals(1_000_000, histogram.getPercentileNanos(1.0));
+    }
+
+    @Test
+    void testBucketsCoverEveryValue() {
+        long[] values = {0, 1, 7, 8, 9, 15, 16, 1_000, 123_456_789, 1L << 40};
+        for (long value : values) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            assertTrue(LatencyHistogram.upperBound(bucket) >= value, "value " + value);
+            if (bucket > 0) {
+                assertTrue(LatencyHistogram.upperBound(bucket - 1) < value, "value " + value);
+            }
+        }
+        // Beyond the last power of two everything shares the last bucket
+        assertEquals(LatencyHistogram.bucketOf(Long.MAX_VALUE), LatencyHistogram.bucketOf((1L << 41) + 5));
+    }
+
+    @Test
+    void testConcurrentRecordsAreAllCounted() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    histogram.record(i);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(80_000, histogram.getCount());
+        assertEquals(9_999, histogram.getMaxNanos());
+    }
+
+    @Test
+    void testReset() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(5_000);
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentileNanos(0.99));
+        assertEquals(0.0, histogram.getMeanNanos());
+    }
+
+    private static void assertBetween(long expected, long actual) {
+        assertTrue(actual >= expected && actual <= expected * 1.125, expected + " reported as " + actual);
+    }
+}
@@ -0,0 +1,41 @@
+package edu.virginia.sde.reviews.services;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHasherTest {
+    // The cheapest allowed cost keeps the tests fast; the format is the same
+    private final PasswordHasher hasher = new PasswordHasher(PasswordHasher.MIN_ITERATIONS);
+
+    @Test
+    void testHashAndVerify() {
+        String hash = hasher.hash("password123");
+        assertTrue(PasswordHasher.isHashed(hash));
+        assertTrue(hash.startsWith("pbkdf2$" + PasswordHasher.MIN_ITERATIONS + "$"));
+        assertFalse(hash.contains("password123"));
+
+        assertTrue(hasher.verify("password123", hash));
+        assertFalse(hasher.verify("password124", hash));
+        assertFalse(hasher.verify("password123", null));
+        assertFalse(hasher.verify("password123", "pbkdf2$1000$not-base64$"));
+
+        // Every hash gets its own salt
+        assertNotEquals(hash, hasher.hash("password123"));
+    }
+
+    @Test
+    void testLegacyAndOutdatedHashesNeedRehash() {
+        assertTrue(hasher.verify("plaintext1", "plaintext1"));
+        assertFalse(hasher.verify("plaintext2", "plaintext1"));
+        assertTrue(hasher.needsRehash("plaintext1"));
+        assertFalse(hasher.needsRehash(hasher.hash("plaintext1")));
+
+        // Hashes made at another cost still verify, but are upgraded at login
+        String older = new PasswordHasher(2_000).hash("plaintext1");
+        assertTrue(hasher.verify("plaintext1", older));
+        assertTrue(hasher.needsRehash(older));
+
+        assertThrows(IllegalArgumentException.class, () -> new PasswordHasher(10));
+    }
+}
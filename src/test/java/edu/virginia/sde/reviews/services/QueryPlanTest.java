@@ -0,0 +1,165 @@
+package edu.virginia.sde.reviews.services;
+
+import edu.virginia.sde.reviews.models.Course;
+import edu.virginia.sde.reviews.models.Page;
+import edu.virginia.sde.reviews.models.Review;
+import edu.virginia.sde.reviews.models.ReviewDisplay;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Guards the query plans of the statements DatabaseService issues while serving
+ * the scenes. Every call below runs against a freshly migrated database with a
+ * zero-threshold SlowQueryLog, which explains each distinct statement on the
+ * connection that ran it, with the values it was bound to. A plan that scans a
+ * table or sorts into a temporary B-tree fails the test unless it is one of the
+ * allowed cases below.
+ *
+ * Course searches go to SQL here (catalog.enabled=false). Loading the catalog
+ * and the maintenance calls (checkAggregates, rebuildAggregates, clearDatabase)
+ * read whole tables by design and are not covered.
+ */
+class QueryPlanTest {
+    @TempDir
+    Path tempDir;
+
+    /**
+     * A scan or sort that is expected, and why.
+     */
+    private static final class Allowed {
+        private final String reason;
+        private final Predicate<String> sql;
+        private final String planLine;
+
+        private Allowed(String reason, Predicate<String> sql, String planLine) {
+            this.reason = reason;
+            this.sql = sql;
+            this.planLine = planLine;
+        }
+
+        boolean permits(String normalizedSql, String line) {
+            return sql.test(normalizedSql) && line.contains(planLine);
+        }
+    }
+
+    // searchCourses statements ("WHERE 1=1 AND ...") once literals are normalized
+    private static final String SEARCH = "WHERE ?=?";
+
+    private static final List<Allowed> ALLOWED = List.of(
+        new Allowed("Listing every course (or a LIKE fallback) walks the unique index in page order and stops at LIMIT",
+            sql -> sql.contains(SEARCH) && !sql.contains("c.subject = ") && !sql.contains("c.number = ")
+                && !sql.contains("MATCH"),
+            "SCAN c USING COVERING INDEX"),
+        new Allowed("A course number matches at most one course per subject, so the sort is small",
+            sql -> sql.contains(SEARCH) && sql.contains("c.number = ") && !sql.contains("c.subject = "),
+            "USE TEMP B-TREE FOR ORDER BY"),
+        new Allowed("Title matches come from the full-text index in rowid order and are sorted afterwards",
+            sql -> sql.contains(SEARCH) && sql.contains("courses_fts MATCH") && !sql.contains("c.subject = "),
+            "USE TEMP B-TREE FOR ORDER BY"),
+        new Allowed("Ranked full-text results are ordered by relevance, which no index holds",
+            sql -> sql.contains("ORDER BY bm25(") || sql.contains("ORDER BY source, score"),
+            "USE TEMP B-TREE FOR ORDER BY")
+    );
+
+    private DatabaseService database;
+    private SlowQueryLog log;
+
+    @BeforeEach
+    void setUp() {
+        Properties properties = new Properties();
+        properties.setProperty("db.path", tempDir.resolve("plans.db").toString());
+        properties.setProperty("catalog.enabled", "false");
+        properties.setProperty("auth.iterations", String.valueOf(PasswordHasher.MIN_ITERATIONS));
+        database = new DatabaseService(new DatabaseConfig(properties));
+        log = new SlowQueryLog(0);
+        log.setVerbose(false);
+    }
+
+    @Test
+    void testNoUnexpectedScansOrSorts() {
+        // Seeded before logging starts, so only the calls below are explained
+        assertTrue(database.createUser("alice", "password1"));
+        assertTrue(database.createUser("bob", "password2"));
+        int alice = database.getUserId("alice");
+        int bob = database.getUserId("bob");
+        Course software = database.addCourse("CS", 3140, "Software Development Essentials");
+        Course systems = database.addCourse("CS", 4414, "Operating Systems");
+        database.addCourse("MATH", 3140, "Software for Mathematics");
+        assertNotNull(database.addReview(bob, software.getId(), 4, "Good projects"));
+        assertNotNull(database.addReview(bob, systems.getId(), 5, "Hard but worth it"));
+
+        database.getConnectionPool().setSlowQueryLog(log);
+        exerciseEveryCall(alice, bob, software, systems);
+
+        Map<String, String> plans = new TreeMap<>(log.getPlans());
+        long searchShapes = plans.keySet().stream().filter(sql -> sql.contains(SEARCH)).count();
+        // Subject x number x (no title, full-text title, LIKE title) x first/next page
+        assertEquals(24, searchShapes, "Every searchCourses filter combination should be explained");
+
+        List<String> violations = new ArrayList<>();
+        plans.forEach((sql, plan) -> {
+            for (String line : plan.split("\n")) {
+                if (SlowQueryLog.isExpensivePlan(line) && ALLOWED.stream().noneMatch(a -> a.permits(sql, line))) {
+                    violations.add(sql + "\n    " + line.trim());
+                }
+            }
+        });
+        // The allowed cases, with their reasons, in the failure message for comparison
+        StringBuilder allowed = new StringBuilder();
+        for (Allowed a : ALLOWED) {
+            allowed.append("\n  ").append(a.planLine).append(": ").append(a.reason);
+        }
+        assertTrue(violations.isEmpty(), "Unexpected scans or sorts:\n" + String.join("\n", violations)
+            + "\nAllowed:" + allowed);
+    }
+
+    private void exerciseEveryCall(int alice, int bob, Course software, Course systems) {
+        assertTrue(database.validateUser("alice", "password1"));
+        assertFalse(database.validateUser("alice", "wrong"));
+        assertNotNull(database.openSession("bob", "password2"));
+        assertTrue(database.createUser("carol", "password3"));
+        assertTrue(database.getUserId("carol") > 0);
+        assertTrue(database.createCourse("CS", 2100, "Data Structures and Algorithms 1").isOk());
+        assertFalse(database.createCourse("CS", 2100, "Data Structures and Algorithms 1").isOk());
+        assertNotNull(database.getCourse(software.getId()));
+        assertEquals(software.getId(), database.getCourseIdBySubjectAndNumber("cs", 3140));
+
+        for (String subject : new String[]{null, "CS"}) {
+            for (Integer number : new Integer[]{null, 3140}) {
+                // "++" has no words to match, so it falls back to LIKE
+                for (String title : new String[]{null, "software", "++"}) {
+                    database.searchCourses(subject, number, title, null, 1);
+                    database.searchCourses(subject, number, title, software, 1);
+                }
+            }
+        }
+        assertFalse(database.searchCoursesFullText("operating", 10).isEmpty());
+
+        Page<Review> reviews = database.getReviewsForCourse(software.getId(), null, 1);
+        database.getReviewsForCourse(software.getId(), reviews.getLast(), 1);
+        Page<Review> bobsReviews = database.getUserReviews(bob, null, 1);
+        database.getUserReviews(bob, bobsReviews.getLast(), 1);
+        Page<ReviewDisplay> displays = database.getUserReviewDisplays(bob, null, 1);
+        database.getUserReviewDisplays(bob, bobsReviews.getLast(), 1);
+        assertFalse(displays.isEmpty());
+        assertNotNull(database.getUserReviewForCourse(bob, software.getId()));
+        assertNotNull(database.getCoursePageSnapshot(software.getId(), bob, 10));
+        assertFalse(database.searchUserReviews(bob, "projects").isEmpty());
+
+        Review created = database.createReview(alice, systems.getId(), 3, "Lots of C").getValue();
+        assertNotNull(created);
+        assertTrue(database.saveReview(alice, systems.getId(), 2, "Lots and lots of C").isOk());
+        assertTrue(database.changeReview(created.getId(), 4, "Grew on me").isOk());
+        assertTrue(database.removeReview(created.getId()).isOk());
+    }
+}
@@ -0,0 +1,116 @@
+package edu.virginia.sde.reviews.services;
+
+import edu.virginia.sde.reviews.models.Course;
+import edu.virginia.sde.reviews.models.Review;
+import edu.virginia.sde.reviews.models.WriteResult;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReviewWriteQueueTest {
+    private static final int USERS = 40;
+
+    @TempDir
+    Path tempDir;
+
+    private DatabaseService database;
+    private Course course;
+    private final List<Integer> userIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        Properties properties = new Properties();
+        properties.setProperty("db.path", tempDir.resolve("group_commit.db").toString());
+        properties.setProperty("writes.groupCommit", "true");
+        properties.setProperty("writes.batchSize", "16");
+        properties.setProperty("writes.maxDelayMillis", "20");
+        properties.setProperty("auth.iterations", String.valueOf(PasswordHasher.MIN_ITERATIONS));
+        database = new DatabaseService(new DatabaseConfig(properties));
+
+        course = database.addCourse("CS", 3140, "Software Development");
+        assertNotNull(course);
+        for (int i = 0; i < USERS; i++) {
+            assertTrue(database.createUser("writer" + i, "password123"));
+            userIds.add(database.getUserId("writer" + i));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReviewWriteQueue.shutdownAll();
+    }
+
+    @Test
+    void testConcurrentWritesAreCommittedInBatches() {
+        List<CompletableFuture<WriteResult<Review>>> writes = new ArrayList<>();
+        for (int userId : userIds) {
+            writes.add(CompletableFuture.supplyAsync(() ->
+                database.saveReview(userId, course.getId(), 1 + userId % 5, "Queued")));
+        }
+        for (CompletableFuture<WriteResult<Review>> write : writes) {
+            assertTrue(write.join().isOk());
+        }
+
+        ReviewWriteQueue queue = database.getReviewWriteQueue();
+        assertEquals(USERS, queue.getCommittedCount());
+        assertTrue(queue.getBatchCount() < USERS, "concurrent writes should share commits: " + queue);
+        assertTrue(queue.getLargestBatch() <= 16);
+
+        // Committed writes are visible to readers, aggregates included
+        Course updated = database.getCourse(course.getId());
+        assertEquals(USERS, updated.getReviewCount());
+        assertEquals(USERS, database.getReviewsForCourse(course.getId()).size());
+    }
+
+    @Test
+    void testFailedWriteDoesNotUndoItsBatch() {
+        int userId = userIds.get(0);
+        CompletableFuture<WriteResult<Review>> good = CompletableFuture.supplyAsync(() ->
+            database.saveReview(userId, course.getId(), 5, "Good"));
+        // Both break a foreign key inside the batch; a bad rating is rejected before it is queued
+        CompletableFuture<WriteResult<Review>> noUser = CompletableFuture.supplyAsync(() ->
+            database.saveReview(userIds.get(1) + 1000, course.getId(), 4, "No such user"));
+        CompletableFuture<WriteResult<Review>> noCourse = CompletableFuture.supplyAsync(() ->
+            database.saveReview(userIds.get(2), course.getId() + 100, 3, "No such course"));
+
+        assertTrue(good.join().isOk());
+        assertEquals(WriteResult.Status.MISSING_REFERENCE, noUser.join().getStatus());
+        assertEquals(WriteResult.Status.MISSING_REFERENCE, noCourse.join().getStatus());
+
+        Review review = database.getUserReviewForCourse(userId, course.getId());
+        assertNotNull(review);
+        assertEquals(1, database.getCourse(course.getId()).getReviewCount());
+
+        assertTrue(database.updateReview(review.getId(), 3, "Changed my mind"));
+        assertEquals(3.0, database.getCourse(course.getId()).getAverageRating(), 0.01);
+        assertTrue(database.deleteReview(review.getId()));
+        assertEquals(WriteResult.Status.NOT_FOUND, database.removeReview(review.getId()).getStatus());
+        assertEquals(0, database.getCourse(course.getId()).getReviewCount());
+        assertEquals(3, database.getReviewWriteQueue().getFailedCount());
+    }
+
+    @Test
+    void testWritesRacingCloseAllComplete() throws Exception {
+        ReviewWriteQueue queue = new ReviewWriteQueue(database.getConnectionPool(), 4, 1, 2);
+        List<CompletableFuture<CompletableFuture<WriteResult<Review>>>> submits = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            submits.add(CompletableFuture.supplyAsync(() -> queue.submit(conn -> null)));
+        }
+        queue.close();
+
+        // Each write either ran before the close (no row, so NOT_FOUND) or was refused
+        for (CompletableFuture<CompletableFuture<WriteResult<Review>>> submit : submits) {
+            WriteResult.Status status = submit.get(5, TimeUnit.SECONDS).get(5, TimeUnit.SECONDS).getStatus();
+            assertTrue(status == WriteResult.Status.NOT_FOUND || status == WriteResult.Status.ERROR, status.name());
+        }
+        assertEquals(WriteResult.Status.ERROR, queue.submit(conn -> null).join().getStatus());
+    }
+}
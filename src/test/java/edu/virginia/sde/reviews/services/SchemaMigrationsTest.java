@@ -0,0 +1,177 @@
+package edu.virginia.sde.reviews.services;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SchemaMigrationsTest {
+    // The database checked in at the project root, created before versioning existed
+    private static final Path SHIPPED_DATABASE = Path.of("course_reviews.db");
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testNewDatabaseIsCreatedAtLatestVersion() throws SQLException {
+        try (Connection conn = open(tempDir.resolve("new.db"))) {
+            assertEquals(0, SchemaMigrations.migrate(conn));
+            assertEquals(SchemaMigrations.LATEST_VERSION, SchemaMigrations.getVersion(conn));
+            assertIndexExists(conn, "idx_reviews_user_timestamp");
+        }
+    }
+
+    @Test
+    void testUpgradesShippedDatabaseInPlace() throws Exception {
+        assertTrue(Files.exists(SHIPPED_DATABASE), "Expected the checked-in course_reviews.db");
+        Path copy = tempDir.resolve("upgrade.db");
+        Files.copy(SHIPPED_DATABASE, copy, StandardCopyOption.REPLACE_EXISTING);
+
+        try (Connection conn = open(copy)) {
+            int users = count(conn, "users");
+            int courses = count(conn, "courses");
+            int reviews = count(conn, "reviews");
+
+            SchemaMigrations.migrate(conn);
+            assertEquals(SchemaMigrations.LATEST_VERSION, SchemaMigrations.getVersion(conn));
+
+            // No data is lost or duplicated by the upgrade
+            assertEquals(users, count(conn, "users"));
+            assertEquals(courses, count(conn, "courses"));
+            assertEquals(reviews, count(conn, "reviews"));
+            assertEquals(courses, count(conn, "course_ratings"));
+
+            assertIndexExists(conn, "idx_reviews_course_timestamp");
+            assertIndexExists(conn, "idx_reviews_user_timestamp");
+            assertIndexExists(conn, "idx_courses_number");
+
+            // The listing queries now walk an index instead of sorting
+            String plan = explain(conn, "SELECT * FROM reviews WHERE user_id = 1 ORDER BY timestamp DESC");
+            assertTrue(plan.contains("idx_reviews_user_timestamp"), plan);
+            assertFalse(plan.contains("TEMP B-TREE"), plan);
+            plan = explain(conn, "SELECT * FROM reviews WHERE course_id = 1 ORDER BY timestamp DESC");
+            assertTrue(plan.contains("idx_reviews_course_timestamp"), plan);
+            assertFalse(plan.contains("TEMP B-TREE"), plan);
+
+            // Running again is a no-op
+            assertEquals(SchemaMigrations.LATEST_VERSION, SchemaMigrations.migrate(conn));
+            assertEquals(courses, count(conn, "course_ratings"));
+        }
+    }
+
+    @Test
+    void testMergesCoursesDifferingOnlyInSubjectCase() throws SQLException {
+        try (Connection conn = open(tempDir.resolve("case.db"));
+             Statement stmt = conn.createStatement()) {
+            // An unversioned database, as written before subjects were upper-cased
+            stmt.execute("CREATE TABLE users (id INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + "username TEXT UNIQUE NOT NULL, password TEXT NOT NULL)");
+            stmt.execute("CREATE TABLE courses (id INTEGER PRIMARY KEY AUTOINCREMENT, subject TEXT NOT NULL, "
+                + "number INTEGER NOT NULL, title TEXT NOT NULL, UNIQUE(subject, number, title))");
+            stmt.execute("CREATE TABLE reviews (id INTEGER PRIMARY KEY AUTOINCREMENT, user_id INTEGER NOT NULL, "
+                + "course_id INTEGER NOT NULL, rating INTEGER NOT NULL CHECK (rating >= 1 AND rating <= 5), "
+                + "comment TEXT, timestamp TIMESTAMP DEFAULT CURRENT_TIMESTAMP, "
+                + "FOREIGN KEY (user_id) REFERENCES users(id), FOREIGN KEY (course_id) REFERENCES courses(id), "
+                + "UNIQUE(user_id, course_id))");
+            stmt.execute("INSERT INTO users (username, password) VALUES ('alice', 'x'), ('bob', 'x')");
+            stmt.execute("INSERT INTO courses (subject, number, title) VALUES "
+                + "('CS', 3140, 'SDE'), ('cs', 3140, 'SDE'), ('Cs', 3140, 'SDE'), ('math', 3100, 'Probability')");
+            // alice only reviewed a lower-case copy; bob reviewed both the original and a copy
+            stmt.execute("INSERT INTO reviews (user_id, course_id, rating) VALUES (1, 2, 4), (2, 1, 5), (2, 3, 1)");
+
+            SchemaMigrations.migrate(conn);
+
+            assertEquals(2, count(conn, "courses"));
+            assertEquals(0, countWhere(conn, "courses", "subject <> UPPER(subject)"));
+            assertEquals(1, countWhere(conn, "courses", "subject = 'MATH' AND number = 3100"));
+            // alice's review moved to the surviving course; bob's were written together, so the later row wins
+            assertEquals(2, countWhere(conn, "reviews", "course_id = 1"));
+            assertEquals(1, countWhere(conn, "reviews", "user_id = 1 AND course_id = 1 AND rating = 4"));
+            assertEquals(1, countWhere(conn, "reviews", "user_id = 2 AND course_id = 1 AND rating = 1"));
+            assertEquals(2, count(conn, "course_ratings"));
+            assertEquals(1, countWhere(conn, "course_ratings",
+                "course_id = 1 AND rating_count = 2 AND rating_sum = 5"));
+        }
+    }
+
+    @Test
+    void testMergeKeepsTheNewerOfConflictingReviews() throws SQLException {
+        try (Connection conn = open(tempDir.resolve("conflict.db"));
+             Statement stmt = conn.createStatement()) {
+            // Migrate a database that already reviewed two case variants of one course
+            SchemaMigrations.migrate(conn);
+            stmt.execute("PRAGMA user_version = 5");
+            stmt.execute("INSERT INTO users (username, password) VALUES ('alice', 'x'), ('bob', 'x')");
+            stmt.execute("INSERT INTO courses (subject, number, title) VALUES "
+                + "('CS', 3140, 'SDE'), ('cs', 3140, 'SDE')");
+            // alice's newer review is of the copy, bob's of the original
+            stmt.execute("INSERT INTO reviews (user_id, course_id, rating, comment, timestamp) VALUES "
+                + "(1, 1, 2, 'Older', 1700000000000), (1, 2, 5, 'Newer', 1710000000000), "
+                + "(2, 2, 4, 'Older', 1700000000000), (2, 1, 3, 'Newer', 1710000000000)");
+
+            SchemaMigrations.migrate(conn);
+
+            assertEquals(1, count(conn, "courses"));
+            assertEquals(2, count(conn, "reviews"));
+            assertEquals(0, countWhere(conn, "reviews", "course_id <> 1 OR comment <> 'Newer'"));
+            assertEquals(1, countWhere(conn, "reviews", "user_id = 1 AND rating = 5"));
+            assertEquals(1, countWhere(conn, "reviews", "user_id = 2 AND rating = 3"));
+            assertEquals(1, countWhere(conn, "course_ratings",
+                "course_id = 1 AND rating_count = 2 AND rating_sum = 8"));
+            assertEquals(0, countWhere(conn, "course_ratings", "course_id = 2"));
+        }
+    }
+
+    @Test
+    void testRejectsNewerDatabase() throws SQLException {
+        try (Connection conn = open(tempDir.resolve("future.db"));
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("PRAGMA user_version = " + (SchemaMigrations.LATEST_VERSION + 1));
+            assertThrows(SQLException.class, () -> SchemaMigrations.migrate(conn));
+        }
+    }
+
+    private static Connection open(Path path) throws SQLException {
+        return DriverManager.getConnection("jdbc:sqlite:" + path);
+    }
+
+    private static int count(Connection conn, String table) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + table)) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private static int countWhere(Connection conn, String table, String condition) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + table + " WHERE " + condition)) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private static String explain(Connection conn, String sql) throws SQLException {
+        StringBuilder plan = new StringBuilder();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("EXPLAIN QUERY PLAN " + sql)) {
+            while (rs.next()) {
+                plan.append(rs.getString("detail")).append('\n');
+            }
+        }
+        return plan.toString();
+    }
+
+    private static void assertIndexExists(Connection conn, String name) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT 1 FROM sqlite_master WHERE type = 'index' AND name = ?")) {
+            pstmt.setString(1, name);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                assertTrue(rs.next(), "Missing index " + name);
+            }
+        }
+    }
+}
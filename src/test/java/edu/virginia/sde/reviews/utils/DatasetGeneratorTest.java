@@ -0,0 +1,112 @@
+package edu.virginia.sde.reviews.utils;
+
+import edu.virginia.sde.reviews.models.Course;
+import edu.virginia.sde.reviews.services.BulkImporter;
+import edu.virginia.sde.reviews.services.DatabaseConfig;
+import edu.virginia.sde.reviews.services.DatabaseService;
+import edu.virginia.sde.reviews.services.ImportRecord;
+import edu.virginia.sde.reviews.services.PasswordHasher;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DatasetGeneratorTest {
+    @TempDir
+    Path tempDir;
+
+    private DatasetGenerator generator(long seed) {
+        DatasetGenerator generator = new DatasetGenerator(seed);
+        generator.setUsers(300);
+        generator.setSubjects(20);
+        generator.setCourses(200);
+        generator.setReviews(5_000);
+        return generator;
+    }
+
+    @Test
+    void testSameSeedGivesSameRecords() {
+        Iterator<ImportRecord> first = generator(11).iterator();
+        Iterator<ImportRecord> second = generator(11).iterator();
+        while (first.hasNext()) {
+            assertEquals(first.next().toJson(), second.next().toJson());
+        }
+        assertFalse(second.hasNext());
+
+        Iterator<ImportRecord> other = generator(12).iterator();
+        boolean differs = false;
+        for (ImportRecord record : generator(11)) {
+            differs |= !record.toJson().equals(other.next().toJson());
+        }
+        assertTrue(differs);
+    }
+
+    @Test
+    void testCountsAreExactAndReviewsAreSkewed() {
+        Set<String> courses = new HashSet<>();
+        Set<String> reviewed = new HashSet<>();
+        Map<String, Integer> reviewsPerCourse = new HashMap<>();
+        int users = 0;
+        for (ImportRecord record : generator(5)) {
+            switch (record.getType()) {
+                case USER -> users++;
+                case COURSE -> {
+                    assertTrue(Course.isValidSubject(record.getSubject()));
+                    assertTrue(Course.isValidNumber(record.getNumber()));
+                    assertTrue(Course.isValidTitle(record.getTitle()));
+                    assertTrue(courses.add(record.getSubject() + record.getNumber()));
+                }
+                case REVIEW -> {
+                    String course = record.getSubject() + record.getNumber();
+                    assertTrue(courses.contains(course));
+                    // Nobody reviews a course twice
+                    assertTrue(reviewed.add(record.getUsername() + " " + course));
+                    reviewsPerCourse.merge(course, 1, Integer::sum);
+                }
+            }
+        }
+        assertEquals(300, users);
+        assertEquals(200, courses.size());
+        assertEquals(5_000, reviewed.size());
+
+        List<Integer> counts = new ArrayList<>(reviewsPerCourse.values());
+        counts.sort(Collections.reverseOrder());
+        // Zipf: the most reviewed course has many times the median
+        assertTrue(counts.get(0) > 5 * counts.get(counts.size() / 2), counts.toString());
+    }
+
+    @Test
+    void testFixtureImportsIntoDatabase() throws Exception {
+        DatasetGenerator generator = generator(3);
+        generator.setReviews(1_000);
+        Path fixture = tempDir.resolve("fixture.csv");
+        assertEquals(300 + 200 + 1_000, generator.writeTo(fixture));
+        assertTrue(Files.size(fixture) > 0);
+
+        Properties properties = new Properties();
+        properties.setProperty("db.path", tempDir.resolve("generated.db").toString());
+        // The fixture holds plain passwords, hashed one by one on import
+        properties.setProperty("auth.iterations", String.valueOf(PasswordHasher.MIN_ITERATIONS));
+        DatabaseService database = new DatabaseService(new DatabaseConfig(properties));
+        BulkImporter importer = new BulkImporter(database);
+        importer.setVerbose(false);
+        BulkImporter.Report report = importer.importFile(fixture);
+        assertEquals(300, report.getUsersInserted());
+        assertEquals(200, report.getCoursesInserted());
+        assertEquals(1_000, report.getReviewsInserted());
+        assertEquals(0, report.getRejected());
+        assertTrue(database.validateUser(DatasetGenerator.username(0), DatasetGenerator.DEFAULT_PASSWORD));
+    }
+}